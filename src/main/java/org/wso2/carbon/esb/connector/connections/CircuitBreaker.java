@@ -0,0 +1,141 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.connections;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breaker of one database host of a connection pool.
+ * <p>
+ * The breaker opens after failureThreshold consecutive connection failures, and connections
+ * to the host are refused without trying while it is open. Once openDuration has passed, a
+ * single new connection is let through as a probe: if it succeeds the breaker closes, if it
+ * fails the breaker opens again for another openDuration.
+ * <p>
+ * Successes are recorded on the hot path of every query, so recording one does not lock
+ * unless the breaker has failures to clear.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String host;
+    private final int failureThreshold;
+    private final long openDuration;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+
+    private final AtomicLong trips = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+
+    /**
+     * @param host             The host name used in log messages
+     * @param failureThreshold Consecutive failures opening the breaker, 0 or less never opens it
+     * @param openDuration     Time in milliseconds the breaker stays open before a probe
+     */
+    public CircuitBreaker(String host, int failureThreshold, long openDuration) {
+        this.host = host;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Tells whether a new connection may be made to the host, and turns an open breaker whose
+     * open duration has passed into half-open, letting the caller through as its only probe.
+     *
+     * @return true if the caller may connect
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDuration) {
+            state = State.HALF_OPEN;
+            return true;
+        }
+        rejections.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * @return false while the breaker refuses connections, without taking the probe of an
+     *         open breaker whose open duration has passed
+     */
+    public boolean isAvailable() {
+        State current = state;
+        return current == State.CLOSED
+                || (current == State.OPEN && System.currentTimeMillis() - openedAt >= openDuration);
+    }
+
+    public void recordSuccess() {
+        if (state == State.CLOSED && consecutiveFailures.get() == 0) {
+            return;
+        }
+        synchronized (this) {
+            consecutiveFailures.set(0);
+            state = State.CLOSED;
+        }
+    }
+
+    public synchronized void recordFailure() {
+        if (failureThreshold <= 0) {
+            return;
+        }
+        if (state == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            if (state != State.OPEN) {
+                trips.incrementAndGet();
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return the number of times the breaker opened
+     */
+    public long getTripCount() {
+        return trips.get();
+    }
+
+    /**
+     * @return the number of connections refused while the breaker was open
+     */
+    public long getRejectionCount() {
+        return rejections.get();
+    }
+
+    @Override
+    public String toString() {
+        return host + ": state=" + state + ", consecutiveFailures=" + consecutiveFailures.get() + ", trips="
+                + trips.get() + ", rejections=" + rejections.get();
+    }
+}
@@ -0,0 +1,802 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.connections;
+
+import java.io.StringWriter;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.gson.stream.JsonWriter;
+
+import org.wso2.carbon.esb.connector.exception.CircuitOpenException;
+import org.wso2.carbon.esb.connector.pojo.ConnectionConfiguration;
+import org.wso2.carbon.esb.connector.utils.ResultSetMapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JDBC connection pool of the DB connector.
+ * <p>
+ * Idle connections are kept in a lock-free deque and handed out most recently used
+ * first, so the least used connections age at the tail and are evicted there. The
+ * number of borrowed connections is bounded by a semaphore of maxActiveConnections
+ * permits. When the pool is exhausted the configured exhaustedAction decides whether a
+ * borrower waits up to maxWaitTime, fails immediately or grows the pool beyond the limit.
+ * <p>
+ * If warm-up is configured, borrowers wait until {@link #warmUp()} has pre-created the
+ * idle connections and run the warm-up queries, or until maxWaitTime passes.
+ * <p>
+ * Every read replica URL of the configuration gets a pool of its own, owned by this pool.
+ * Reads borrowed with {@link #borrowForRead()} go to the replica with the least outstanding
+ * requests, and connections are handed back to this pool whichever replica they came from.
+ * <p>
+ * New connections are made to the url of the configuration, or to the failover URLs in
+ * order when it can not be connected to. Every host has a {@link CircuitBreaker}, and while
+ * the breakers of all hosts are open borrowers fail at once instead of waiting for the pool.
+ */
+public class DBConnectionPool {
+
+    private static final Logger log = LoggerFactory.getLogger(DBConnectionPool.class);
+
+    public static final String WHEN_EXHAUSTED_BLOCK = "WHEN_EXHAUSTED_BLOCK";
+    public static final String WHEN_EXHAUSTED_FAIL = "WHEN_EXHAUSTED_FAIL";
+    public static final String WHEN_EXHAUSTED_GROW = "WHEN_EXHAUSTED_GROW";
+
+    private static final Map<String, DBConnectionPool> POOLS = new ConcurrentHashMap<>();
+    private static final int MAX_WARM_UP_THREADS = 8;
+
+    private final String name;
+    private final ConnectionConfiguration config;
+    private final DBConnectionFactory factory;
+    // the url of the configuration followed by the failover hosts, in the order they are tried
+    private final List<Host> hosts;
+
+    private final ConcurrentLinkedDeque<DBHandler> idleConnections = new ConcurrentLinkedDeque<>();
+    private final Semaphore permits;
+    // connections handed out beyond maxActiveConnections with WHEN_EXHAUSTED_GROW
+    private final AtomicInteger overflow = new AtomicInteger();
+    private final PoolMetrics metrics = new PoolMetrics();
+    // cached select results, null if the result cache is disabled
+    private final ResultCache resultCache;
+    // identical selects in flight, shared with the selects that coalesce into them
+    private final SingleFlight singleFlight = new SingleFlight();
+    // probed with the first connection of the pool
+    private volatile DialectProfile dialectProfile;
+    // pools of the read replicas, and the pool owning this one if it is a replica
+    private final List<DBConnectionPool> replicas;
+    private final DBConnectionPool primary;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    // hedging of replica reads, null if there are fewer than two replicas
+    private final HedgePolicy hedgePolicy;
+    // retries of statements outside a transaction, null if maxFailureRetryCount is 0 and for replicas
+    private final RetryPolicy retryPolicy;
+
+    private final String exhaustedAction;
+    private final long maxWaitTime;
+    private final int maxIdle;
+    private final long minEvictionTime;
+    private final long maxLifetime;
+    private final boolean testOnBorrow;
+
+    private volatile boolean closed = false;
+    private final CountDownLatch ready;
+    private final AtomicBoolean warmUpStarted = new AtomicBoolean();
+
+    DBConnectionPool(String name, ConnectionConfiguration config) {
+        this(name, config, null);
+    }
+
+    private DBConnectionPool(String name, ConnectionConfiguration config, DBConnectionPool primary) {
+        this.name = name;
+        this.config = config;
+        this.factory = new DBConnectionFactory(config);
+
+        List<Host> poolHosts = new ArrayList<>();
+        poolHosts.add(new Host(name, factory, config));
+        List<String> failoverUrls = config.getFailoverUrls();
+        for (int i = 0; i < failoverUrls.size(); i++) {
+            ConnectionConfiguration hostConfig = config.forHost(failoverUrls.get(i));
+            poolHosts.add(new Host(name + "/failover-" + (i + 1), new DBConnectionFactory(hostConfig), config));
+        }
+        this.hosts = Collections.unmodifiableList(poolHosts);
+
+        int maxActive = config.getMaxActiveConnections();
+        this.permits = new Semaphore(maxActive > 0 ? maxActive : Integer.MAX_VALUE, false);
+        this.exhaustedAction = config.getExhaustedAction() == null ? WHEN_EXHAUSTED_BLOCK
+                : config.getExhaustedAction();
+        this.maxWaitTime = config.getMaxWaitTime();
+        this.maxIdle = config.getMaxIdleConnections();
+        this.minEvictionTime = config.getMinEvictionTime();
+        this.maxLifetime = config.getPoolConnectionAgedTimeout();
+        this.testOnBorrow = config.isTestOnBorrow();
+        this.ready = new CountDownLatch(config.isWarmUpEnabled() ? 1 : 0);
+        this.resultCache = config.getResultCacheMaxEntries() > 0
+                ? new ResultCache(config.getResultCacheMaxEntries(), config.getResultCacheMaxBytes()) : null;
+        this.primary = primary;
+
+        List<DBConnectionPool> replicaPools = new ArrayList<>();
+        List<String> replicaUrls = config.getReadReplicaUrls();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            replicaPools.add(new DBConnectionPool(name + "/replica-" + (i + 1),
+                    config.forHost(replicaUrls.get(i)), this));
+        }
+        this.replicas = Collections.unmodifiableList(replicaPools);
+        this.hedgePolicy = replicaPools.size() > 1 && config.getHedgeBudgetPercent() > 0
+                ? new HedgePolicy(name, config.getHedgeDelayPercentile(), config.getHedgeBudgetPercent()) : null;
+        this.retryPolicy = primary == null && config.getMaxFailureRetryCount() > 0
+                ? new RetryPolicy(config.getMaxFailureRetryCount(), config.getRetryBackoff(),
+                        config.getRetryMaxBackoff(), config.getRetryDeadline(), metrics) : null;
+    }
+
+    /**
+     * Returns the pool registered under the given name, creating it from the configuration
+     * if there is none. A pool created from a different configuration is replaced by a new
+     * one and closed, so that changed connection settings take effect. Connections borrowed
+     * from the old pool are closed when they are handed back.
+     *
+     * @param name   The tenant specific connection name
+     * @param config The connection configuration of the pool
+     * @return The connection pool
+     */
+    public static DBConnectionPool createPool(String name, ConnectionConfiguration config) {
+        DBConnectionPool[] replaced = new DBConnectionPool[1];
+        DBConnectionPool pool = POOLS.compute(name, (key, existing) -> {
+            if (existing != null && !existing.closed && existing.config.equals(config)) {
+                return existing;
+            }
+            replaced[0] = existing;
+            log.debug((existing == null ? "Creating" : "Recreating") + " connection pool: " + key);
+            return new DBConnectionPool(key, config);
+        });
+        if (replaced[0] != null) {
+            replaced[0].close();
+        }
+        return pool;
+    }
+
+    /**
+     * @param name The tenant specific connection name
+     * @return The pool registered under the name, or null if there is none
+     */
+    public static DBConnectionPool getPool(String name) {
+        return POOLS.get(name);
+    }
+
+    /**
+     * Closes and removes all the pools. Used when the connector is undeployed.
+     */
+    public static void shutdownPools() {
+        for (String name : POOLS.keySet()) {
+            DBConnectionPool pool = POOLS.remove(name);
+            if (pool != null) {
+                pool.close();
+            }
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool, creating a new one if no valid idle connection
+     * is available.
+     *
+     * @return A connection that must be handed back with {@link #release} or {@link #invalidate}
+     * @throws SQLTransientConnectionException if no connection could be borrowed within maxWaitTime
+     *                                         or the pool is exhausted and configured to fail
+     * @throws SQLException                    if a new connection could not be created
+     */
+    public DBHandler borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool " + name + " is closed");
+        }
+        if (!isAvailable()) {
+            metrics.rejections.incrementAndGet();
+            throw new CircuitOpenException("Connection pool " + name
+                    + " is unavailable, the circuit breakers of all its hosts are open");
+        }
+        awaitReady();
+        return borrowConnection();
+    }
+
+    /**
+     * Borrows a connection for a read that may see data behind the primary. The connection is
+     * borrowed from the read replica with the fewest connections in use or awaited, and from
+     * this pool if there are no replicas or the replica could not hand out a connection.
+     *
+     * @return A connection that must be handed back to this pool
+     * @throws SQLException if no connection could be borrowed from this pool either
+     */
+    public DBHandler borrowForRead() throws SQLException {
+        DBConnectionPool replica = selectReplica();
+        if (replica != null) {
+            try {
+                return replica.borrow();
+            } catch (SQLException e) {
+                log.warn("Could not borrow a connection from " + replica.name + ", reading from the primary: "
+                        + e.getMessage());
+            }
+        }
+        return borrow();
+    }
+
+    /**
+     * Borrows a connection for the hedge of a read, from the replica with the least outstanding
+     * requests other than the one the read was sent to first.
+     *
+     * @param first The connection of the first read
+     * @return A connection that must be handed back to this pool, or null if there is no
+     *         other replica
+     * @throws SQLException if the replica could not hand out a connection
+     */
+    public DBHandler borrowForHedge(DBHandler first) throws SQLException {
+        DBConnectionPool replica = selectReplica(first.getPool());
+        return replica == null ? null : replica.borrow();
+    }
+
+    private DBConnectionPool selectReplica() {
+        return selectReplica(null);
+    }
+
+    /**
+     * Selects the open replica with the least outstanding requests. The scan starts at the
+     * next replica in turn, so that replicas with the same load are used evenly.
+     *
+     * @param excluded A replica not to select, may be null
+     */
+    private DBConnectionPool selectReplica(DBConnectionPool excluded) {
+        int count = replicas.size();
+        if (count == 0) {
+            return null;
+        }
+        int start = Math.floorMod(nextReplica.getAndIncrement(), count);
+        DBConnectionPool selected = null;
+        int selectedLoad = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            DBConnectionPool replica = replicas.get((start + i) % count);
+            int load = replica.metrics.active.get() + replica.metrics.pending.get();
+            if (replica != excluded && !replica.closed && replica.isAvailable() && load < selectedLoad) {
+                selected = replica;
+                selectedLoad = load;
+            }
+        }
+        return selected;
+    }
+
+    private DBHandler borrowConnection() throws SQLException {
+        long start = System.nanoTime();
+        acquireSlot();
+        metrics.recordWait(System.nanoTime() - start);
+
+        try {
+            DBHandler handler = pollIdle();
+            if (handler == null) {
+                handler = create();
+            }
+            metrics.active.incrementAndGet();
+            metrics.borrowed.incrementAndGet();
+            return handler;
+        } catch (SQLException | RuntimeException e) {
+            freeSlot();
+            throw e;
+        }
+    }
+
+    /**
+     * Hands a borrowed connection back to the pool. A transaction still started on the
+     * connection is rolled back. Connections that are closed, whose rollback failed, that exceed
+     * maxIdleConnections, or that were handed out beyond maxActiveConnections with
+     * WHEN_EXHAUSTED_GROW, are destroyed.
+     */
+    public void release(DBHandler handler) {
+        if (handler == null) {
+            return;
+        }
+        if (handler.getPool() != this) {
+            if (isReplica(handler.getPool())) {
+                handler.getPool().release(handler);
+                return;
+            }
+            // not borrowed from this pool, e.g. a dedicated connection of a nested transaction
+            handler.close();
+            return;
+        }
+
+        metrics.active.decrementAndGet();
+        // a transaction left open must not be carried over to the next message borrowing the connection
+        boolean transactionLeftOpen = handler.isTransactionStarted() && !rollback(handler);
+        // the pool shrinks back to maxActiveConnections instead of keeping the grown connections idle
+        if (closed || transactionLeftOpen || handler.isClosed() || overflow.get() > 0
+                || (maxIdle > 0 && metrics.idle.get() >= maxIdle)) {
+            destroy(handler);
+        } else {
+            handler.markReturned();
+            idleConnections.offerFirst(handler);
+            metrics.idle.incrementAndGet();
+        }
+        freeSlot();
+        evictIdle();
+    }
+
+    /**
+     * Rolls back the transaction of a connection handed back while it was still started.
+     *
+     * @return false if the rollback failed, and the connection has to be destroyed
+     */
+    private boolean rollback(DBHandler handler) {
+        log.warn("Rolling back the transaction left open on a connection of pool " + name);
+        try {
+            handler.rollbackTransaction();
+            return true;
+        } catch (SQLException e) {
+            log.warn("Error rolling back the transaction of a connection of pool " + name + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Records a failed statement of a borrowed connection with the circuit breaker of its
+     * host, if the connection itself failed: the SQLState is of class 08, or the driver threw
+     * a connection exception. Statements timing out, and any other failure of the statement,
+     * do not count against the host.
+     *
+     * @param handler The borrowed connection, may be null if none was borrowed
+     * @param e       The failure
+     * @return true if the connection failed, and should be invalidated instead of released
+     */
+    public boolean recordFailure(DBHandler handler, Exception e) {
+        if (handler == null || !isConnectionFailure(e)) {
+            return false;
+        }
+        CircuitBreaker breaker = handler.getCircuitBreaker();
+        if (breaker != null) {
+            breaker.recordFailure();
+        }
+        return true;
+    }
+
+    /**
+     * Classifies the first SQLException of the failure and its causes.
+     */
+    private static boolean isConnectionFailure(Throwable e) {
+        Throwable cause = e;
+        while (cause != null && !(cause instanceof SQLException)) {
+            cause = cause.getCause() == cause ? null : cause.getCause();
+        }
+        return cause != null && !(cause instanceof SQLTimeoutException)
+                && RetryPolicy.isConnectionFailure((SQLException) cause);
+    }
+
+    /**
+     * @return false while the circuit breakers of all the hosts are open
+     */
+    public boolean isAvailable() {
+        for (Host host : hosts) {
+            if (host.breaker.isAvailable()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Destroys a borrowed connection which should not be reused, and frees its slot in the pool.
+     */
+    public void invalidate(DBHandler handler) {
+        if (handler == null) {
+            return;
+        }
+        if (handler.getPool() != this) {
+            if (isReplica(handler.getPool())) {
+                handler.getPool().invalidate(handler);
+                return;
+            }
+            handler.close();
+            return;
+        }
+
+        metrics.active.decrementAndGet();
+        destroy(handler);
+        freeSlot();
+    }
+
+    /**
+     * Warms up the pool once, if warm-up is configured. The minimum idle connections are
+     * created in parallel, then every warm-up query is run warmUpIterations times through the
+     * statement cache and the result set mapper, so that the driver and the execution path
+     * are loaded and compiled before the pool is marked ready. Failures are logged and do not
+     * prevent the pool from being used. The read replicas are warmed up after this pool.
+     */
+    public void warmUp() {
+        warmUpPool();
+        for (DBConnectionPool replica : replicas) {
+            replica.warmUpPool();
+        }
+    }
+
+    private void warmUpPool() {
+        if (!config.isWarmUpEnabled() || !warmUpStarted.compareAndSet(false, true)) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            if (config.isWarmUpConnections()) {
+                createIdleConnections(Math.min(config.getMinIdleConnections(), permits.availablePermits()));
+            }
+            for (int i = 0; i < config.getWarmUpIterations(); i++) {
+                for (String query : config.getWarmUpQueries()) {
+                    runWarmUpQuery(query);
+                }
+            }
+            log.info("Connection pool " + name + " warmed up in " + (System.currentTimeMillis() - start)
+                    + " ms: " + metrics);
+        } catch (Exception e) {
+            log.warn("Error warming up connection pool " + name + ": " + e.getMessage());
+        } finally {
+            ready.countDown();
+        }
+    }
+
+    private void createIdleConnections(int count) throws InterruptedException {
+        if (count <= 0) {
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(count, MAX_WARM_UP_THREADS));
+        try {
+            // hold all the connections until every one is created, so that none is reused
+            List<Future<DBHandler>> futures = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                futures.add(executor.submit(this::borrowConnection));
+            }
+            for (Future<DBHandler> future : futures) {
+                try {
+                    release(future.get());
+                } catch (ExecutionException e) {
+                    log.warn("Error creating connection while warming up pool " + name + ": "
+                            + e.getCause().getMessage());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void runWarmUpQuery(String query) throws SQLException {
+        DBHandler handler = borrowConnection();
+        try {
+            PreparedStatement ps = handler.prepareStatement(query, StatementCache.StatementKind.PLAIN);
+            try {
+                if (ps.execute()) {
+                    try (ResultSet rs = ps.getResultSet()) {
+                        ResultSetMapper.writeResultSetToJson(rs, new JsonWriter(new StringWriter()));
+                    }
+                }
+            } finally {
+                handler.releaseStatement(ps);
+            }
+        } catch (Exception e) {
+            log.warn("Warm-up query failed on pool " + name + ": " + e.getMessage());
+        } finally {
+            release(handler);
+        }
+    }
+
+    private void awaitReady() throws SQLException {
+        if (ready.getCount() == 0) {
+            return;
+        }
+        try {
+            if (maxWaitTime <= 0) {
+                ready.await();
+            } else if (!ready.await(maxWaitTime, TimeUnit.MILLISECONDS)) {
+                log.debug("Connection pool " + name + " is still warming up, borrowing without waiting");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for pool " + name
+                    + " to warm up", e);
+        }
+    }
+
+    /**
+     * Closes all the idle connections. Borrowed connections are closed when they are released.
+     */
+    public void close() {
+        closed = true;
+        for (DBConnectionPool replica : replicas) {
+            replica.close();
+        }
+        DBHandler handler;
+        while ((handler = idleConnections.pollFirst()) != null) {
+            metrics.idle.decrementAndGet();
+            destroy(handler);
+        }
+        log.debug("Connection pool " + name + " closed: " + metrics);
+        if (resultCache != null) {
+            log.debug("Result cache of pool " + name + ": " + resultCache);
+            resultCache.invalidate(Collections.singleton(ResultCache.ALL_TABLES));
+        }
+        if (singleFlight.getLeaderCount() > 0) {
+            log.debug("Coalesced selects of pool " + name + ": " + singleFlight);
+        }
+        if (hedgePolicy != null) {
+            log.debug("Hedged reads of pool " + name + ": " + hedgePolicy);
+            hedgePolicy.shutdown();
+        }
+        for (Host host : hosts) {
+            if (host.breaker.getTripCount() > 0) {
+                log.debug("Circuit breaker of " + host.breaker);
+            }
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ConnectionConfiguration getConfig() {
+        return config;
+    }
+
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    public boolean hasReadReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    /**
+     * @return the pools of the read replicas, empty if there are none
+     */
+    public List<DBConnectionPool> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * @return the circuit breakers of the hosts, the one of the url of the configuration first
+     */
+    public List<CircuitBreaker> getCircuitBreakers() {
+        List<CircuitBreaker> breakers = new ArrayList<>(hosts.size());
+        for (Host host : hosts) {
+            breakers.add(host.breaker);
+        }
+        return breakers;
+    }
+
+    /**
+     * @return the hedging policy of replica reads, or null if the pool has fewer than two replicas
+     */
+    public HedgePolicy getHedgePolicy() {
+        return hedgePolicy;
+    }
+
+    /**
+     * @return the retry policy of statements outside a transaction, or null if they are not retried
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    private boolean isReplica(DBConnectionPool pool) {
+        return pool != null && pool.primary == this;
+    }
+
+    /**
+     * @return the cache of select results of this pool, or null if it is disabled
+     */
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * @return the capabilities of the database, or null until the pool opened its first connection
+     */
+    public DialectProfile getDialectProfile() {
+        return dialectProfile;
+    }
+
+    private void acquireSlot() throws SQLException {
+        if (permits.tryAcquire()) {
+            return;
+        }
+
+        switch (exhaustedAction) {
+            case WHEN_EXHAUSTED_FAIL:
+                metrics.timeouts.incrementAndGet();
+                throw new SQLTransientConnectionException("Connection pool " + name + " is exhausted: " + metrics);
+            case WHEN_EXHAUSTED_GROW:
+                overflow.incrementAndGet();
+                return;
+            default:
+                metrics.pending.incrementAndGet();
+                try {
+                    if (maxWaitTime <= 0) {
+                        permits.acquire();
+                    } else if (!permits.tryAcquire(maxWaitTime, TimeUnit.MILLISECONDS)) {
+                        metrics.timeouts.incrementAndGet();
+                        throw new SQLTransientConnectionException("Timeout waiting " + maxWaitTime
+                                + " ms for a connection from pool " + name + ": " + metrics);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLTransientConnectionException("Interrupted while waiting for a connection from pool "
+                            + name, e);
+                } finally {
+                    metrics.pending.decrementAndGet();
+                }
+        }
+    }
+
+    /**
+     * Frees the slot of a connection leaving the pool. Slots taken beyond the limit are
+     * freed first, so the pool shrinks back to maxActiveConnections.
+     */
+    private void freeSlot() {
+        if (overflow.getAndUpdate(n -> n > 0 ? n - 1 : 0) == 0) {
+            permits.release();
+        }
+    }
+
+    private DBHandler pollIdle() {
+        DBHandler handler;
+        while ((handler = idleConnections.pollFirst()) != null) {
+            metrics.idle.decrementAndGet();
+            if (isExpired(handler) || (testOnBorrow && !factory.validateObject(handler))) {
+                destroy(handler);
+                continue;
+            }
+            return handler;
+        }
+        return null;
+    }
+
+    /**
+     * Connects to the first host whose circuit breaker lets a connection through, trying the
+     * next host when connecting fails. Any failure to connect counts against the breaker of
+     * the host.
+     */
+    private DBHandler create() throws SQLException {
+        SQLException failure = null;
+        for (Host host : hosts) {
+            if (!host.breaker.tryAcquire()) {
+                continue;
+            }
+            try {
+                DBHandler handler = create(host);
+                host.breaker.recordSuccess();
+                if (host != hosts.get(0)) {
+                    log.debug("Connection of pool " + name + " made to failover host " + host.breaker.getHost());
+                }
+                return handler;
+            } catch (SQLException e) {
+                host.breaker.recordFailure();
+                log.warn("Could not connect to " + host.breaker.getHost() + ": " + e.getMessage());
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        throw new CircuitOpenException("Connection pool " + name
+                + " is unavailable, the circuit breakers of all its hosts are open");
+    }
+
+    private DBHandler create(Host host) throws SQLException {
+        DBHandler handler;
+        try {
+            handler = (DBHandler) host.factory.makeObject();
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException("Error creating connection for pool " + name + ": " + e.getMessage(), e);
+        }
+        handler.setPool(this);
+        handler.setCircuitBreaker(host.breaker);
+        metrics.created.incrementAndGet();
+        try {
+            handler.setDialectProfile(probeDialect(handler));
+        } catch (SQLException e) {
+            destroy(handler);
+            throw e;
+        }
+        return handler;
+    }
+
+    private DialectProfile probeDialect(DBHandler handler) throws SQLException {
+        DialectProfile profile = dialectProfile;
+        if (profile == null) {
+            // concurrent first connections may probe more than once, they find the same profile
+            profile = DialectProfile.probe(handler.getJDBCConnection(), config.getProtocol());
+            dialectProfile = profile;
+            log.debug("Probed database of connection pool " + name + ": " + profile);
+        }
+        return profile;
+    }
+
+    private void destroy(DBHandler handler) {
+        try {
+            factory.destroyObject(handler);
+        } catch (Exception e) {
+            log.warn("Error closing connection of pool " + name + ": " + e.getMessage());
+        }
+        metrics.destroyed.incrementAndGet();
+    }
+
+    private boolean isExpired(DBHandler handler) {
+        long now = System.currentTimeMillis();
+        return (maxLifetime > 0 && now - handler.getCreatedTime() > maxLifetime)
+                || (minEvictionTime > 0 && now - handler.getLastReturnedTime() > minEvictionTime);
+    }
+
+    /**
+     * Evicts expired connections from the tail of the idle deque, where the least recently
+     * used connections are. Runs on the release path instead of a background thread.
+     */
+    private void evictIdle() {
+        DBHandler handler;
+        while ((handler = idleConnections.peekLast()) != null && isExpired(handler)) {
+            if (idleConnections.removeLastOccurrence(handler)) {
+                metrics.idle.decrementAndGet();
+                destroy(handler);
+            }
+        }
+    }
+
+    private static final class Host {
+        private final DBConnectionFactory factory;
+        private final CircuitBreaker breaker;
+
+        Host(String name, DBConnectionFactory factory, ConnectionConfiguration config) {
+            this.factory = factory;
+            this.breaker = new CircuitBreaker(name, config.getCircuitBreakerFailureThreshold(),
+                    config.getCircuitBreakerOpenDuration());
+        }
+    }
+}
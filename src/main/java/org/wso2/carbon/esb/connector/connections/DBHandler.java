@@ -18,10 +18,15 @@
 
 package org.wso2.carbon.esb.connector.connections;
 
-import java.sql.DriverManager;
+import java.sql.Driver;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.SQLSyntaxErrorException;
 import java.sql.SQLTimeoutException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
 
 import org.wso2.carbon.connector.core.connection.ConnectionConfig;
 import org.wso2.carbon.connector.core.connection.Connection;
@@ -35,7 +40,21 @@ public class DBHandler implements Connection {
     private Connection connection;
     private java.sql.Connection conn;
     private boolean transactionStarted = false;
+    // tables written by the open transaction, invalidated in the result cache once committed
+    private final Set<String> writtenTables = new HashSet<>();
     private ConnectionConfiguration config;
+    private StatementCache statementCache;
+
+    // pool the connection was borrowed from, null for connections created outside a pool
+    private DBConnectionPool pool;
+    // shared by the connections of a pool, probed on first use for a connection outside a pool
+    private DialectProfile dialectProfile;
+    // breaker of the host the connection was made to, null for connections created outside a pool
+    private CircuitBreaker circuitBreaker;
+    private final long createdTime = System.currentTimeMillis();
+    private volatile long lastReturnedTime = createdTime;
+    // last time the connection was known to be alive, by a successful query or validation
+    private volatile long lastUsedTime = createdTime;
 
     private static final Logger log = LoggerFactory.getLogger(DBHandler.class);
 
@@ -47,20 +66,21 @@ public class DBHandler implements Connection {
         try {
             config = connectionConfiguration;
             conn = getNewConnection(connectionConfiguration);
+            statementCache = new StatementCache(connectionConfiguration.getStatementCacheSize());
             log.debug("Connection created successfully: " + conn);
 
         } catch (SQLSyntaxErrorException e) {
             log.error("SQL syntax error: " + e.getMessage());
-            throw new SQLException("SQL syntax error: " + e.getMessage());
+            throw new SQLException("SQL syntax error: " + e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
         } catch (ClassNotFoundException e) {
             log.error("Class not found: " + e.getMessage());
             throw new SQLException("Class not found: " + e.getMessage());
         } catch (SQLTimeoutException e) {
             log.error("Query timeout: " + e.getMessage());
-            throw new SQLException("Query timeout: " + e.getMessage());
+            throw new SQLException("Query timeout: " + e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
         } catch (SQLException e) {
             log.error("SQL error: " + e.getMessage());
-            throw new SQLException("SQL error: " + e.getMessage());
+            throw new SQLException("SQL error: " + e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
         } catch (Exception e) {
             log.error("Error executing query: " + e.getMessage());
             throw new SQLException("Error executing query: " + e.getMessage());
@@ -69,16 +89,112 @@ public class DBHandler implements Connection {
 
     public static java.sql.Connection getNewConnection(ConnectionConfiguration config)
             throws SQLException, ClassNotFoundException, Exception {
-        java.sql.Connection connection = null;
+        Driver driver = DriverLoader.getDriver(config.getDriverClassName(), config.getDriverPath());
 
-        Class.forName(config.getDriverClassName());
-        log.debug("Loading database driver: " + config.getDriverClassName());
-        connection = DriverManager.getConnection(config.getUrl(), config.getUsername(),
-                config.getPassword());
+        Properties info = new Properties();
+        if (config.getUsername() != null) {
+            info.setProperty("user", config.getUsername());
+        }
+        if (config.getPassword() != null) {
+            info.setProperty("password", config.getPassword());
+        }
 
+        java.sql.Connection connection = driver.connect(config.getUrl(), info);
+        if (connection == null) {
+            // the driver returns null for URLs it does not handle
+            throw new SQLException("Driver " + config.getDriverClassName() + " does not accept the URL: "
+                    + config.getUrl(), "08001");
+        }
         return connection;
     }
 
+    /**
+     * Get a prepared statement for the given SQL from the statement cache of this
+     * connection. The statement must be handed back with {@link #releaseStatement}.
+     *
+     * @param sql  The SQL text
+     * @param kind How the statement should be prepared
+     * @return The prepared statement
+     */
+    public PreparedStatement prepareStatement(String sql, StatementCache.StatementKind kind) throws SQLException {
+        return statementCache.prepare(conn, sql, kind);
+    }
+
+    /**
+     * Release a statement obtained from {@link #prepareStatement}. Statements which are
+     * not kept in the cache are closed.
+     *
+     * @param ps The prepared statement
+     */
+    public void releaseStatement(PreparedStatement ps) {
+        statementCache.release(ps);
+    }
+
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    DBConnectionPool getPool() {
+        return pool;
+    }
+
+    void setPool(DBConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    void setDialectProfile(DialectProfile dialectProfile) {
+        this.dialectProfile = dialectProfile;
+    }
+
+    /**
+     * Returns the capabilities of the database. Connections of a pool share the profile the
+     * pool probed once, so this makes no metadata calls on the per-message path.
+     *
+     * @return The dialect profile
+     * @throws SQLException If the profile has to be probed and the metadata can not be read
+     */
+    public DialectProfile getDialectProfile() throws SQLException {
+        if (dialectProfile == null) {
+            dialectProfile = DialectProfile.probe(conn, config.getProtocol());
+        }
+        return dialectProfile;
+    }
+
+    long getCreatedTime() {
+        return createdTime;
+    }
+
+    long getLastReturnedTime() {
+        return lastReturnedTime;
+    }
+
+    void markReturned() {
+        lastReturnedTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Records that the connection was used successfully, so it is not validated again
+     * until it has been idle for the validation interval.
+     */
+    public void markUsed() {
+        lastUsedTime = System.currentTimeMillis();
+        if (circuitBreaker != null) {
+            circuitBreaker.recordSuccess();
+        }
+    }
+
+    public long getLastUsedTime() {
+        return lastUsedTime;
+    }
+
     // transaction handling take isolation level as argument
     public void startTransaction(String isolationLevel) throws SQLException {
         if (transactionStarted) {
@@ -88,24 +204,27 @@ public class DBHandler implements Connection {
 
         try {
             conn.setAutoCommit(false);
-            switch (isolationLevel) {
-                case "TRANSACTION_NONE":
-                    conn.setTransactionIsolation(java.sql.Connection.TRANSACTION_NONE);
-                    break;
-                case "TRANSACTION_READ_UNCOMMITTED":
-                    conn.setTransactionIsolation(java.sql.Connection.TRANSACTION_READ_UNCOMMITTED);
-                    break;
-                case "TRANSACTION_READ_COMMITTED":
-                    conn.setTransactionIsolation(java.sql.Connection.TRANSACTION_READ_COMMITTED);
-                    break;
-                case "TRANSACTION_REPEATABLE_READ":
-                    conn.setTransactionIsolation(java.sql.Connection.TRANSACTION_REPEATABLE_READ);
-                    break;
-                case "TRANSACTION_SERIALIZABLE":
-                    conn.setTransactionIsolation(java.sql.Connection.TRANSACTION_SERIALIZABLE);
-                    break;
-                default:
-                    throw new SQLException("Invalid isolation level: " + isolationLevel);
+            // without an isolation level the transaction keeps the isolation of the connection
+            if (isolationLevel != null) {
+                switch (isolationLevel) {
+                    case "TRANSACTION_NONE":
+                        conn.setTransactionIsolation(java.sql.Connection.TRANSACTION_NONE);
+                        break;
+                    case "TRANSACTION_READ_UNCOMMITTED":
+                        conn.setTransactionIsolation(java.sql.Connection.TRANSACTION_READ_UNCOMMITTED);
+                        break;
+                    case "TRANSACTION_READ_COMMITTED":
+                        conn.setTransactionIsolation(java.sql.Connection.TRANSACTION_READ_COMMITTED);
+                        break;
+                    case "TRANSACTION_REPEATABLE_READ":
+                        conn.setTransactionIsolation(java.sql.Connection.TRANSACTION_REPEATABLE_READ);
+                        break;
+                    case "TRANSACTION_SERIALIZABLE":
+                        conn.setTransactionIsolation(java.sql.Connection.TRANSACTION_SERIALIZABLE);
+                        break;
+                    default:
+                        throw new SQLException("Invalid isolation level: " + isolationLevel);
+                }
             }
 
             transactionStarted = true;
@@ -114,6 +233,7 @@ public class DBHandler implements Connection {
             log.error("Error starting transaction: " + e.getMessage());
             try {
                 conn.rollback();
+                conn.setAutoCommit(true);
             } catch (SQLException re) {
                 log.error("Error rolling back transaction: " + re.getMessage());
             }
@@ -137,8 +257,10 @@ public class DBHandler implements Connection {
             } catch (SQLException re) {
                 log.error("Error rolling back transaction: " + re.getMessage());
             }
-            throw new SQLException("Failed to commit transaction: " + e.getMessage());
+            throw new SQLException("Failed to commit transaction: " + e.getMessage(), e.getSQLState(),
+                    e.getErrorCode(), e);
         }
+        endTransaction();
     }
 
     public void rollbackTransaction() throws SQLException {
@@ -149,11 +271,28 @@ public class DBHandler implements Connection {
         try {
             conn.rollback();
             transactionStarted = false;
+            writtenTables.clear();
             log.debug("Transaction rolled back.");
         } catch (SQLException e) {
             log.error("Error rolling back transaction: " + e.getMessage());
             throw new SQLException("Failed to rollback transaction: " + e.getMessage());
         }
+        endTransaction();
+    }
+
+    /**
+     * Turns auto-commit back on after the transaction ended. The connection goes back to the
+     * pool afterwards, and the next message borrowing it must not run in an implicit
+     * transaction that a later commit or rollback of another message would end.
+     */
+    private void endTransaction() throws SQLException {
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            log.error("Error restoring auto-commit: " + e.getMessage());
+            throw new SQLException("Failed to restore auto-commit: " + e.getMessage(), e.getSQLState(),
+                    e.getErrorCode(), e);
+        }
     }
 
     public ConnectionConfiguration getConfig() {
@@ -164,22 +303,60 @@ public class DBHandler implements Connection {
         return connection;
     }
 
-    // validateConnection
+    /**
+     * Checks whether the connection is alive. A connection used within the validation
+     * interval is trusted without a round trip. Otherwise it is checked with the validation
+     * query if one is configured, or with {@link java.sql.Connection#isValid(int)}.
+     *
+     * @return true if the connection can be used
+     */
     public boolean validateConnection() {
+        if (isClosed()) {
+            log.debug("Connection is closed.");
+            return false;
+        }
+
+        long validationInterval = config.getValidationInterval();
+        if (validationInterval > 0 && System.currentTimeMillis() - lastUsedTime < validationInterval) {
+            return true;
+        }
+
         try {
-            if (conn != null && !conn.isClosed()) {
-                log.debug("Connection is valid.");
-                return true;
+            boolean valid;
+            if (config.getValidationQuery() == null) {
+                valid = conn.isValid(config.getValidationTimeout());
+            } else {
+                try (java.sql.Statement statement = conn.createStatement()) {
+                    statement.setQueryTimeout(config.getValidationTimeout());
+                    statement.execute(config.getValidationQuery());
+                    valid = true;
+                }
+            }
+
+            if (valid) {
+                markUsed();
             } else {
-                log.error("Connection is not valid.");
-                return false;
+                log.warn("Connection is not valid.");
             }
+            return valid;
         } catch (SQLException e) {
-            log.error("Error validating connection: " + e.getMessage());
+            log.warn("Error validating connection: " + e.getMessage());
             return false;
         }
     }
 
+    /**
+     * @return true if the JDBC connection is closed or could not be checked
+     */
+    public boolean isClosed() {
+        try {
+            return conn == null || conn.isClosed();
+        } catch (SQLException e) {
+            log.error("Error checking the connection state: " + e.getMessage());
+            return true;
+        }
+    }
+
     /**
      * Get the JDBC Connection object configured for the connection.
      * 
@@ -193,6 +370,31 @@ public class DBHandler implements Connection {
         return transactionStarted;
     }
 
+    /**
+     * Records the tables written by a statement of the open transaction. Results of these
+     * tables may be cached by other connections until the transaction commits, so they are
+     * invalidated again after the commit.
+     *
+     * @param tables The lower case table names
+     */
+    public void recordWrittenTables(Set<String> tables) {
+        if (transactionStarted) {
+            writtenTables.addAll(tables);
+        }
+    }
+
+    /**
+     * Returns and forgets the tables written by the committed transaction.
+     */
+    public Set<String> drainWrittenTables() {
+        if (writtenTables.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> tables = new HashSet<>(writtenTables);
+        writtenTables.clear();
+        return tables;
+    }
+
     @Override
     public void connect(ConnectionConfig config) {
         throw new UnsupportedOperationException("Connection is already established.");
@@ -211,6 +413,7 @@ public class DBHandler implements Connection {
                     transactionStarted = false;
                 }
 
+                statementCache.clear();
                 conn.close();
             }
         } catch (SQLException e) {
@@ -0,0 +1,181 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.connections;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Immutable capabilities of the database behind a connection pool. The database metadata is
+ * probed once, with the first connection the pool opens, so the per-message path reads the
+ * capabilities without any metadata calls.
+ * <p>
+ * A capability whose probe fails is assumed to be missing.
+ */
+public final class DialectProfile {
+
+    private static final Logger log = LoggerFactory.getLogger(DialectProfile.class);
+
+    /**
+     * The database dialect, from the connectionType of the connection or else from the
+     * database product name.
+     */
+    public enum Dialect {
+        MYSQL, POSTGRESQL, ORACLE, MSSQL, IBM_DB2, GENERIC;
+
+        static Dialect of(String connectionType, String productName) {
+            if (connectionType != null) {
+                try {
+                    return valueOf(connectionType.trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    // not a known connection type, use the product name
+                }
+            }
+            String product = productName == null ? "" : productName.toLowerCase(Locale.ROOT);
+            if (product.contains("mysql") || product.contains("mariadb")) {
+                return MYSQL;
+            } else if (product.contains("postgresql")) {
+                return POSTGRESQL;
+            } else if (product.contains("oracle")) {
+                return ORACLE;
+            } else if (product.contains("microsoft sql server")) {
+                return MSSQL;
+            } else if (product.contains("db2")) {
+                return IBM_DB2;
+            }
+            return GENERIC;
+        }
+    }
+
+    private final Dialect dialect;
+    private final String productName;
+    private final String productVersion;
+    private final String driverName;
+    private final boolean generatedKeys;
+    private final boolean batchUpdates;
+    private final String identifierQuote;
+
+    private DialectProfile(Dialect dialect, String productName, String productVersion, String driverName,
+            boolean generatedKeys, boolean batchUpdates, String identifierQuote) {
+        this.dialect = dialect;
+        this.productName = productName;
+        this.productVersion = productVersion;
+        this.driverName = driverName;
+        this.generatedKeys = generatedKeys;
+        this.batchUpdates = batchUpdates;
+        this.identifierQuote = identifierQuote;
+    }
+
+    /**
+     * Probes the capabilities of the database of a connection.
+     *
+     * @param conn           The JDBC connection
+     * @param connectionType The connectionType of the connection configuration, may be null
+     * @return The dialect profile
+     * @throws SQLException If the database metadata can not be read
+     */
+    public static DialectProfile probe(Connection conn, String connectionType) throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+
+        String productName = null;
+        String productVersion = null;
+        String driverName = null;
+        boolean generatedKeys = false;
+        boolean batchUpdates = false;
+        String identifierQuote = null;
+        try {
+            productName = metaData.getDatabaseProductName();
+            productVersion = metaData.getDatabaseProductVersion();
+            driverName = metaData.getDriverName();
+        } catch (SQLException e) {
+            log.debug("Could not read the database product: " + e.getMessage());
+        }
+        try {
+            generatedKeys = metaData.supportsGetGeneratedKeys();
+        } catch (SQLException e) {
+            log.debug("Could not probe generated keys support: " + e.getMessage());
+        }
+        try {
+            batchUpdates = metaData.supportsBatchUpdates();
+        } catch (SQLException e) {
+            log.debug("Could not probe batch update support: " + e.getMessage());
+        }
+        try {
+            identifierQuote = metaData.getIdentifierQuoteString();
+        } catch (SQLException e) {
+            log.debug("Could not read the identifier quote string: " + e.getMessage());
+        }
+        if (identifierQuote != null && identifierQuote.trim().isEmpty()) {
+            // a space means quoting identifiers is not supported
+            identifierQuote = null;
+        }
+
+        return new DialectProfile(Dialect.of(connectionType, productName), productName, productVersion, driverName,
+                generatedKeys, batchUpdates, identifierQuote);
+    }
+
+    public Dialect getDialect() {
+        return dialect;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public String getProductVersion() {
+        return productVersion;
+    }
+
+    public String getDriverName() {
+        return driverName;
+    }
+
+    /**
+     * @return whether the driver returns the keys generated by an insert
+     */
+    public boolean supportsGeneratedKeys() {
+        return generatedKeys;
+    }
+
+    /**
+     * @return whether the driver runs statement batches
+     */
+    public boolean supportsBatchUpdates() {
+        return batchUpdates;
+    }
+
+    /**
+     * @return the string quoting identifiers, or null if identifiers can not be quoted
+     */
+    public String getIdentifierQuote() {
+        return identifierQuote;
+    }
+
+    @Override
+    public String toString() {
+        return "dialect=" + dialect + ", product=" + productName + " " + productVersion + ", driver=" + driverName
+                + ", generatedKeys=" + generatedKeys + ", batchUpdates=" + batchUpdates
+                + ", identifierQuote=" + identifierQuote;
+    }
+}
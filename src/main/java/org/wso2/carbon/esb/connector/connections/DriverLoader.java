@@ -0,0 +1,151 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.connections;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.sql.Driver;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang.StringUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves and caches JDBC drivers. A driver is loaded once per driver class and driver
+ * path, and connections are opened directly through the driver instead of going through
+ * the synchronized driver lookup of {@link java.sql.DriverManager}.
+ * <p>
+ * When a driver path is given, the jar (or every jar in the directory) is loaded into an
+ * isolated class loader shared by all the drivers loaded from that path.
+ */
+public final class DriverLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(DriverLoader.class);
+
+    private static final Map<String, Driver> DRIVERS = new ConcurrentHashMap<>();
+    private static final Map<String, URLClassLoader> CLASS_LOADERS = new ConcurrentHashMap<>();
+
+    private DriverLoader() {
+
+    }
+
+    /**
+     * Returns the cached driver of the given class, loading it on first use.
+     *
+     * @param driverClassName The driver class, e.g. com.mysql.cj.jdbc.Driver
+     * @param driverPath      Path of the driver jar or of a directory of jars, or null to load the
+     *                        driver from the connector class path
+     * @return The driver instance
+     * @throws ClassNotFoundException if the driver class can not be found
+     * @throws SQLException           if the driver can not be instantiated or the path is invalid
+     */
+    public static Driver getDriver(String driverClassName, String driverPath)
+            throws ClassNotFoundException, SQLException {
+
+        String key = StringUtils.isEmpty(driverPath) ? driverClassName : driverClassName + "@" + driverPath;
+        Driver driver = DRIVERS.get(key);
+        if (driver != null) {
+            return driver;
+        }
+
+        synchronized (DRIVERS) {
+            driver = DRIVERS.get(key);
+            if (driver == null) {
+                driver = loadDriver(driverClassName, driverPath);
+                DRIVERS.put(key, driver);
+            }
+        }
+        return driver;
+    }
+
+    /**
+     * Releases all cached drivers and closes the class loaders created for driver paths.
+     */
+    public static void clear() {
+        synchronized (DRIVERS) {
+            DRIVERS.clear();
+            for (URLClassLoader classLoader : CLASS_LOADERS.values()) {
+                try {
+                    classLoader.close();
+                } catch (IOException e) {
+                    log.warn("Error closing driver class loader: " + e.getMessage());
+                }
+            }
+            CLASS_LOADERS.clear();
+        }
+    }
+
+    private static Driver loadDriver(String driverClassName, String driverPath)
+            throws ClassNotFoundException, SQLException {
+
+        ClassLoader classLoader = StringUtils.isEmpty(driverPath) ? DriverLoader.class.getClassLoader()
+                : getClassLoader(driverPath);
+        log.debug("Loading database driver: " + driverClassName);
+
+        Class<?> driverClass = Class.forName(driverClassName, true, classLoader);
+        if (!Driver.class.isAssignableFrom(driverClass)) {
+            throw new SQLException("Class " + driverClassName + " is not a JDBC driver");
+        }
+        try {
+            return (Driver) driverClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new SQLException("Error instantiating JDBC driver " + driverClassName + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static URLClassLoader getClassLoader(String driverPath) throws SQLException {
+        URLClassLoader classLoader = CLASS_LOADERS.get(driverPath);
+        if (classLoader != null) {
+            return classLoader;
+        }
+
+        File path = new File(driverPath);
+        List<URL> urls = new ArrayList<>();
+        try {
+            if (path.isDirectory()) {
+                File[] jars = path.listFiles((dir, name) -> name.endsWith(".jar"));
+                if (jars != null) {
+                    for (File jar : jars) {
+                        urls.add(jar.toURI().toURL());
+                    }
+                }
+            } else if (path.isFile()) {
+                urls.add(path.toURI().toURL());
+            }
+        } catch (MalformedURLException e) {
+            throw new SQLException("Invalid driver path: " + driverPath, e);
+        }
+        if (urls.isEmpty()) {
+            throw new SQLException("No driver jar found at driver path: " + driverPath);
+        }
+
+        classLoader = new URLClassLoader(urls.toArray(new URL[0]), DriverLoader.class.getClassLoader());
+        CLASS_LOADERS.put(driverPath, classLoader);
+        return classLoader;
+    }
+}
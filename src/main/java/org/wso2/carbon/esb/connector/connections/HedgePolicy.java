@@ -0,0 +1,171 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.connections;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedging policy of the reads of a connection pool with read replicas. A hedged read that has
+ * not completed within the configured percentile of the latencies of the hedged reads so far
+ * is issued again on a second replica, and the first result is used.
+ * <p>
+ * The extra load is bounded by a budget: every hedged read earns hedgeBudgetPercent hundredths
+ * of a hedge, and a hedge is only issued if a whole one was earned. Up to
+ * {@link #MAX_BURST} unspent hedges are kept for bursts. No read is hedged before
+ * {@link #MIN_SAMPLES} latencies are recorded, since the delay could not be told before.
+ * <p>
+ * Latencies are recorded per pool, so hedging fits best on selects of a similar cost.
+ */
+public class HedgePolicy {
+
+    public static final int MIN_SAMPLES = 100;
+    public static final int MAX_BURST = 10;
+
+    // the budget is counted in thousandths of a hedge
+    private static final long HEDGE_COST = 1000;
+
+    private final double percentile;
+    private final long budgetPerRead;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final AtomicLong budget = new AtomicLong();
+
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final ExecutorService executor;
+
+    /**
+     * @param name          The name of the connection pool, used to name the hedging threads
+     * @param percentile    The latency percentile after which a read is hedged, e.g. 95
+     * @param budgetPercent The hedges allowed per 100 hedged reads
+     */
+    public HedgePolicy(String name, double percentile, int budgetPercent) {
+        this.percentile = percentile;
+        this.budgetPerRead = budgetPercent * HEDGE_COST / 100;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, newThreadFactory("db-hedge-timer-" + name));
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        this.executor = Executors.newCachedThreadPool(newThreadFactory("db-hedge-" + name));
+    }
+
+    private static ThreadFactory newThreadFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * @return the time in microseconds after which a read is hedged, or -1 if too few reads
+     *         were recorded to tell
+     */
+    public long getHedgeDelay() {
+        if (latencies.getCount() < MIN_SAMPLES) {
+            return -1;
+        }
+        return latencies.getPercentile(percentile);
+    }
+
+    /**
+     * Records the latency of a completed hedged read and adds its share to the budget.
+     */
+    public void recordRead(long nanos) {
+        latencies.record(nanos);
+        budget.getAndUpdate(tokens -> Math.min(MAX_BURST * HEDGE_COST, tokens + budgetPerRead));
+    }
+
+    /**
+     * Takes one hedge from the budget.
+     *
+     * @return true if the budget allowed the hedge
+     */
+    public boolean tryAcquireHedge() {
+        long tokens;
+        do {
+            tokens = budget.get();
+            if (tokens < HEDGE_COST) {
+                return false;
+            }
+        } while (!budget.compareAndSet(tokens, tokens - HEDGE_COST));
+        hedges.incrementAndGet();
+        return true;
+    }
+
+    public void recordHedgeWin() {
+        hedgeWins.incrementAndGet();
+    }
+
+    /**
+     * Runs the hedge of a read on a hedging thread once the delay has passed.
+     *
+     * @param hedge       The hedge
+     * @param delayMicros The hedge delay in microseconds
+     * @return The scheduled hedge, to be cancelled when the read completes first, or null if the
+     *         policy is shut down
+     */
+    public ScheduledFuture<?> schedule(Runnable hedge, long delayMicros) {
+        try {
+            return scheduler.schedule(() -> {
+                try {
+                    executor.execute(hedge);
+                } catch (RejectedExecutionException e) {
+                    // shut down with the pool
+                }
+            }, delayMicros, TimeUnit.MICROSECONDS);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        executor.shutdown();
+    }
+
+    public long getReadCount() {
+        return latencies.getCount();
+    }
+
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    /**
+     * @return the number of hedges whose result arrived before the one of the first replica
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.get();
+    }
+
+    @Override
+    public String toString() {
+        return "reads=" + latencies.getCount() + ", hedges=" + hedges.get() + ", hedgeWins=" + hedgeWins.get()
+                + ", hedgeDelay=" + getHedgeDelay() + "us";
+    }
+}
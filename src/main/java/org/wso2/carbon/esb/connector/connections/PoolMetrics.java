@@ -0,0 +1,122 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.connections;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and borrow wait-time distribution of a {@link DBConnectionPool}. All values
+ * are updated without locking and can be read from any thread.
+ * <p>
+ * Wait times are recorded in a {@link LatencyHistogram}, so a percentile is reported as
+ * the upper bound of the power-of-two microsecond bucket it falls in.
+ */
+public class PoolMetrics {
+
+    final AtomicInteger active = new AtomicInteger();
+    final AtomicInteger idle = new AtomicInteger();
+    final AtomicInteger pending = new AtomicInteger();
+    final AtomicLong created = new AtomicLong();
+    final AtomicLong destroyed = new AtomicLong();
+    final AtomicLong borrowed = new AtomicLong();
+    final AtomicLong timeouts = new AtomicLong();
+    // borrows refused at once because the circuit breakers of all hosts were open
+    final AtomicLong rejections = new AtomicLong();
+    // statements run again after a transient failure, that succeeded after a retry, and that
+    // failed after the last retry allowed
+    final AtomicLong retries = new AtomicLong();
+    final AtomicLong retryRecoveries = new AtomicLong();
+    final AtomicLong retriesExhausted = new AtomicLong();
+
+    private final LatencyHistogram waits = new LatencyHistogram();
+
+    void recordWait(long waitNanos) {
+        waits.record(waitNanos);
+    }
+
+    /**
+     * Returns the borrow wait time below which the given share of all borrows completed.
+     *
+     * @param percentile The percentile, between 0 and 100, e.g. 99
+     * @return The wait time in microseconds, or 0 if nothing was borrowed yet
+     */
+    public long getWaitTimePercentile(double percentile) {
+        return waits.getPercentile(percentile);
+    }
+
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public int getIdleCount() {
+        return idle.get();
+    }
+
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    public long getDestroyedCount() {
+        return destroyed.get();
+    }
+
+    public long getBorrowCount() {
+        return borrowed.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    public long getRejectionCount() {
+        return rejections.get();
+    }
+
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    public long getRetryRecoveryCount() {
+        return retryRecoveries.get();
+    }
+
+    public long getRetriesExhaustedCount() {
+        return retriesExhausted.get();
+    }
+
+    public long getMaxWaitTime() {
+        return waits.getMax();
+    }
+
+    @Override
+    public String toString() {
+        return "active=" + active.get() + ", idle=" + idle.get() + ", pending=" + pending.get()
+                + ", created=" + created.get() + ", destroyed=" + destroyed.get()
+                + ", borrowed=" + borrowed.get() + ", timeouts=" + timeouts.get() + ", rejections=" + rejections.get()
+                + ", retries=" + retries.get() + ", retryRecoveries=" + retryRecoveries.get()
+                + ", retriesExhausted=" + retriesExhausted.get()
+                + ", waitP50=" + getWaitTimePercentile(50) + "us, waitP99=" + getWaitTimePercentile(99)
+                + "us, waitMax=" + waits.getMax() + "us";
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.connections;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of serialized select results of a connection pool, so that repeated lookups with
+ * the same statement and parameter values are answered without borrowing a connection.
+ * <p>
+ * Entries expire after the time to live given when they are stored, and the cache is
+ * bounded by the number of entries and by the total payload bytes, evicting the least
+ * recently used entries first. An entry is dropped as soon as a statement run through the
+ * same pool writes one of the tables it was read from.
+ * <p>
+ * Every invalidation moves the cache to a new generation. A result is only stored if no
+ * invalidation happened since its query was started, so a result read before a concurrent
+ * write is never cached after it.
+ */
+public class ResultCache {
+
+    /**
+     * Table name matching every table, for writes whose tables are not known.
+     */
+    public static final String ALL_TABLES = "*";
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Map<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * @param maxEntries Maximum number of cached results
+     * @param maxBytes   Maximum total size of the cached payloads, 0 or less for no limit
+     */
+    public ResultCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cached payload of the key if it has not expired.
+     *
+     * @param key The statement key
+     * @return The serialized result, or null on a miss
+     */
+    public synchronized byte[] get(Object key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt - System.nanoTime() <= 0) {
+            remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.payload;
+    }
+
+    /**
+     * @return the current generation, taken before the query of a result to be cached is run
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Stores a result unless the cache was invalidated after the given generation, or the
+     * payload does not fit into the cache.
+     *
+     * @param key        The statement key
+     * @param payload    The serialized result
+     * @param tables     The lower case names of the tables the result was read from
+     * @param ttlMillis  The time to live of the entry in milliseconds
+     * @param generation The generation taken before the query was run
+     * @return true if the result was stored
+     */
+    public synchronized boolean put(Object key, byte[] payload, Set<String> tables, long ttlMillis,
+            long generation) {
+        if (generation != this.generation || ttlMillis <= 0 || (maxBytes > 0 && payload.length > maxBytes)) {
+            return false;
+        }
+        remove(key);
+        entries.put(key, new Entry(payload, tables, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis)));
+        bytes += payload.length;
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries || (maxBytes > 0 && bytes > maxBytes)) {
+            bytes -= eldest.next().payload.length;
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * Drops every entry read from one of the given tables.
+     *
+     * @param tables The lower case names of the written tables, {@link #ALL_TABLES} drops every entry
+     */
+    public synchronized void invalidate(Set<String> tables) {
+        if (tables.isEmpty()) {
+            return;
+        }
+        generation++;
+        if (tables.contains(ALL_TABLES)) {
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+            bytes = 0;
+            return;
+        }
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (!Collections.disjoint(entry.tables, tables)) {
+                bytes -= entry.payload.length;
+                iterator.remove();
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getByteSize() {
+        return bytes;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return the share of lookups answered from the cache, between 0 and 1
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    private void remove(Object key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            bytes -= entry.payload.length;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "entries=" + size() + ", bytes=" + getByteSize() + ", hits=" + hits.get()
+                + ", misses=" + misses.get() + ", hitRate=" + String.format("%.3f", getHitRate())
+                + ", evictions=" + evictions.get() + ", invalidations=" + invalidations.get();
+    }
+
+    private static final class Entry {
+        private final byte[] payload;
+        private final Set<String> tables;
+        private final long expiresAt;
+
+        Entry(byte[] payload, Set<String> tables, long expiresAt) {
+            this.payload = payload;
+            this.tables = tables;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.connections;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retry policy of the statements of a connection pool that run outside a transaction. A
+ * statement failing transiently is retried up to maxFailureRetryCount times. The delay
+ * before a retry doubles from retryBackoff up to retryMaxBackoff, of which a random part of
+ * up to a half is left out so that failed statements do not retry in step. No retry starts
+ * once it would end after retryDeadline, counted from the first attempt.
+ * <p>
+ * Failures are told apart by SQLState where the driver sets one: class 08 is a connection
+ * failure, 40001 a serialization failure and 40P01 a deadlock. Drivers without these states
+ * are classified by the SQLException subclass. Timeouts of the statement itself are not
+ * retried.
+ */
+public class RetryPolicy {
+
+    private static final String CONNECTION_EXCEPTION_CLASS = "08";
+    private static final String SERIALIZATION_FAILURE = "40001";
+    private static final String DEADLOCK_DETECTED = "40P01";
+
+    private final int maxRetries;
+    private final long backoff;
+    private final long maxBackoff;
+    private final long deadlineNanos;
+    private final PoolMetrics metrics;
+
+    /**
+     * @param maxRetries The number of retries after the first attempt
+     * @param backoff    The delay before the first retry in milliseconds
+     * @param maxBackoff The longest delay before a retry in milliseconds
+     * @param deadline   The time in milliseconds from the first attempt after which no retry ends
+     * @param metrics    The metrics of the pool the retries are counted in
+     */
+    public RetryPolicy(int maxRetries, long backoff, long maxBackoff, long deadline, PoolMetrics metrics) {
+        this.maxRetries = maxRetries;
+        this.backoff = Math.max(1, backoff);
+        this.maxBackoff = Math.max(this.backoff, maxBackoff);
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadline);
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return true if the statement failed transiently and may succeed if run again
+     */
+    public static boolean isTransient(SQLException e) {
+        if (e instanceof SQLTimeoutException) {
+            return false;
+        }
+        return isConnectionFailure(e) || isSerializationFailure(e) || e instanceof SQLTransientException
+                || e instanceof SQLRecoverableException;
+    }
+
+    /**
+     * @return true if the connection failed, so the statement has to run on another connection
+     */
+    public static boolean isConnectionFailure(SQLException e) {
+        String sqlState = getSQLState(e);
+        if (sqlState != null && sqlState.startsWith(CONNECTION_EXCEPTION_CLASS)) {
+            return true;
+        }
+        return e instanceof SQLNonTransientConnectionException || e instanceof SQLRecoverableException
+                || e instanceof SQLTransientConnectionException;
+    }
+
+    /**
+     * @return true if the transaction of the statement was rolled back by a serialization
+     *         failure or a deadlock, so the statement had no effect
+     */
+    public static boolean isSerializationFailure(SQLException e) {
+        String sqlState = getSQLState(e);
+        if (sqlState != null) {
+            return SERIALIZATION_FAILURE.equals(sqlState) || DEADLOCK_DETECTED.equals(sqlState);
+        }
+        return e instanceof SQLTransactionRollbackException;
+    }
+
+    /**
+     * Returns the SQLState of the exception, or of the first SQLException it was caused by
+     * if it has none.
+     */
+    private static String getSQLState(SQLException e) {
+        Throwable cause = e;
+        while (cause != null) {
+            if (cause instanceof SQLException && ((SQLException) cause).getSQLState() != null) {
+                return ((SQLException) cause).getSQLState();
+            }
+            cause = cause.getCause() == cause ? null : cause.getCause();
+        }
+        return null;
+    }
+
+    /**
+     * Waits before the next retry of a failed statement.
+     *
+     * @param retry      The number of the retry, starting at 1
+     * @param startNanos The {@link System#nanoTime()} of the first attempt
+     * @return true once the delay has passed, or false if the statement is not retried again
+     */
+    public boolean awaitRetry(int retry, long startNanos) {
+        if (retry > maxRetries) {
+            metrics.retriesExhausted.incrementAndGet();
+            return false;
+        }
+        long delay = backoff << Math.min(retry - 1, 30);
+        if (delay <= 0 || delay > maxBackoff) {
+            delay = maxBackoff;
+        }
+        delay -= ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        if (System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(delay) > deadlineNanos) {
+            metrics.retriesExhausted.incrementAndGet();
+            return false;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        metrics.retries.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Counts a statement that succeeded after it was retried.
+     */
+    public void recordRecovery() {
+        metrics.retryRecoveries.incrementAndGet();
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    @Override
+    public String toString() {
+        return "maxRetries=" + maxRetries + ", backoff=" + backoff + "ms, maxBackoff=" + maxBackoff
+                + "ms, deadline=" + TimeUnit.NANOSECONDS.toMillis(deadlineNanos) + "ms";
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.connections;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces identical selects that run at the same time on a connection pool. The first
+ * select of a key leads a flight and runs the query, selects of the same key arriving while
+ * it runs wait for its serialized result instead of borrowing a connection of their own.
+ * <p>
+ * A flight ends as soon as the leader completes it, so a result is only shared with selects
+ * that arrived while it was read and is never served later. If the leader fails, or its
+ * result can not be shared, the waiting selects run the query themselves.
+ */
+public class SingleFlight {
+
+    private final ConcurrentHashMap<Object, CompletableFuture<byte[]>> flights = new ConcurrentHashMap<>();
+
+    private final AtomicLong leaders = new AtomicLong();
+    private final AtomicLong followers = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    /**
+     * Joins the flight of the key, or starts one.
+     *
+     * @param key The statement key
+     * @return The result of the flight in progress, or null if the caller leads a new flight
+     *         and has to {@link #complete} it
+     */
+    public CompletableFuture<byte[]> join(Object key) {
+        CompletableFuture<byte[]> flight = new CompletableFuture<>();
+        CompletableFuture<byte[]> current = flights.putIfAbsent(key, flight);
+        if (current == null) {
+            leaders.incrementAndGet();
+            return null;
+        }
+        followers.incrementAndGet();
+        return current;
+    }
+
+    /**
+     * Waits for the result of a joined flight.
+     *
+     * @return The serialized result, or null if the caller has to run the query itself
+     */
+    public byte[] await(CompletableFuture<byte[]> flight) {
+        byte[] result = null;
+        try {
+            result = flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // the leader completes its flight with null on failure, so this is not expected
+        }
+        if (result == null) {
+            fallbacks.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * Ends the flight led by the caller and hands the result to the selects waiting for it.
+     *
+     * @param key    The statement key
+     * @param result The serialized result, or null if the waiting selects have to run the query
+     */
+    public void complete(Object key, byte[] result) {
+        CompletableFuture<byte[]> flight = flights.remove(key);
+        if (flight != null) {
+            flight.complete(result);
+        }
+    }
+
+    public int getInFlightCount() {
+        return flights.size();
+    }
+
+    public long getLeaderCount() {
+        return leaders.get();
+    }
+
+    /**
+     * @return the number of selects that joined a flight instead of running the query
+     */
+    public long getFollowerCount() {
+        return followers.get();
+    }
+
+    /**
+     * @return the number of joined selects that had to run the query after all
+     */
+    public long getFallbackCount() {
+        return fallbacks.get();
+    }
+
+    @Override
+    public String toString() {
+        return "inFlight=" + flights.size() + ", leaders=" + leaders.get() + ", followers=" + followers.get()
+                + ", fallbacks=" + fallbacks.get();
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.connections;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded LRU cache of prepared and callable statements of a single JDBC connection.
+ * A connection is used by one mediation thread at a time, so the cache itself is not
+ * synchronized. Only the counters are safe to be read from other threads.
+ * <p>
+ * A statement is in use from {@link #prepare} until {@link #release}. A statement in use is
+ * never evicted, and a second prepare of the same SQL while it is in use, such as a chunk
+ * sequence of an iterate running the query being iterated, gets a new statement which is
+ * not cached. The cache may grow past its size while its eldest statements are in use.
+ */
+public class StatementCache {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementCache.class);
+
+    /**
+     * The way a statement is prepared on the connection.
+     */
+    public enum StatementKind {
+        PLAIN, GENERATED_KEYS, CALL
+    }
+
+    private final int maxSize;
+    // in access order, the least recently used first
+    private final LinkedHashMap<Key, Entry> statements = new LinkedHashMap<>(16, 0.75f, true);
+    // the cached statements in use, by identity
+    private final Map<PreparedStatement, Entry> inUse = new IdentityHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public StatementCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns a cached statement for the given SQL or prepares a new one. A reused
+     * statement has its parameters cleared and its options reset to the driver defaults.
+     * If the cached statement is in use, a new statement is prepared which is closed on
+     * release.
+     *
+     * @param conn The connection the statement belongs to.
+     * @param sql  The SQL text.
+     * @param kind How the statement should be prepared.
+     * @return The prepared statement.
+     * @throws SQLException If the statement could not be prepared.
+     */
+    public PreparedStatement prepare(Connection conn, String sql, StatementKind kind) throws SQLException {
+        if (maxSize <= 0) {
+            return create(conn, sql, kind);
+        }
+
+        Key key = new Key(sql, kind, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        Entry entry = statements.get(key);
+        if (entry != null && entry.inUse) {
+            misses.incrementAndGet();
+            return create(conn, sql, kind);
+        }
+        if (entry != null && !entry.statement.isClosed()) {
+            hits.incrementAndGet();
+            PreparedStatement ps = entry.statement;
+            ps.clearParameters();
+            ps.setQueryTimeout(0);
+            ps.setFetchSize(0);
+            ps.setMaxRows(0);
+            markInUse(entry);
+            return ps;
+        }
+
+        misses.incrementAndGet();
+        entry = new Entry(create(conn, sql, kind));
+        statements.put(key, entry);
+        markInUse(entry);
+        evict();
+        return entry.statement;
+    }
+
+    private void markInUse(Entry entry) {
+        entry.inUse = true;
+        inUse.put(entry.statement, entry);
+    }
+
+    /**
+     * Closes the least recently used statements which are not in use, until the cache is
+     * back at its size.
+     */
+    private void evict() {
+        Iterator<Entry> eldest = statements.values().iterator();
+        while (statements.size() > maxSize && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            if (!entry.inUse) {
+                eldest.remove();
+                entry.cached = false;
+                evictions.incrementAndGet();
+                closeQuietly(entry.statement);
+            }
+        }
+    }
+
+    /**
+     * Releases a statement obtained from {@link #prepare}. Cached statements are kept
+     * open for reuse, any other statement is closed.
+     *
+     * @param ps The statement to release.
+     */
+    public void release(PreparedStatement ps) {
+        if (ps == null) {
+            return;
+        }
+        Entry entry = inUse.remove(ps);
+        if (entry == null || !entry.cached) {
+            closeQuietly(ps);
+            return;
+        }
+        entry.inUse = false;
+        if (statements.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Closes all cached statements.
+     */
+    public void clear() {
+        List<Entry> cached = new ArrayList<>(statements.values());
+        statements.clear();
+        inUse.clear();
+        for (Entry entry : cached) {
+            entry.cached = false;
+            closeQuietly(entry.statement);
+        }
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private PreparedStatement create(Connection conn, String sql, StatementKind kind) throws SQLException {
+        switch (kind) {
+            case CALL:
+                return conn.prepareCall(sql);
+            case GENERATED_KEYS:
+                return conn.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS);
+            default:
+                return conn.prepareStatement(sql);
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            log.warn("Error closing prepared statement: " + e.getMessage());
+        }
+    }
+
+    private static final class Entry {
+        private final PreparedStatement statement;
+        private boolean inUse;
+        // false once evicted or cleared, the statement is then closed on release
+        private boolean cached = true;
+
+        Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    private static final class Key {
+        private final String sql;
+        private final StatementKind kind;
+        private final int resultSetType;
+        private final int resultSetConcurrency;
+        private final int hash;
+
+        Key(String sql, StatementKind kind, int resultSetType, int resultSetConcurrency) {
+            this.sql = sql;
+            this.kind = kind;
+            this.resultSetType = resultSetType;
+            this.resultSetConcurrency = resultSetConcurrency;
+            this.hash = Objects.hash(sql, kind, resultSetType, resultSetConcurrency);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return resultSetType == that.resultSetType && resultSetConcurrency == that.resultSetConcurrency
+                    && kind == that.kind && sql.equals(that.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -21,7 +21,8 @@ package org.wso2.carbon.esb.connector.deploy;
 import org.apache.synapse.config.AbstractSynapseObserver;
 import org.apache.synapse.config.SynapseConfiguration;
 import org.apache.synapse.libraries.model.Library;
-import org.wso2.carbon.connector.core.connection.ConnectionHandler;
+import org.wso2.carbon.esb.connector.connections.DBConnectionPool;
+import org.wso2.carbon.esb.connector.connections.DriverLoader;
 import org.wso2.carbon.esb.connector.utils.Constants;
 
 /**
@@ -48,7 +49,8 @@ public class ConnectorUndeployObserver extends AbstractSynapseObserver {
             if (log.isDebugEnabled()) {
                 log.debug("Database Connector is being un deployed. Closing all db connections created.");
             }
-            ConnectionHandler.getConnectionHandler().shutdownConnections(Constants.CONNECTOR_NAME);
+            DBConnectionPool.shutdownPools();
+            DriverLoader.clear();
             synapseConfiguration.unregisterObserver(this);
         }
     }
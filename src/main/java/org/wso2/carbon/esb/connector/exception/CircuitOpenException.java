@@ -0,0 +1,39 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.exception;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Exception thrown when no connection is attempted because the circuit breakers of all the
+ * hosts of a connection are open. It is raised for every message while the database is
+ * down, so it carries no stack trace.
+ */
+public class CircuitOpenException extends SQLTransientConnectionException {
+
+    public CircuitOpenException(String message) {
+
+        super(message, "08001");
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
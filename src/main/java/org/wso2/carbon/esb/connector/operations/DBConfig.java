@@ -25,7 +25,6 @@ import org.apache.synapse.core.SynapseEnvironment;
 
 import org.wso2.carbon.connector.core.AbstractConnector;
 import org.wso2.carbon.connector.core.ConnectException;
-import org.wso2.carbon.connector.core.connection.ConnectionHandler;
 import org.wso2.carbon.connector.core.util.ConnectorUtils;
 import org.wso2.carbon.esb.connector.deploy.ConnectorUndeployObserver;
 import org.wso2.carbon.esb.connector.exception.InvalidConfigurationException;
@@ -33,7 +32,7 @@ import org.wso2.carbon.esb.connector.pojo.ConnectionConfiguration;
 import org.wso2.carbon.esb.connector.utils.Constants;
 import org.wso2.carbon.esb.connector.utils.Utils;
 import org.wso2.carbon.esb.connector.utils.Error;
-import org.wso2.carbon.esb.connector.connections.DBConnectionFactory;
+import org.wso2.carbon.esb.connector.connections.DBConnectionPool;
 import org.wso2.carbon.esb.connector.connections.DBHandler;
 
 import org.slf4j.Logger;
@@ -62,7 +61,6 @@ public class DBConfig extends AbstractConnector implements ManagedLifecycle {
         String tenantSpecificConnectionName = Utils.getTenantSpecificConnectionName(connectionName, messageContext);
 
         try {
-            ConnectionHandler handler = ConnectionHandler.getConnectionHandler();
             ConnectionConfiguration configuration = getConnectionConfigFromContext(messageContext);
 
             // check if there is a connection in the message context
@@ -72,13 +70,9 @@ public class DBConfig extends AbstractConnector implements ManagedLifecycle {
                 return;
             }
 
-            try {
-                handler.createConnection(Constants.CONNECTOR_NAME, tenantSpecificConnectionName,
-                        new DBConnectionFactory(configuration), configuration.getConfiguration(), messageContext);
-            } catch (NoSuchMethodError e) {
-                handler.createConnection(Constants.CONNECTOR_NAME, tenantSpecificConnectionName,
-                        new DBConnectionFactory(configuration), configuration.getConfiguration());
-            }
+            DBConnectionPool pool = DBConnectionPool.createPool(tenantSpecificConnectionName, configuration);
+            // only the first caller warms the pool up, the others wait for it on borrow
+            pool.warmUp();
 
             log.debug("Connection created: " + tenantSpecificConnectionName);
 
@@ -99,6 +93,30 @@ public class DBConfig extends AbstractConnector implements ManagedLifecycle {
         connectionConfig.setDriverPath((String) getParameter(msgContext, Constants.DRIVER_PATH));
         connectionConfig.setProtocol((String) getParameter(msgContext, Constants.PROTOCOL));
         connectionConfig.setMaxFailureRetryCount((String) getParameter(msgContext, Constants.MAX_FAILURE_RETRY_COUNT));
+        connectionConfig.setStatementCacheSize((String) getParameter(msgContext, Constants.STATEMENT_CACHE_SIZE));
+        connectionConfig.setValidationQuery((String) getParameter(msgContext, Constants.VALIDATION_QUERY));
+        connectionConfig.setValidationInterval((String) getParameter(msgContext, Constants.VALIDATION_INTERVAL));
+        connectionConfig.setValidationTimeout((String) getParameter(msgContext, Constants.VALIDATION_TIMEOUT));
+        connectionConfig.setWarmUpConnections((String) getParameter(msgContext, Constants.WARM_UP_CONNECTIONS));
+        connectionConfig.setWarmUpQueries((String) getParameter(msgContext, Constants.WARM_UP_QUERIES));
+        connectionConfig.setWarmUpIterations((String) getParameter(msgContext, Constants.WARM_UP_ITERATIONS));
+        connectionConfig.setResultSpillThreshold((String) getParameter(msgContext, Constants.RESULT_SPILL_THRESHOLD));
+        connectionConfig.setResultSpillCompression(
+                (String) getParameter(msgContext, Constants.RESULT_SPILL_COMPRESSION));
+        connectionConfig.setResultCacheMaxEntries(
+                (String) getParameter(msgContext, Constants.RESULT_CACHE_MAX_ENTRIES));
+        connectionConfig.setResultCacheMaxBytes((String) getParameter(msgContext, Constants.RESULT_CACHE_MAX_BYTES));
+        connectionConfig.setReadReplicaUrls((String) getParameter(msgContext, Constants.READ_REPLICA_URLS));
+        connectionConfig.setHedgeDelayPercentile((String) getParameter(msgContext, Constants.HEDGE_DELAY_PERCENTILE));
+        connectionConfig.setHedgeBudgetPercent((String) getParameter(msgContext, Constants.HEDGE_BUDGET_PERCENT));
+        connectionConfig.setFailoverUrls((String) getParameter(msgContext, Constants.FAILOVER_URLS));
+        connectionConfig.setCircuitBreakerFailureThreshold(
+                (String) getParameter(msgContext, Constants.CIRCUIT_BREAKER_FAILURE_THRESHOLD));
+        connectionConfig.setCircuitBreakerOpenDuration(
+                (String) getParameter(msgContext, Constants.CIRCUIT_BREAKER_OPEN_DURATION));
+        connectionConfig.setRetryBackoff((String) getParameter(msgContext, Constants.RETRY_BACKOFF));
+        connectionConfig.setRetryMaxBackoff((String) getParameter(msgContext, Constants.RETRY_MAX_BACKOFF));
+        connectionConfig.setRetryDeadline((String) getParameter(msgContext, Constants.RETRY_DEADLINE));
 
         if (msgContext.getProperty(Constants.POOL_CONNECTION_AGED_TIMEOUT) != null) {
             try {
@@ -18,28 +18,40 @@
 
 package org.wso2.carbon.esb.connector.operations;
 
-import java.lang.reflect.InvocationTargetException;
-import java.math.BigDecimal;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.BatchUpdateException;
+import java.sql.CallableStatement;
 import java.sql.Connection;
-import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLSyntaxErrorException;
 import java.sql.SQLTimeoutException;
-import java.sql.Time;
-import java.sql.Timestamp;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.synapse.Mediator;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.util.InlineExpressionUtil;
+import org.apache.synapse.util.MessageHelper;
 import org.apache.synapse.util.xpath.SynapseExpression;
 import org.jaxen.JaxenException;
 import org.json.JSONArray;
@@ -48,13 +60,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wso2.carbon.connector.core.AbstractConnector;
 import org.wso2.carbon.connector.core.ConnectException;
-import org.wso2.carbon.connector.core.connection.ConnectionHandler;
 import org.wso2.carbon.connector.core.util.ConnectorUtils;
+import org.wso2.carbon.esb.connector.connections.DBConnectionPool;
 import org.wso2.carbon.esb.connector.connections.DBHandler;
+import org.wso2.carbon.esb.connector.connections.DialectProfile;
+import org.wso2.carbon.esb.connector.connections.HedgePolicy;
+import org.wso2.carbon.esb.connector.connections.ResultCache;
+import org.wso2.carbon.esb.connector.connections.RetryPolicy;
+import org.wso2.carbon.esb.connector.connections.StatementCache;
 import org.wso2.carbon.esb.connector.exception.InvalidConfigurationException;
 import org.wso2.carbon.esb.connector.pojo.ConnectionConfiguration;
+import org.wso2.carbon.esb.connector.utils.ColumnReader;
 import org.wso2.carbon.esb.connector.utils.Constants;
 import org.wso2.carbon.esb.connector.utils.Error;
+import org.wso2.carbon.esb.connector.utils.ParameterBinder;
+import org.wso2.carbon.esb.connector.utils.PayloadOutputStream;
 import org.wso2.carbon.esb.connector.utils.ResultSetMapper;
 import org.wso2.carbon.esb.connector.utils.Statement;
 import org.wso2.carbon.esb.connector.utils.Utils;
@@ -76,14 +96,13 @@ public class ExecuteQuery extends AbstractConnector {
     // execute query specific
     private String parameters = "";
 
-    private boolean isNewTransaction = false; // if a new transaction is started
-    private boolean isNewConnection = false; // if a new connection is created
-    private boolean isOngoingTransaction = false; // if a transaction is already in progress
-
     private String responseVariable = null;
     private boolean overwriteBody = false;
 
+    private static final int MAX_CACHED_DESCRIPTORS = 64;
+
     private final Map<String, SynapseExpression> inlineExpressionCache = new ConcurrentHashMap<>();
+    private final Map<List<String>, OperationDescriptor> descriptorCache = new ConcurrentHashMap<>();
 
     public String getOperation() {
         return operation;
@@ -177,59 +196,64 @@ public class ExecuteQuery extends AbstractConnector {
     public void connect(MessageContext messageContext) throws ConnectException {
 
         String query = (String) getParameter(messageContext, Constants.QUERY);
-        String preparedStmt = (String) getParameter(messageContext, Constants.PREPARED_STMT);
-        String columnTypes = (String) getParameter(messageContext, Constants.COLUMN_TYPES);
-        String columnNames = (String) getParameter(messageContext, Constants.COLUMN_NAMES);
-
-        String includeResultTo = (String) getParameter(messageContext, Constants.INCLUDE_RESULT_TO);
-        String resultPropertyName = (String) getParameter(messageContext, Constants.RESULT_PROPERTY_NAME);
-
-        String queryTimeout = (String) getParameter(messageContext, Constants.QUERY_TIMEOUT);
-        String fetchSize = (String) getParameter(messageContext, Constants.FETCH_SIZE);
-        String maxRows = (String) getParameter(messageContext, Constants.MAX_ROWS);
         String transactionIsolation = (String) getParameter(messageContext, Constants.TRANSACTION_ISOLATION);
 
-        String queryType = (String) getParameter(messageContext, Constants.QUERY_TYPE);
-        String queryData = (String) getParameter(messageContext, Constants.QUERY_DATA);
-
-        // select specific
-        String limit = (String) getParameter(messageContext, Constants.LIMIT);
-        String offset = (String) getParameter(messageContext, Constants.OFFSET);
-
-        // execute query specific
-        String parameters = (String) getParameter(messageContext, Constants.PARAMETERS);
-        String isPreparedStatement = (String) getParameter(messageContext, Constants.IS_PREPARED_STATEMENT);
-        String isResultSet = (String) getParameter(messageContext, Constants.IS_RESULT_SET);
-
         String responseVariable = (String) getParameter(messageContext, Constants.RESPONSE_VARIABLE);
         Boolean overwriteBody = Boolean.parseBoolean((String) getParameter(messageContext, Constants.OVERWRITE_BODY));
 
         Connection conn = null;
         DBHandler dbHandlerConnection = null;
-        ConnectionHandler handler = ConnectionHandler.getConnectionHandler();
         String connectionName = Utils.getConnectionName(messageContext);
+        DBConnectionPool pool = DBConnectionPool.getPool(connectionName);
+        ExecutionContext context = new ExecutionContext(connectionName);
 
-        boolean isSelect = false;
         boolean querySuccess = false;
+        // the connection failed and is destroyed instead of going back to the pool
+        boolean connectionFailed = false;
 
         JsonObject resultJSON = new JsonObject();
+        PayloadOutputStream streamedPayload = null;
+        String resultFormat = Constants.FORMAT_JSON;
+        SharedRead sharedRead = null;
 
         try {
-            dbHandlerConnection = prepareTransactionEnvironment(messageContext, handler, connectionName,
-                    transactionIsolation);
-            conn = dbHandlerConnection.getJDBCConnection();
+            if (operation.equals(Constants.OPERATION_ATOMIC_BLOCK)) {
+                List<Statement> block = getBlockStatements(messageContext);
+                if (messageContext.getProperty(Constants.DB_CONNECTION + "_" + connectionName) instanceof DBHandler) {
+                    // a block in an open transaction is part of it, and is not replayed on its own
+                    dbHandlerConnection = prepareTransactionEnvironment(messageContext, pool, context, null);
+                    resultJSON = runBlock(pool, dbHandlerConnection, block,
+                            getNonNegativeInt(messageContext, Constants.QUERY_TIMEOUT, 0));
+                } else {
+                    resultJSON = executeAtomicBlock(messageContext, pool, connectionName, block,
+                            transactionIsolation);
+                    recordWrite(messageContext, pool, connectionName);
+                }
+                Utils.handleConnectorResponse(messageContext, responseVariable, overwriteBody, resultJSON, null);
+                querySuccess = true;
+                return;
+            }
+
+            // a statement of an open transaction runs on its connection, which is taken up front so
+            // that the transaction is rolled back if the statement can not be built. Other statements
+            // borrow a connection only once they have to run, so cached results never take one.
+            boolean inTransaction = isTransactionOperation(operation) || isTransactionActive(messageContext,
+                    connectionName, transactionIsolation);
+            if (inTransaction) {
+                dbHandlerConnection = prepareTransactionEnvironment(messageContext, pool, context,
+                        transactionIsolation);
+                conn = dbHandlerConnection.getJDBCConnection();
+            }
 
             switch (operation) {
                 case Constants.OPERATION_SELECT:
-                    isSelect = true;
-                    break;
                 case Constants.OPERATION_INSERT:
                 case Constants.OPERATION_UPDATE:
                 case Constants.OPERATION_DELETE:
                 case Constants.OPERATION_CALL:
-                    break;
                 case Constants.OPERATION_EXECUTE_QUERY:
-                    isSelect = Boolean.parseBoolean(isResultSet);
+                case Constants.OPERATION_BATCH:
+                case Constants.OPERATION_ITERATE:
                     break;
                 case Constants.BEGIN_TRANSACTION:
                     String isolationLevel = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
@@ -244,6 +268,8 @@ public class ExecuteQuery extends AbstractConnector {
 
                 case Constants.COMMIT_TRANSACTION:
                     dbHandlerConnection.commitTransaction();
+                    invalidateCachedResults(pool, dbHandlerConnection, dbHandlerConnection.drainWrittenTables());
+                    recordWrite(messageContext, pool, connectionName);
                     querySuccess = true;
                     return;
 
@@ -256,68 +282,90 @@ public class ExecuteQuery extends AbstractConnector {
                     throw new InvalidConfigurationException("Operation not supported: " + operation);
             }
 
+            OperationDescriptor descriptor = getOperationDescriptor(messageContext, query);
+            String preparedStmt = descriptor.getPreparedStmt();
+
             // at least one of query or preparedStmt should be set
             if (StringUtils.isEmpty(query) && StringUtils.isEmpty(preparedStmt)) {
                 throw new InvalidConfigurationException("Query or prepared statement is required");
             }
 
-            // if operation is execute query and isPreparedStatement is set to true, then
-            if (operation.equalsIgnoreCase(Constants.OPERATION_EXECUTE_QUERY)
-                    && Boolean.parseBoolean(isPreparedStatement)) {
-                preparedStmt = query;
+            if (operation.equals(Constants.OPERATION_BATCH)) {
+                if (dbHandlerConnection == null) {
+                    dbHandlerConnection = prepareTransactionEnvironment(messageContext, pool, context,
+                            transactionIsolation);
+                }
+                resultJSON = executeBatch(messageContext, dbHandlerConnection, descriptor);
+                invalidateCachedResults(pool, dbHandlerConnection, preparedStmt, false);
+                recordWrite(messageContext, pool, connectionName);
+                Utils.handleConnectorResponse(messageContext, responseVariable, overwriteBody, resultJSON, null);
+                querySuccess = true;
+                return;
             }
 
             Statement stmnt = null;
+            KeysetPagination keyset = descriptor.getKeysetPagination();
+            KeysetPagination.CursorTracker cursorTracker = null;
             try {
                 if (StringUtils.isEmpty(preparedStmt)) {
-                    query = processExpression(query, messageContext);
-                    stmnt = new Statement(query);
+                    ParameterizedQuery parameterizedQuery = descriptor.getParameterizedQuery();
+                    if (parameterizedQuery != null) {
+                        DialectProfile profile = pool == null ? null : pool.getDialectProfile();
+                        stmnt = parameterizedQuery.bind(expression -> processExpression(expression, messageContext),
+                                profile == null ? null : profile.getDialect());
+                    }
+                    if (stmnt == null) {
+                        query = processExpression(query, messageContext);
+                        stmnt = new Statement(query);
+                    }
                 } else {
-                    stmnt = new Statement(preparedStmt);
+                    stmnt = new Statement(keyset == null ? preparedStmt
+                            : keyset.getSql((String) getParameter(messageContext, Constants.CURSOR)));
 
                     // if offline query, get data from the param manager
+                    String queryType = (String) getParameter(messageContext, Constants.QUERY_TYPE);
                     if (!StringUtils.isEmpty(queryType) && queryType.equalsIgnoreCase(Constants.QUERY_TYPE_OFFLINE)) {
 
+                        String queryData = (String) getParameter(messageContext, Constants.QUERY_DATA);
                         if (StringUtils.isEmpty(queryData)) {
                             throw new InvalidConfigurationException("Query data is required for offline query");
                         }
                         processOfflineQuery(messageContext, stmnt, queryData);
 
-                    } else if (operation.equalsIgnoreCase(Constants.OPERATION_EXECUTE_QUERY)) {
+                    } else if (operation.equalsIgnoreCase(Constants.OPERATION_EXECUTE_QUERY)
+                            || operation.equalsIgnoreCase(Constants.OPERATION_ITERATE)) {
 
+                        String parameters = (String) getParameter(messageContext, Constants.PARAMETERS);
                         if (StringUtils.isEmpty(parameters)) {
                             throw new InvalidConfigurationException("Parameters are required for execute query");
                         }
                         processExecuteQueryParameters(messageContext, stmnt, parameters);
 
                     } else {
-
-                        String[] columnNamesArray = null, columnTypesArray = null;
-                        if (!StringUtils.isEmpty(columnNames) && !StringUtils.isEmpty(columnTypes)) {
-                            columnNamesArray = columnNames.split(",");
-                            columnTypesArray = columnTypes.split(",");
-
-                            if (columnNamesArray.length != columnTypesArray.length) {
-                                throw new InvalidConfigurationException(
-                                        "Number of column names and types do not match");
-                            }
-                        }
-
-                        processColumnParameters(messageContext, stmnt, columnNamesArray, columnTypesArray);
+                        processColumnParameters(messageContext, stmnt, descriptor);
                     }
 
-                    // if a select query add parameters limit and offset if set
-                    if (operation.equalsIgnoreCase(Constants.OPERATION_SELECT)) {
+                    if (keyset != null) {
+                        // the key values of the cursor follow the parameters of the wrapped select
+                        keyset.bindCursor(stmnt, (String) getParameter(messageContext, Constants.CURSOR));
+                        cursorTracker = keyset.newTracker(getPageSize(messageContext));
+                    } else if (operation.equalsIgnoreCase(Constants.OPERATION_SELECT)) {
+                        // if a select query add parameters limit and offset if set
+                        String limit = (String) getParameter(messageContext, Constants.LIMIT);
                         if (!StringUtils.isEmpty(limit)) {
-                            stmnt.addParameter("INTEGER", limit);
+                            stmnt.addParameter(Types.INTEGER, limit);
                         }
 
+                        String offset = (String) getParameter(messageContext, Constants.OFFSET);
                         if (!StringUtils.isEmpty(offset)) {
-                            stmnt.addParameter("INTEGER", offset);
+                            stmnt.addParameter(Types.INTEGER, offset);
                         }
                     }
 
                 }
+
+                // OUT parameters of a procedure call take the placeholders not bound above
+                descriptor.addOutParameters(stmnt);
             } catch (StringIndexOutOfBoundsException e) {
                 handleError(messageContext, e, Error.INVALID_INPUT,
                         "Malformed value string in message context: " + e.getMessage());
@@ -329,118 +377,273 @@ public class ExecuteQuery extends AbstractConnector {
                         "Error processing statement parameters: " + e.getMessage());
             }
 
-            try (PreparedStatement ps = getPreparedStatement(conn, stmnt)) {
+            boolean columnar = false;
+            if (descriptor.isSelect()) {
+                resultFormat = getResultFormat(messageContext);
+                columnar = isColumnarLayout(messageContext);
+            }
 
-                // Set query parameters
-                setIntProperty(ps, "setQueryTimeout", queryTimeout);
-                setIntProperty(ps, "setFetchSize", fetchSize);
-                setIntProperty(ps, "setMaxRows", maxRows);
+            // plain selects outside a transaction may read from a replica, unless a write of the same
+            // message flow is too recent. Reads kept on the primary that way do not share results,
+            // which may have been read from a replica before the write reached it.
+            boolean replicaRead = false;
+            boolean pinnedToPrimary = false;
+            if (!inTransaction && pool != null && pool.hasReadReplicas() && isReplicaReadable(descriptor, stmnt)) {
+                pinnedToPrimary = isPinnedToPrimary(messageContext, connectionName);
+                replicaRead = !pinnedToPrimary;
+            }
 
-                if (isSelect) {
-                    try (ResultSet rs = ps.executeQuery()) {
-                        if (!rs.isBeforeFirst()) {
-                            log.debug("No results found for query: " + query);
-                        } else {
-                            JsonArray rows = ResultSetMapper.mapResultSetToJsonArray(rs);
-                            resultJSON.add("rows", rows);
-                            log.debug("Result: " + rows);
-                        }
+            if (!inTransaction && !pinnedToPrimary) {
+                sharedRead = newSharedRead(messageContext, pool, descriptor, stmnt, resultFormat, columnar,
+                        cursorTracker);
+            }
+            if (sharedRead != null) {
+                byte[] shared = sharedRead.lookup();
+                if (shared != null) {
+                    log.debug("Result served from the result cache of " + connectionName);
+                } else {
+                    shared = sharedRead.awaitInFlight();
+                    if (shared != null) {
+                        log.debug("Result shared with a concurrent identical select on " + connectionName);
                     }
-                } else if (operation.equalsIgnoreCase(Constants.OPERATION_CALL)) {
-                    boolean hasResultSet = ps.execute();
-                    JsonArray resultSets = new JsonArray();
+                }
+                if (shared != null) {
+                    handleSerializedResult(messageContext, shared, resultFormat, responseVariable, overwriteBody);
+                    querySuccess = true;
+                    return;
+                }
+            }
 
-                    if (hasResultSet) {
-                        try (ResultSet rs = ps.getResultSet()) {
-                            JsonArray rows = ResultSetMapper.mapResultSetToJsonArray(rs);
-                            resultSets.add(rows);
-                            log.debug("Result Set 1: " + rows);
-                        }
-                    }
+            // idempotent replica reads may be hedged on a second replica, except keyset pages whose
+            // cursor is tracked while the rows are read
+            HedgePolicy hedgePolicy = null;
+            if (replicaRead && cursorTracker == null
+                    && Boolean.parseBoolean((String) getParameter(messageContext, Constants.HEDGE_READS))) {
+                hedgePolicy = pool.getHedgePolicy();
+            }
 
-                    if (resultSets.size() > 0) {
-                        resultJSON.add("resultSets", resultSets);
+            // statements outside a transaction are retried after a transient failure. A write only runs
+            // again if it did not reach the database or was rolled back by a serialization failure.
+            RetryPolicy retryPolicy = inTransaction || pool == null || operation.equals(Constants.OPERATION_ITERATE)
+                    ? null : pool.getRetryPolicy();
+            boolean idempotent = isReplicaReadable(descriptor, stmnt);
+            long firstAttempt = System.nanoTime();
+            for (int retry = 1; ; retry++) {
+                boolean executed = false;
+                try {
+                    if (dbHandlerConnection == null && replicaRead) {
+                        dbHandlerConnection = pool.borrowForRead();
+                        context.setDbHandler(dbHandlerConnection);
+                        conn = dbHandlerConnection.getJDBCConnection();
+                    } else if (dbHandlerConnection == null) {
+                        dbHandlerConnection = prepareTransactionEnvironment(messageContext, pool, context,
+                                transactionIsolation);
+                        conn = dbHandlerConnection.getJDBCConnection();
                     }
 
-                    int updateCount = ps.getUpdateCount();
-                    resultJSON.addProperty("updateCount", updateCount);
-                    log.debug("Update count: " + updateCount);
+                    PreparedStatement ps = getPreparedStatement(dbHandlerConnection, stmnt);
+                    try {
 
-                } else {
-                    int affected = ps.executeUpdate();
-                    resultJSON.addProperty("affectedRows", affected);
-                    log.debug("Affected rows: " + affected);
-
-                    // if insert get the last inserted id
-                    if (operation.equalsIgnoreCase(Constants.OPERATION_INSERT)) {
-                        if (conn.getMetaData().supportsGetGeneratedKeys()) {
-                            try (ResultSet rs = ps.getGeneratedKeys()) {
-                                JsonArray generatedKeys = ResultSetMapper.mapResultSetToJsonArray(rs);
-                                resultJSON.add("generatedKeys", generatedKeys);
-                                log.debug("Generated keys: " + generatedKeys);
-                            } catch (SQLException e) {
-                                log.warn("Could not retrieve generated keys: " + e.getMessage());
-                                resultJSON.add("generatedKeys", new JsonArray());
+                        // Set query parameters
+                        descriptor.applyStatementOptions(ps);
+                        executed = true;
+
+                        if (cursorTracker != null) {
+                            if (!Constants.FORMAT_JSON.equals(resultFormat)) {
+                                throw new InvalidConfigurationException("Keyset pagination requires the json format");
+                            }
+                            ps.setMaxRows(cursorTracker.getPageSize());
+                        }
+
+                        if (operation.equals(Constants.OPERATION_ITERATE)) {
+                            resultJSON = iterateChunks(messageContext, dbHandlerConnection, ps, descriptor);
+                        } else if (hedgePolicy != null) {
+                            streamedPayload = executeHedgedRead(hedgePolicy, pool, dbHandlerConnection, ps, stmnt,
+                                    descriptor, resultFormat, columnar, query);
+                            if (Constants.FORMAT_JSON.equals(resultFormat) && !overwriteBody) {
+                                try (Reader reader = new InputStreamReader(streamedPayload.toInputStream(),
+                                        StandardCharsets.UTF_8)) {
+                                    resultJSON = JsonParser.parseReader(reader).getAsJsonObject();
+                                }
+                                streamedPayload.discard();
+                                streamedPayload = null;
+                            }
+                        } else if (!Constants.FORMAT_JSON.equals(resultFormat)) {
+                            // xml, csv and text results are written straight from the ResultSet
+                            try (ResultSet rs = ps.executeQuery()) {
+                                streamedPayload = newPayloadBuffer(pool, resultFormat);
+                                int rowCount = ResultSetMapper.writeResultSet(rs, resultFormat, streamedPayload);
+                                log.debug("Rows written to payload: " + rowCount + ", " + streamedPayload.size()
+                                        + " bytes" + (streamedPayload.isSpilled() ? ", spilled to disk" : ""));
+                            }
+                        } else if (descriptor.isSelect() && overwriteBody) {
+                            // stream the rows straight into the payload buffer, no JSON tree is built
+                            try (ResultSet rs = ps.executeQuery()) {
+                                streamedPayload = newPayloadBuffer(pool, resultFormat);
+                                writeSelectResult(rs, query, columnar, cursorTracker, streamedPayload);
+                            }
+                        } else if (descriptor.isSelect()) {
+                            try (ResultSet rs = ps.executeQuery()) {
+                                if (columnar) {
+                                    JsonObject result = ResultSetMapper.mapResultSetToColumnarJson(rs, cursorTracker);
+                                    for (Map.Entry<String, JsonElement> field : result.entrySet()) {
+                                        resultJSON.add(field.getKey(), field.getValue());
+                                    }
+                                } else if (!rs.isBeforeFirst()) {
+                                    log.debug("No results found for query: " + query);
+                                } else {
+                                    JsonArray rows = ResultSetMapper.mapResultSetToJsonArray(rs, cursorTracker);
+                                    resultJSON.add("rows", rows);
+                                    log.debug("Result: " + rows);
+                                }
+                            }
+                            if (cursorTracker != null && cursorTracker.getNextCursor() != null) {
+                                resultJSON.addProperty(Constants.NEXT_CURSOR, cursorTracker.getNextCursor());
+                            }
+                        } else if (operation.equalsIgnoreCase(Constants.OPERATION_CALL)) {
+                            boolean hasResultSet = ps.execute();
+                            PayloadOutputStream payload = newPayloadBuffer(pool, Constants.FORMAT_JSON);
+                            try {
+                                writeCallResult(ps, hasResultSet, stmnt, payload);
+                                if (overwriteBody) {
+                                    streamedPayload = payload;
+                                } else {
+                                    try (Reader reader = new InputStreamReader(payload.toInputStream(),
+                                            StandardCharsets.UTF_8)) {
+                                        resultJSON = JsonParser.parseReader(reader).getAsJsonObject();
+                                    }
+                                }
+                            } finally {
+                                if (streamedPayload != payload) {
+                                    payload.discard();
+                                }
+                            }
+
+                        } else {
+                            int affected = ps.executeUpdate();
+                            resultJSON.addProperty("affectedRows", affected);
+                            log.debug("Affected rows: " + affected);
+
+                            // if insert get the last inserted id
+                            if (operation.equalsIgnoreCase(Constants.OPERATION_INSERT)) {
+                                if (dbHandlerConnection.getDialectProfile().supportsGeneratedKeys()) {
+                                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                                        JsonArray generatedKeys = ResultSetMapper.mapResultSetToJsonArray(rs);
+                                        resultJSON.add("generatedKeys", generatedKeys);
+                                        log.debug("Generated keys: " + generatedKeys);
+                                    } catch (SQLException e) {
+                                        log.warn("Could not retrieve generated keys: " + e.getMessage());
+                                        resultJSON.add("generatedKeys", new JsonArray());
+                                    }
+                                } else {
+                                    log.warn("Driver does not support retrieving generated keys.");
+                                    resultJSON.add("generatedKeys", new JsonArray());
+                                }
                             }
+                        }
+                    } finally {
+                        dbHandlerConnection.releaseStatement(ps);
+                    }
+                    if (retry > 1) {
+                        retryPolicy.recordRecovery();
+                    }
+                    break;
+                } catch (SQLException e) {
+                    if (retryPolicy == null || !RetryPolicy.isTransient(e)
+                            || (executed && !idempotent && !RetryPolicy.isSerializationFailure(e))) {
+                        throw e;
+                    }
+                    if (streamedPayload != null) {
+                        streamedPayload.discard();
+                        streamedPayload = null;
+                    }
+                    resultJSON = new JsonObject();
+
+                    // the connection is given back while waiting, a failed one is replaced by a fresh one
+                    if (dbHandlerConnection != null) {
+                        if (pool.recordFailure(dbHandlerConnection, e) || RetryPolicy.isConnectionFailure(e)) {
+                            pool.invalidate(dbHandlerConnection);
                         } else {
-                            log.warn("Driver does not support retrieving generated keys.");
-                            resultJSON.add("generatedKeys", new JsonArray());
+                            pool.release(dbHandlerConnection);
                         }
+                        dbHandlerConnection = null;
+                        conn = null;
+                    }
+                    if (!retryPolicy.awaitRetry(retry, firstAttempt)) {
+                        throw e;
                     }
+                    log.debug("Retry " + retry + " of a statement on " + connectionName + " after a transient failure: "
+                            + e.getMessage());
                 }
             }
 
-            Utils.handleConnectorResponse(messageContext, responseVariable, overwriteBody, resultJSON, null);
+            if (sharedRead != null) {
+                // a spilled result is too large to be shared
+                sharedRead.share(streamedPayload != null ? streamedPayload.toByteArray()
+                        : resultJSON.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            // statements returning rows may write too, e.g. INSERT ... RETURNING or SELECT ... FOR UPDATE
+            if (!SqlTables.isReadOnly(stmnt.getQuery())) {
+                invalidateCachedResults(pool, dbHandlerConnection, stmnt.getQuery(),
+                        operation.equals(Constants.OPERATION_CALL));
+                recordWrite(messageContext, pool, connectionName);
+            }
+
+            if (streamedPayload != null && !Constants.FORMAT_JSON.equals(resultFormat)) {
+                Utils.handleFormattedResponse(messageContext, resultFormat, streamedPayload.toInputStream(),
+                        responseVariable, overwriteBody);
+            } else if (streamedPayload != null) {
+                Utils.setJsonStreamAsPayload(messageContext, streamedPayload.toInputStream());
+            } else {
+                Utils.handleConnectorResponse(messageContext, responseVariable, overwriteBody, resultJSON, null);
+            }
             querySuccess = true;
 
+        } catch (BatchUpdateException e) {
+            handleBatchError(messageContext, e);
         } catch (SQLSyntaxErrorException e) {
             handleError(messageContext, e, Error.SQL_SYNTAX_ERROR, "Error executing query: " + e.getMessage());
         } catch (SQLTimeoutException e) {
+            connectionFailed = pool != null && pool.recordFailure(dbHandlerConnection, e);
             handleError(messageContext, e, Error.CONNECTION_TIMEOUT, "Query execution timed out: " + e.getMessage());
         } catch (SQLException e) {
 
+            connectionFailed = pool != null && pool.recordFailure(dbHandlerConnection, e);
             String errorMsg = String.format("Database error executing query: %s. Error code: %d, SQL State: %s", query,
                     e.getErrorCode(), e.getSQLState());
             handleError(messageContext, e, Error.QUERY_EXECUTION_FAILURE, errorMsg);
         } catch (Exception e) {
             handleError(messageContext, e, Utils.getErrorCode(e), "Error executing query: " + e.getMessage());
         } finally {
+            if (sharedRead != null) {
+                sharedRead.release();
+            }
 
             try {
                 if (querySuccess) {
                     log.debug("Query Successful");
-                    if (isNewTransaction) {
+                    if (dbHandlerConnection != null) {
+                        dbHandlerConnection.markUsed();
+                    }
+                    if (context.isNewTransaction()) {
                         dbHandlerConnection.commitTransaction();
+                        invalidateCachedResults(pool, dbHandlerConnection, dbHandlerConnection.drainWrittenTables());
                     }
                 } else {
                     log.debug("Query Failed");
-                    if (isNewTransaction || isOngoingTransaction) {
+                    if (streamedPayload != null) {
+                        streamedPayload.discard();
+                    }
+                    if (context.isNewTransaction() || context.isOngoingTransaction()) {
                         log.debug("Rolling back transaction");
                         dbHandlerConnection.rollbackTransaction();
                     }
-
-                    // if isNewConnection, rollback any transactions in the initial connection
-                    if (isNewConnection) {
-                        log.debug("Rolling back the initial connection");
-                        DBHandler oldConnection = (DBHandler) handler.getConnection(Constants.CONNECTOR_NAME,
-                                connectionName);
-                        if (oldConnection != null) {
-                            if (oldConnection.isTransactionStarted()) {
-                                oldConnection.rollbackTransaction();
-                            }
-
-                            // return the connection to connection pool
-                            if (handler.getStatusOfConnection(Constants.CONNECTOR_NAME, connectionName)) {
-                                handler.returnConnection(Constants.CONNECTOR_NAME, connectionName, oldConnection);
-                            }
-                        }
-                    }
                 }
             } catch (Exception e) {
                 handleError(messageContext, e, Utils.getErrorCode(e), "Error cleaning up: " + e.getMessage());
             }
 
-            if (isNewConnection) {
+            if (context.isNewConnection()) {
                 dbHandlerConnection.close();
             } else if (dbHandlerConnection != null) {
 
@@ -453,8 +656,11 @@ public class ExecuteQuery extends AbstractConnector {
                     messageContext.setProperty(Constants.DB_CONNECTION + "_" + connectionName,
                             dbHandlerConnection);
 
-                } else if (handler.getStatusOfConnection(Constants.CONNECTOR_NAME, connectionName)) {
-                    handler.returnConnection(Constants.CONNECTOR_NAME, connectionName, dbHandlerConnection);
+                } else if (connectionFailed) {
+                    log.debug("Connection failed, removing it from the pool");
+                    pool.invalidate(dbHandlerConnection);
+                } else {
+                    releaseConnection(pool, dbHandlerConnection);
                     log.debug("Returning connection to pool");
                 }
 
@@ -463,202 +669,983 @@ public class ExecuteQuery extends AbstractConnector {
     }
 
     /**
-     * Sets an integer property on the PreparedStatement using reflection.
+     * Runs the query with a forward-only, read-only cursor and mediates the configured sequence
+     * once per chunk of chunkSize rows. Every chunk is mediated on a copy of the message with
+     * the payload {"chunk":n,"rows":[...]}, so only one chunk is held in memory at a time.
+     * If the sequence stops the flow of a chunk, the remaining rows are not read and the
+     * result is marked as stopped.
+     * <p>
+     * Drivers that buffer the whole result by default are switched to streaming: MySQL streams
+     * rows with a fetch size of Integer.MIN_VALUE, and PostgreSQL only fetches through a cursor
+     * when auto-commit is off, so auto-commit is turned off while the rows are read.
      *
-     * @param ps         The PreparedStatement object.
-     * @param methodName The name of the method to invoke (e.g., "setQueryTimeout").
-     * @param value      The value to set as a string.
-     * @throws SQLException If an error occurs while setting the property.
+     * @return The result with the number of chunks and rows processed, and whether the sequence
+     *         stopped the iteration.
      */
-    private void setIntProperty(PreparedStatement ps, String methodName, String value) throws SQLException {
-        if (StringUtils.isNotEmpty(value)) {
+    private JsonObject iterateChunks(MessageContext messageContext, DBHandler dbHandler, PreparedStatement ps,
+            OperationDescriptor descriptor) throws Exception {
+
+        String sequenceName = (String) getParameter(messageContext, Constants.SEQUENCE);
+        if (StringUtils.isEmpty(sequenceName)) {
+            throw new InvalidConfigurationException("Sequence is required for iterate operation");
+        }
+        Mediator sequence = messageContext.getSequence(sequenceName.trim());
+        if (sequence == null) {
+            throw new InvalidConfigurationException("Sequence not found: " + sequenceName);
+        }
+
+        int chunkSize = Constants.DEFAULT_CHUNK_SIZE;
+        String chunkSizeValue = (String) getParameter(messageContext, Constants.CHUNK_SIZE);
+        if (StringUtils.isNotEmpty(chunkSizeValue)) {
             try {
-                int intValue = Integer.parseInt(value);
-                ps.getClass().getMethod(methodName, int.class).invoke(ps, intValue);
+                chunkSize = Integer.parseInt(chunkSizeValue.trim());
             } catch (NumberFormatException e) {
-                handleError(null, e, Error.INVALID_INPUT,
-                        "Invalid value for " + methodName + ": " + value);
-            } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-                handleError(null, e, Error.INVALID_INPUT,
-                        "Error invoking method " + methodName + ": " + e.getMessage());
+                throw new InvalidConfigurationException("Invalid value for chunkSize: " + chunkSizeValue, e);
+            }
+            if (chunkSize <= 0) {
+                throw new InvalidConfigurationException("Parameter 'chunkSize' should be greater than 0");
             }
         }
+
+        Connection conn = dbHandler.getJDBCConnection();
+        DialectProfile profile = dbHandler.getDialectProfile();
+        // the streaming fetch size is specific to the MySQL driver, MariaDB connections share its dialect
+        boolean mysql = profile.getDialect() == DialectProfile.Dialect.MYSQL && profile.getDriverName() != null
+                && profile.getDriverName().startsWith("MySQL");
+        boolean postgres = profile.getDialect() == DialectProfile.Dialect.POSTGRESQL;
+
+        if (descriptor.getFetchSize() < 0) {
+            ps.setFetchSize(mysql ? Integer.MIN_VALUE : chunkSize);
+        }
+        boolean restoreAutoCommit = postgres && conn.getAutoCommit();
+        if (restoreAutoCommit) {
+            conn.setAutoCommit(false);
+        }
+
+        int chunkCount = 0;
+        long rowCount = 0;
+        boolean stopped = false;
+        boolean completed = false;
+        try (ResultSet rs = ps.executeQuery()) {
+            while (true) {
+                PayloadOutputStream chunk = new PayloadOutputStream();
+                int rows;
+                try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(chunk, StandardCharsets.UTF_8))) {
+                    writer.setLenient(true);
+                    writer.beginObject();
+                    writer.name("chunk").value(chunkCount + 1);
+                    writer.name("rows");
+                    rows = ResultSetMapper.writeResultSetToJson(rs, writer, null, chunkSize);
+                    writer.endObject();
+                }
+                if (rows == 0) {
+                    break;
+                }
+
+                chunkCount++;
+                rowCount += rows;
+                MessageContext chunkContext = MessageHelper.cloneMessageContext(messageContext);
+                Utils.setJsonStreamAsPayload(chunkContext, chunk.toInputStream());
+                log.debug("Mediating chunk {} of {} rows with sequence {}", chunkCount, rows, sequenceName);
+                if (!sequence.mediate(chunkContext)) {
+                    log.debug("Sequence {} stopped the iteration at chunk {}", sequenceName, chunkCount);
+                    stopped = true;
+                    break;
+                }
+
+                if (rows < chunkSize) {
+                    break;
+                }
+            }
+            completed = true;
+        } finally {
+            if (descriptor.getFetchSize() < 0) {
+                // the statement is cached, do not leave the streaming mode to the next query
+                ps.setFetchSize(0);
+            }
+            if (restoreAutoCommit) {
+                if (completed) {
+                    conn.commit();
+                } else {
+                    conn.rollback();
+                }
+                conn.setAutoCommit(true);
+            }
+        }
+
+        JsonObject result = new JsonObject();
+        result.addProperty("chunkCount", chunkCount);
+        result.addProperty("rowCount", rowCount);
+        result.addProperty("stopped", stopped);
+        return result;
     }
 
     /**
-     * Creates a PreparedStatement from the given connection and statement.
-     * 
-     * @param conn The JDBC connection.
-     * @param stmt The statement object containing the SQL query and parameters.
+     * Executes the prepared statement once for every row of the batch data using JDBC
+     * batching. The batch is flushed every batchSize rows.
+     *
+     * @return The result with the total affected rows and the update count of every row.
+     * @throws BatchUpdateException with the update counts of all rows processed so far,
+     *                              if a batch fails
      */
-    private PreparedStatement getPreparedStatement(Connection conn, Statement stmt) throws SQLException, Exception {
-        PreparedStatement ps;
-        if (operation != null && operation.equalsIgnoreCase(Constants.OPERATION_CALL)) {
-            ps = conn.prepareCall(stmt.getQuery());
-        } else {
-            if (operation != null && operation.equalsIgnoreCase(Constants.OPERATION_INSERT) &&
-                    conn.getMetaData().supportsGetGeneratedKeys()) {
-                ps = conn.prepareStatement(stmt.getQuery(), PreparedStatement.RETURN_GENERATED_KEYS);
-            } else {
-                ps = conn.prepareStatement(stmt.getQuery());
-            }
+    private JsonObject executeBatch(MessageContext messageContext, DBHandler dbHandler,
+            OperationDescriptor descriptor) throws Exception {
+
+        String batchData = (String) getParameter(messageContext, Constants.BATCH_DATA);
+        if (StringUtils.isEmpty(batchData)) {
+            throw new InvalidConfigurationException("Batch data is required for batch operation");
         }
 
-        List<Statement.Parameter> parameters = stmt.getParameters();
+        int columnCount = descriptor.getColumnCount();
+        if (columnCount == 0) {
+            throw new InvalidConfigurationException("Column names and types are required for batch operation");
+        }
 
-        int columnNum = 1;
-        for (Statement.Parameter param : parameters) {
-            if (param == null) {
-                continue;
+        int batchSize = Constants.DEFAULT_BATCH_SIZE;
+        String batchSizeValue = (String) getParameter(messageContext, Constants.BATCH_SIZE);
+        if (StringUtils.isNotEmpty(batchSizeValue)) {
+            try {
+                batchSize = Integer.parseInt(batchSizeValue.trim());
+            } catch (NumberFormatException e) {
+                throw new InvalidConfigurationException("Invalid value for batchSize: " + batchSizeValue, e);
             }
+            if (batchSize <= 0) {
+                throw new InvalidConfigurationException("Parameter 'batchSize' should be greater than 0");
+            }
+        }
 
-            String value = param.getValue();
+        JsonElement parsedData = JsonParser.parseString(processExpression(batchData, messageContext));
+        if (!parsedData.isJsonArray()) {
+            throw new InvalidConfigurationException("Batch data should be a JSON array of rows");
+        }
+        JsonArray rows = parsedData.getAsJsonArray();
+
+        ParameterBinder[] binders = new ParameterBinder[columnCount];
+        for (int c = 0; c < columnCount; c++) {
+            binders[c] = Statement.getBinder(descriptor.getColumnType(c));
+            if (binders[c] == null) {
+                throw new SQLException("Trying to set an unsupported JDBC Type : " + descriptor.getColumnType(c)
+                        + " against column : " + descriptor.getColumnName(c) + " used by a DB connector batch");
+            }
+        }
 
-            switch (param.getType()) {
-                // according to J2SE 1.5 /docs/guide/jdbc/getstart/mapping.html
-                // https://docs.oracle.com/javase/1.5.0/docs/guide/jdbc/getstart/mapping.html
-                case Types.CHAR:
-                case Types.VARCHAR:
-                case Types.LONGVARCHAR: {
-                    if (value != null && value.length() != 0) {
-                        ps.setString(columnNum, value);
-                    } else {
-                        ps.setString(columnNum, null);
-                    }
-                    break;
+        int[] updateCounts = new int[rows.size()];
+        boolean batchUpdates = dbHandler.getDialectProfile().supportsBatchUpdates();
+        PreparedStatement ps = dbHandler.prepareStatement(descriptor.getPreparedStmt(),
+                StatementCache.StatementKind.PLAIN);
+        try {
+            descriptor.applyStatementOptions(ps);
+
+            int batchStart = 0;
+            for (int r = 0; r < rows.size(); r++) {
+                JsonElement row = rows.get(r);
+                for (int c = 0; c < columnCount; c++) {
+                    binders[c].bind(ps, c + 1, getBatchValue(row, r, c, descriptor));
                 }
-                case Types.NUMERIC:
-                case Types.DECIMAL: {
-                    if (value != null && value.length() != 0) {
-                        ps.setBigDecimal(columnNum, new BigDecimal(value));
-                    } else {
-                        ps.setBigDecimal(columnNum, null);
+                if (!batchUpdates) {
+                    // the driver can not batch, run the rows one by one and report them as a batch
+                    try {
+                        updateCounts[r] = ps.executeUpdate();
+                    } catch (SQLException e) {
+                        throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(),
+                                Arrays.copyOf(updateCounts, r), e);
                     }
-                    break;
+                    continue;
                 }
-                case Types.BIT: {
-                    if (value != null && value.length() != 0) {
-                        ps.setBoolean(columnNum, Boolean.parseBoolean(value));
-                    } else {
-                        ps.setNull(columnNum, Types.BIT);
+                ps.addBatch();
+
+                if (r + 1 - batchStart == batchSize || r == rows.size() - 1) {
+                    try {
+                        int[] counts = ps.executeBatch();
+                        System.arraycopy(counts, 0, updateCounts, batchStart, counts.length);
+                    } catch (BatchUpdateException e) {
+                        // report the update counts against the row indexes of the whole batch data
+                        int[] chunkCounts = e.getUpdateCounts() == null ? new int[0] : e.getUpdateCounts();
+                        int[] processedCounts = Arrays.copyOf(updateCounts, batchStart + chunkCounts.length);
+                        System.arraycopy(chunkCounts, 0, processedCounts, batchStart, chunkCounts.length);
+                        throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(),
+                                processedCounts, e);
                     }
-                    break;
+                    log.debug("Executed batch of rows {} to {}", batchStart, r);
+                    batchStart = r + 1;
                 }
-                case Types.TINYINT: {
-                    if (value != null && value.length() != 0) {
-                        ps.setByte(columnNum, Byte.parseByte(value));
-                    } else {
-                        ps.setNull(columnNum, Types.TINYINT);
-                    }
-                    break;
+            }
+        } finally {
+            try {
+                if (batchUpdates) {
+                    ps.clearBatch();
                 }
-                case Types.SMALLINT: {
-                    if (value != null && value.length() != 0) {
-                        ps.setShort(columnNum, Short.parseShort(value));
-                    } else {
-                        ps.setNull(columnNum, Types.SMALLINT);
-                    }
-                    break;
+            } catch (SQLException e) {
+                log.warn("Could not clear the statement batch: " + e.getMessage());
+            }
+            dbHandler.releaseStatement(ps);
+        }
+
+        long affectedRows = 0;
+        JsonArray counts = new JsonArray();
+        for (int count : updateCounts) {
+            counts.add(count);
+            if (count > 0) {
+                affectedRows += count;
+            }
+        }
+
+        JsonObject resultJSON = new JsonObject();
+        resultJSON.addProperty("affectedRows", affectedRows);
+        resultJSON.add("updateCounts", counts);
+        return resultJSON;
+    }
+
+    /**
+     * Reads the value of a column from a batch row. A row is either a JSON array of
+     * values in column order or a JSON object keyed by column name.
+     */
+    private String getBatchValue(JsonElement row, int rowIndex, int column, OperationDescriptor descriptor)
+            throws InvalidConfigurationException {
+        JsonElement value;
+        if (row.isJsonArray()) {
+            JsonArray values = row.getAsJsonArray();
+            if (values.size() != descriptor.getColumnCount()) {
+                throw new InvalidConfigurationException("Row " + rowIndex + " has " + values.size()
+                        + " values but " + descriptor.getColumnCount() + " columns are defined");
+            }
+            value = values.get(column);
+        } else if (row.isJsonObject()) {
+            value = row.getAsJsonObject().get(descriptor.getColumnName(column));
+        } else {
+            throw new InvalidConfigurationException("Row " + rowIndex + " should be a JSON array or object");
+        }
+
+        if (value == null || value.isJsonNull()) {
+            return null;
+        }
+        return value.isJsonPrimitive() ? value.getAsString() : value.toString();
+    }
+
+    /**
+     * Reads the statements of an atomic block, a JSON array of objects with the SQL in query
+     * and, if it has placeholders, their values as [value, type] pairs in parameters.
+     */
+    private List<Statement> getBlockStatements(MessageContext messageContext) throws InvalidConfigurationException {
+
+        String statements = (String) getParameter(messageContext, Constants.STATEMENTS);
+        if (StringUtils.isEmpty(statements)) {
+            throw new InvalidConfigurationException("Statements are required for atomic block operation");
+        }
+        JsonElement parsed = JsonParser.parseString(processExpression(statements, messageContext));
+        if (!parsed.isJsonArray() || parsed.getAsJsonArray().size() == 0) {
+            throw new InvalidConfigurationException("Statements should be a non empty JSON array");
+        }
+
+        List<Statement> block = new ArrayList<>();
+        JsonArray elements = parsed.getAsJsonArray();
+        for (int i = 0; i < elements.size(); i++) {
+            JsonElement element = elements.get(i);
+            if (!element.isJsonObject() || !element.getAsJsonObject().has(Constants.QUERY)) {
+                throw new InvalidConfigurationException("Statement " + i + " should be an object with a query");
+            }
+            JsonObject object = element.getAsJsonObject();
+            Statement stmt = new Statement(object.get(Constants.QUERY).getAsString());
+            JsonElement parameters = object.get(Constants.PARAMETERS);
+            if (parameters != null && !parameters.isJsonNull()) {
+                if (!parameters.isJsonArray()) {
+                    throw new InvalidConfigurationException("Parameters of statement " + i + " should be an array");
                 }
-                case Types.INTEGER: {
-                    if (value != null && value.length() != 0) {
-                        ps.setInt(columnNum, Integer.parseInt(value));
-                    } else {
-                        ps.setNull(columnNum, Types.INTEGER);
+                for (JsonElement parameter : parameters.getAsJsonArray()) {
+                    if (!parameter.isJsonArray() || parameter.getAsJsonArray().size() != 2) {
+                        throw new InvalidConfigurationException(
+                                "Parameters of statement " + i + " should be [value, type] pairs");
                     }
-                    break;
+                    JsonElement value = parameter.getAsJsonArray().get(0);
+                    stmt.addParameter(parameter.getAsJsonArray().get(1).getAsString().trim(),
+                            value.isJsonNull() ? null : value.getAsString());
                 }
-                case Types.BIGINT: {
-                    if (value != null && value.length() != 0) {
-                        ps.setLong(columnNum, Long.parseLong(value));
-                    } else {
-                        ps.setNull(columnNum, Types.BIGINT);
+            }
+            block.add(stmt);
+        }
+        return block;
+    }
+
+    /**
+     * Runs an atomic block in a transaction of its own on one connection. When the transaction
+     * is rolled back by a serialization failure or a deadlock the whole block is run again, up
+     * to replayCount times, with the parameter values bound the first time.
+     */
+    private JsonObject executeAtomicBlock(MessageContext messageContext, DBConnectionPool pool,
+            String connectionName, List<Statement> block, String transactionIsolation) throws Exception {
+
+        int replayCount = getNonNegativeInt(messageContext, Constants.REPLAY_COUNT, Constants.DEFAULT_REPLAY_COUNT);
+        int queryTimeout = getNonNegativeInt(messageContext, Constants.QUERY_TIMEOUT, 0);
+        // without an isolation level the block runs with the isolation of the connection
+        String isolationLevel = StringUtils.isEmpty(transactionIsolation)
+                || transactionIsolation.equalsIgnoreCase("TRANSACTION_NONE") ? null : transactionIsolation;
+
+        DBHandler dbHandler = borrowConnection(pool, connectionName);
+        Connection conn = dbHandler.getJDBCConnection();
+        boolean connectionFailed = false;
+        try {
+            boolean autoCommit = conn.getAutoCommit();
+            int isolation = conn.getTransactionIsolation();
+            try {
+                for (int replay = 0; ; replay++) {
+                    dbHandler.startTransaction(isolationLevel);
+                    try {
+                        JsonObject result = runBlock(pool, dbHandler, block, queryTimeout);
+                        dbHandler.commitTransaction();
+                        invalidateCachedResults(pool, dbHandler, dbHandler.drainWrittenTables());
+                        dbHandler.markUsed();
+                        if (replay > 0) {
+                            log.debug("Atomic block committed after " + replay + " replays");
+                        }
+                        return result;
+                    } catch (Exception e) {
+                        // any failure ends the transaction before auto-commit is restored, which
+                        // would otherwise commit the statements of the block that succeeded
+                        if (dbHandler.isTransactionStarted()) {
+                            try {
+                                dbHandler.rollbackTransaction();
+                            } catch (SQLException rollbackError) {
+                                e.addSuppressed(rollbackError);
+                                throw e;
+                            }
+                        }
+                        if (replay >= replayCount || !(e instanceof SQLException)
+                                || !RetryPolicy.isSerializationFailure((SQLException) e)) {
+                            throw e;
+                        }
+                        log.debug("Replaying atomic block after a serialization failure: " + e.getMessage());
                     }
-                    break;
                 }
-                case Types.REAL: {
-                    if (value != null && value.length() != 0) {
-                        ps.setFloat(columnNum, Float.parseFloat(value));
-                    } else {
-                        ps.setNull(columnNum, Types.REAL);
-                    }
-                    break;
+            } finally {
+                // the connection goes back to the pool as it was borrowed
+                if (conn.getAutoCommit() != autoCommit) {
+                    conn.setAutoCommit(autoCommit);
                 }
-                case Types.FLOAT: {
-                    if (value != null && value.length() != 0) {
-                        ps.setDouble(columnNum, Double.parseDouble(value));
-                    } else {
-                        ps.setNull(columnNum, Types.FLOAT);
-                    }
-                    break;
+                if (conn.getTransactionIsolation() != isolation) {
+                    conn.setTransactionIsolation(isolation);
                 }
-                case Types.DOUBLE: {
-                    if (value != null && value.length() != 0) {
-                        ps.setDouble(columnNum, Double.parseDouble(value));
-                    } else {
-                        ps.setNull(columnNum, Types.DOUBLE);
-                    }
-                    break;
+            }
+        } catch (SQLException e) {
+            connectionFailed = pool.recordFailure(dbHandler, e) || conn.isClosed();
+            throw e;
+        } finally {
+            if (connectionFailed) {
+                pool.invalidate(dbHandler);
+            } else {
+                pool.release(dbHandler);
+            }
+        }
+    }
+
+    /**
+     * Runs the statements of an atomic block on a connection in a transaction. Consecutive
+     * statements with the same SQL are sent as one batch, unless the SQL may return rows or
+     * the driver can not batch.
+     *
+     * @return The total of the affected rows and the result of every statement, either its
+     *         update count or its rows
+     */
+    private JsonObject runBlock(DBConnectionPool pool, DBHandler dbHandler, List<Statement> block, int queryTimeout)
+            throws SQLException {
+
+        boolean batchUpdates = dbHandler.getDialectProfile().supportsBatchUpdates();
+        long affectedRows = 0;
+        JsonArray results = new JsonArray();
+
+        int start = 0;
+        while (start < block.size()) {
+            String sql = block.get(start).getQuery();
+            boolean returnsRows = SqlTables.mayReturnRows(sql);
+            int end = start + 1;
+            while (batchUpdates && !returnsRows && end < block.size() && sql.equals(block.get(end).getQuery())) {
+                end++;
+            }
+
+            PreparedStatement ps = dbHandler.prepareStatement(sql, StatementCache.StatementKind.PLAIN);
+            try {
+                if (queryTimeout > 0) {
+                    ps.setQueryTimeout(queryTimeout);
                 }
-                // skip BINARY, VARBINARY and LONGVARBINARY
-                case Types.DATE: {
-                    if (value != null && value.length() != 0) {
-                        ps.setDate(columnNum, Date.valueOf(value));
+                if (end - start > 1) {
+                    for (int i = start; i < end; i++) {
+                        bindParameters(ps, block.get(i));
+                        ps.addBatch();
+                    }
+                    int[] counts;
+                    try {
+                        counts = ps.executeBatch();
+                    } catch (BatchUpdateException e) {
+                        // drivers either stop at the failed statement or go on and mark it as failed
+                        int[] batchCounts = e.getUpdateCounts() == null ? new int[0] : e.getUpdateCounts();
+                        int failed = batchCounts.length;
+                        for (int i = 0; i < batchCounts.length; i++) {
+                            if (batchCounts[i] == java.sql.Statement.EXECUTE_FAILED) {
+                                failed = i;
+                                break;
+                            }
+                        }
+                        throw new SQLException("Statement " + (start + failed) + " of the atomic block failed: "
+                                + e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
+                    } finally {
+                        ps.clearBatch();
+                    }
+                    log.debug("Executed statements {} to {} of the atomic block as a batch", start, end - 1);
+                    for (int count : counts) {
+                        JsonObject result = new JsonObject();
+                        result.addProperty("updateCount", count);
+                        results.add(result);
+                        if (count > 0) {
+                            affectedRows += count;
+                        }
+                    }
+                } else {
+                    bindParameters(ps, block.get(start));
+                    JsonObject result = new JsonObject();
+                    if (ps.execute()) {
+                        try (ResultSet rs = ps.getResultSet()) {
+                            result.add("rows", ResultSetMapper.mapResultSetToJsonArray(rs));
+                        }
                     } else {
-                        ps.setNull(columnNum, Types.DATE);
+                        int count = ps.getUpdateCount();
+                        result.addProperty("updateCount", count);
+                        if (count > 0) {
+                            affectedRows += count;
+                        }
                     }
-                    break;
+                    results.add(result);
                 }
-                case Types.TIME: {
-                    if (value != null && value.length() != 0) {
-                        ps.setTime(columnNum, Time.valueOf(value));
-                    } else {
-                        ps.setNull(columnNum, Types.TIME);
+            } finally {
+                dbHandler.releaseStatement(ps);
+            }
+            if (!SqlTables.isReadOnly(sql)) {
+                invalidateCachedResults(pool, dbHandler, sql, false);
+            }
+            start = end;
+        }
+
+        JsonObject resultJSON = new JsonObject();
+        resultJSON.addProperty("affectedRows", affectedRows);
+        resultJSON.add("results", results);
+        return resultJSON;
+    }
+
+    /**
+     * Reads an optional integer parameter which may not be negative.
+     */
+    private int getNonNegativeInt(MessageContext messageContext, String name, int defaultValue)
+            throws InvalidConfigurationException {
+        String value = (String) getParameter(messageContext, name);
+        if (StringUtils.isEmpty(value)) {
+            return defaultValue;
+        }
+        int parsed;
+        try {
+            parsed = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidConfigurationException("Invalid value for " + name + ": " + value, e);
+        }
+        if (parsed < 0) {
+            throw new InvalidConfigurationException("Parameter '" + name + "' should not be negative");
+        }
+        return parsed;
+    }
+
+    /**
+     * Returns the output format of a select result. Unknown formats fall back to JSON.
+     */
+    private String getResultFormat(MessageContext messageContext) {
+        String format = ResultSetMapper.getTargetFormat(messageContext).trim().toLowerCase();
+        switch (format) {
+            case Constants.FORMAT_XML:
+            case Constants.FORMAT_CSV:
+            case Constants.FORMAT_TEXT:
+            case Constants.FORMAT_JSON:
+                return format;
+            default:
+                if (!format.isEmpty()) {
+                    log.warn("Unsupported format: {}. Using JSON as default.", format);
+                }
+                return Constants.FORMAT_JSON;
+        }
+    }
+
+    /**
+     * Creates the buffer a streamed result is serialized into. Results in the xml, csv and text
+     * formats spill to a temporary file above the result spill threshold of the connection.
+     * JSON results are kept on heap: JsonUtil buffers a JSON payload stream in full when it is
+     * read, so spilling it would not bound the memory of the message.
+     */
+    private PayloadOutputStream newPayloadBuffer(DBConnectionPool pool, String resultFormat) {
+        if (pool == null || Constants.FORMAT_JSON.equals(resultFormat)) {
+            return new PayloadOutputStream();
+        }
+        ConnectionConfiguration config = pool.getConfig();
+        return new PayloadOutputStream(config.getResultSpillThreshold(), config.isResultSpillCompression());
+    }
+
+    /**
+     * Creates the shared read of a select that sets a result cache TTL, if the connection pool
+     * has a result cache, or that coalesces concurrent identical selects. Only read-only selects
+     * are cached or coalesced, and selects whose tables can not be found are not cached, since no
+     * write would invalidate them.
+     *
+     * @return The shared read, or null if the result is not shared
+     */
+    private SharedRead newSharedRead(MessageContext messageContext, DBConnectionPool pool,
+            OperationDescriptor descriptor, Statement stmt, String resultFormat, boolean columnar,
+            KeysetPagination.CursorTracker cursorTracker) throws InvalidConfigurationException {
+
+        if (pool == null || !descriptor.isSelect() || operation.equals(Constants.OPERATION_ITERATE)) {
+            return null;
+        }
+        if (!SqlTables.isReadOnly(stmt.getQuery())) {
+            // a select that writes or locks rows must run on its own connection every time
+            log.debug("Result is not shared, the query may write or lock rows: " + stmt.getQuery());
+            return null;
+        }
+        boolean coalesce = Boolean.parseBoolean((String) getParameter(messageContext, Constants.COALESCE_READS));
+
+        ResultCache resultCache = pool.getResultCache();
+        String ttl = resultCache == null ? null : (String) getParameter(messageContext, Constants.RESULT_CACHE_TTL);
+        long ttlMillis = 0;
+        if (StringUtils.isNotEmpty(ttl)) {
+            try {
+                ttlMillis = Long.parseLong(ttl.trim());
+            } catch (NumberFormatException e) {
+                throw new InvalidConfigurationException("Invalid value for " + Constants.RESULT_CACHE_TTL + ": "
+                        + ttl, e);
+            }
+        }
+        Set<String> tables = Collections.emptySet();
+        if (ttlMillis > 0) {
+            tables = SqlTables.of(stmt.getQuery());
+            if (tables.isEmpty()) {
+                log.debug("Result is not cached, no table found in query: " + stmt.getQuery());
+                ttlMillis = 0;
+            }
+        }
+        if (ttlMillis <= 0 && !coalesce) {
+            return null;
+        }
+
+        List<Object> key = new ArrayList<>();
+        key.add(operation);
+        key.add(stmt.getQuery());
+        key.add(resultFormat);
+        key.add(columnar);
+        key.add(descriptor.getMaxRows());
+        key.add(cursorTracker == null ? 0 : cursorTracker.getPageSize());
+        for (Statement.Parameter parameter : stmt.getParameters()) {
+            if (parameter != null) {
+                key.add(parameter.getType());
+                key.add(parameter.getValue());
+            }
+        }
+        return new SharedRead(key, ttlMillis > 0 ? resultCache : null, tables, ttlMillis,
+                coalesce ? pool.getSingleFlight() : null);
+    }
+
+    /**
+     * Sets a select result shared by the result cache or by a concurrent identical select the
+     * same way as the result of the query. Every message parses its own copy of the payload.
+     */
+    private void handleSerializedResult(MessageContext messageContext, byte[] payload, String resultFormat,
+            String responseVariable, boolean overwriteBody) {
+        if (!Constants.FORMAT_JSON.equals(resultFormat)) {
+            Utils.handleFormattedResponse(messageContext, resultFormat, new ByteArrayInputStream(payload),
+                    responseVariable, overwriteBody);
+        } else if (overwriteBody) {
+            Utils.setJsonStreamAsPayload(messageContext, new ByteArrayInputStream(payload));
+        } else {
+            JsonObject result = JsonParser.parseString(new String(payload, StandardCharsets.UTF_8)).getAsJsonObject();
+            Utils.handleConnectorResponse(messageContext, responseVariable, overwriteBody, result, null);
+        }
+    }
+
+    /**
+     * Drops the cached results of the tables written by a statement.
+     *
+     * @param sql  The SQL text of the statement.
+     * @param call Whether the statement is a procedure call, which may write any table.
+     */
+    private void invalidateCachedResults(DBConnectionPool pool, DBHandler dbHandler, String sql, boolean call) {
+        if (pool == null || pool.getResultCache() == null) {
+            return;
+        }
+        Set<String> tables = call ? Collections.<String>emptySet() : SqlTables.of(sql);
+        if (tables.isEmpty()) {
+            tables = Collections.singleton(ResultCache.ALL_TABLES);
+        }
+        invalidateCachedResults(pool, dbHandler, tables);
+        dbHandler.recordWrittenTables(tables);
+    }
+
+    private void invalidateCachedResults(DBConnectionPool pool, DBHandler dbHandler, Set<String> tables) {
+        if (pool != null && pool.getResultCache() != null && !tables.isEmpty()) {
+            pool.getResultCache().invalidate(tables);
+            log.debug("Invalidated cached results of tables " + tables + ": " + pool.getResultCache());
+        }
+    }
+
+    /**
+     * Returns whether a statement may run on a read replica: a select, or an executeQuery
+     * returning a result set, whose SQL only reads.
+     */
+    private boolean isReplicaReadable(OperationDescriptor descriptor, Statement stmt) {
+        if (!operation.equals(Constants.OPERATION_SELECT) && !operation.equals(Constants.OPERATION_EXECUTE_QUERY)) {
+            return false;
+        }
+        return descriptor.isSelect() && SqlTables.isReadOnly(stmt.getQuery());
+    }
+
+    /**
+     * Returns whether a read has to run on the primary because the message flow wrote through
+     * the same connection within the read-your-writes window of the operation.
+     */
+    private boolean isPinnedToPrimary(MessageContext messageContext, String connectionName)
+            throws InvalidConfigurationException {
+        String window = (String) getParameter(messageContext, Constants.READ_YOUR_WRITES_WINDOW);
+        if (StringUtils.isEmpty(window)) {
+            return false;
+        }
+        long windowMillis;
+        try {
+            windowMillis = Long.parseLong(window.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidConfigurationException("Invalid value for " + Constants.READ_YOUR_WRITES_WINDOW + ": "
+                    + window, e);
+        }
+        Object lastWrite = messageContext.getProperty(Constants.DB_LAST_WRITE + "_" + connectionName);
+        return windowMillis > 0 && lastWrite instanceof Long
+                && System.currentTimeMillis() - (Long) lastWrite < windowMillis;
+    }
+
+    /**
+     * Records the time of a write in the message context, so that reads of the same message
+     * flow can be kept on the primary for their read-your-writes window.
+     */
+    private void recordWrite(MessageContext messageContext, DBConnectionPool pool, String connectionName) {
+        if (pool != null && pool.hasReadReplicas()) {
+            messageContext.setProperty(Constants.DB_LAST_WRITE + "_" + connectionName, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Returns the page size of a keyset paged select, given by the limit parameter.
+     */
+    private int getPageSize(MessageContext messageContext) throws InvalidConfigurationException {
+        String limit = (String) getParameter(messageContext, Constants.LIMIT);
+        try {
+            int pageSize = StringUtils.isEmpty(limit) ? 0 : Integer.parseInt(limit.trim());
+            if (pageSize > 0) {
+                return pageSize;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new InvalidConfigurationException("A positive limit is required for keyset pagination: " + limit);
+    }
+
+    /**
+     * Returns whether the select result is requested in the columnar layout.
+     */
+    private boolean isColumnarLayout(MessageContext messageContext) {
+        String layout = (String) getParameter(messageContext, Constants.RESULT_LAYOUT);
+        return layout != null && Constants.RESULT_LAYOUT_COLUMNAR.equalsIgnoreCase(layout.trim());
+    }
+
+    /**
+     * Serializes the select result directly from the ResultSet into a payload buffer
+     * in a single pass. The produced JSON is the same as the non streaming result.
+     *
+     * @param rs       The ResultSet of the executed query.
+     * @param query    The query, used for logging.
+     * @param columnar Whether to write the columnar layout instead of row objects.
+     * @param tracker  The keyset cursor tracker of the page, or null if the select is not keyset paged.
+     * @param payload  The buffer to write the serialized JSON result into.
+     */
+    private void writeSelectResult(ResultSet rs, String query, boolean columnar,
+            KeysetPagination.CursorTracker tracker, PayloadOutputStream payload) throws SQLException, IOException {
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(payload, StandardCharsets.UTF_8))) {
+            writer.setLenient(true);
+            writer.beginObject();
+            if (columnar) {
+                int rowCount = ResultSetMapper.writeResultSetToColumnarJson(rs, writer, tracker);
+                log.debug("Rows written to payload: " + rowCount);
+            } else if (!rs.isBeforeFirst()) {
+                log.debug("No results found for query: " + query);
+            } else {
+                writer.name("rows");
+                int rowCount = ResultSetMapper.writeResultSetToJson(rs, writer, tracker);
+                log.debug("Rows written to payload: " + rowCount);
+            }
+            if (tracker != null && tracker.getNextCursor() != null) {
+                writer.name(Constants.NEXT_CURSOR).value(tracker.getNextCursor());
+            }
+            writer.endObject();
+        }
+    }
+
+    /**
+     * Runs a replica read and, once the hedge delay of the policy has passed without a result,
+     * the same statement on a second replica if the hedge budget allows. The first result is
+     * used and the statement of the other read is cancelled. If the first read fails while its
+     * hedge runs, the result of the hedge is used.
+     *
+     * @param first The replica connection of the first read
+     * @param ps    The statement of the first read, with its parameters and options set
+     * @return The serialized result
+     */
+    private PayloadOutputStream executeHedgedRead(HedgePolicy policy, DBConnectionPool pool, DBHandler first,
+            PreparedStatement ps, Statement stmt, OperationDescriptor descriptor, String resultFormat,
+            boolean columnar, String query) throws Exception {
+
+        long start = System.nanoTime();
+        HedgedRead read = new HedgedRead();
+        read.start(HedgedRead.FIRST, ps);
+        long delay = policy.getHedgeDelay();
+        if (delay >= 0) {
+            read.setScheduledHedge(policy.schedule(() -> runHedge(read, policy, pool, first, stmt, descriptor,
+                    resultFormat, columnar, query), delay));
+        }
+
+        PayloadOutputStream payload;
+        try {
+            payload = writeReadResult(ps, pool, resultFormat, columnar, query);
+        } catch (Exception e) {
+            read.fail(HedgedRead.FIRST);
+            payload = read.awaitHedge();
+            if (payload == null) {
+                throw e;
+            }
+            log.debug("Read failed on the first replica, using the result of its hedge: " + e.getMessage());
+        }
+        if (!read.complete(HedgedRead.FIRST, payload) && payload != read.getResult()) {
+            payload.discard();
+            payload = read.getResult();
+        }
+        policy.recordRead(System.nanoTime() - start);
+        return payload;
+    }
+
+    /**
+     * Runs the hedge of a read on a hedging thread, with a connection of its own.
+     */
+    private void runHedge(HedgedRead read, HedgePolicy policy, DBConnectionPool pool, DBHandler first,
+            Statement stmt, OperationDescriptor descriptor, String resultFormat, boolean columnar, String query) {
+
+        DBHandler dbHandler = null;
+        try {
+            // a hedge firing just as the first read completes does not take from the budget
+            if (read.isDecided() || !policy.tryAcquireHedge()) {
+                return;
+            }
+            dbHandler = pool.borrowForHedge(first);
+            if (dbHandler == null) {
+                return;
+            }
+            PreparedStatement ps = getPreparedStatement(dbHandler, stmt);
+            try {
+                descriptor.applyStatementOptions(ps);
+                if (!read.start(HedgedRead.HEDGE, ps)) {
+                    return;
+                }
+                PayloadOutputStream payload = null;
+                try {
+                    payload = writeReadResult(ps, pool, resultFormat, columnar, query);
+                } finally {
+                    if (payload == null) {
+                        read.fail(HedgedRead.HEDGE);
                     }
-                    break;
                 }
-                case Types.TIMESTAMP: {
-                    if (value != null && value.length() != 0) {
-                        ps.setTimestamp(columnNum, Timestamp.valueOf(value));
-                    } else {
-                        ps.setNull(columnNum, Types.TIMESTAMP);
+                if (read.complete(HedgedRead.HEDGE, payload)) {
+                    policy.recordHedgeWin();
+                    log.debug("Hedged read answered before the first replica");
+                } else {
+                    payload.discard();
+                }
+            } finally {
+                dbHandler.releaseStatement(ps);
+            }
+        } catch (Exception e) {
+            log.debug("Hedged read failed: " + e.getMessage());
+            if (pool.recordFailure(dbHandler, e)) {
+                pool.invalidate(dbHandler);
+                dbHandler = null;
+            }
+        } finally {
+            if (dbHandler != null) {
+                pool.release(dbHandler);
+            }
+        }
+    }
+
+    /**
+     * Runs a select and serializes its result the way a streamed select result is written.
+     */
+    private PayloadOutputStream writeReadResult(PreparedStatement ps, DBConnectionPool pool, String resultFormat,
+            boolean columnar, String query) throws SQLException, IOException {
+        try (ResultSet rs = ps.executeQuery()) {
+            PayloadOutputStream payload = newPayloadBuffer(pool, resultFormat);
+            try {
+                if (!Constants.FORMAT_JSON.equals(resultFormat)) {
+                    ResultSetMapper.writeResultSet(rs, resultFormat, payload);
+                } else {
+                    writeSelectResult(rs, query, columnar, null, payload);
+                }
+            } catch (SQLException | IOException | RuntimeException e) {
+                payload.discard();
+                throw e;
+            }
+            return payload;
+        }
+    }
+
+    /**
+     * Serializes every result of an executed procedure call into a payload buffer. The result
+     * sets are written one after the other as they are returned, followed by the summed update
+     * count and the values of the OUT parameters, which are read once all results are consumed.
+     *
+     * @param ps           The executed call statement.
+     * @param hasResultSet Whether the first result is a ResultSet.
+     * @param stmt         The statement, holding the OUT parameters of the call.
+     * @param payload      The buffer to write the serialized JSON result into.
+     */
+    private void writeCallResult(PreparedStatement ps, boolean hasResultSet, Statement stmt,
+            PayloadOutputStream payload) throws SQLException, IOException {
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(payload, StandardCharsets.UTF_8))) {
+            writer.setLenient(true);
+            writer.beginObject();
+
+            int resultSetCount = 0;
+            int updateCount = -1;
+            boolean isResultSet = hasResultSet;
+            while (true) {
+                if (isResultSet) {
+                    if (resultSetCount == 0) {
+                        writer.name(Constants.RESULT_SETS).beginArray();
                     }
-                    break;
+                    try (ResultSet rs = ps.getResultSet()) {
+                        int rowCount = ResultSetMapper.writeResultSetToJson(rs, writer);
+                        log.debug("Result set " + (resultSetCount + 1) + ": " + rowCount + " rows");
+                    }
+                    resultSetCount++;
+                } else {
+                    int count = ps.getUpdateCount();
+                    if (count == -1) {
+                        break;
+                    }
+                    updateCount = updateCount == -1 ? count : updateCount + count;
                 }
-                // skip CLOB, BLOB, ARRAY, DISTINCT, STRUCT, REF, JAVA_OBJECT
-                default: {
-                    String msg = "Trying to set an unsupported JDBC Type : " + param.getType() +
-                            " against column : " + columnNum + " and statement : " +
-                            stmt.getQuery() +
-                            " used by a DB connector (see java.sql.Types for valid type values)";
-                    throw new SQLException(msg);
+                isResultSet = ps.getMoreResults();
+            }
+            if (resultSetCount > 0) {
+                writer.endArray();
+            }
+            writer.name(Constants.UPDATE_COUNT).value(updateCount);
+            log.debug("Update count: " + updateCount);
+
+            List<Statement.OutParameter> outParameters = stmt.getOutParameters();
+            if (!outParameters.isEmpty()) {
+                CallableStatement cs = (CallableStatement) ps;
+                int[] outPositions = stmt.getOutPositions();
+                writer.name(Constants.OUTPUT_PARAMETERS).beginObject();
+                for (int i = 0; i < outPositions.length; i++) {
+                    writer.name(outParameters.get(i).getName());
+                    ColumnReader.writeValue(cs.getObject(outPositions[i]), writer);
                 }
+                writer.endObject();
             }
+            writer.endObject();
+        }
+    }
 
-            columnNum++;
+    /**
+     * Gets a PreparedStatement for the given statement from the statement cache of the
+     * connection and binds the statement parameters.
+     * 
+     * @param dbHandler The connection handler owning the JDBC connection.
+     * @param stmt      The statement object containing the SQL query and parameters.
+     */
+    private PreparedStatement getPreparedStatement(DBHandler dbHandler, Statement stmt)
+            throws SQLException, Exception {
+        StatementCache.StatementKind kind = StatementCache.StatementKind.PLAIN;
+        if (operation != null && operation.equalsIgnoreCase(Constants.OPERATION_CALL)) {
+            kind = StatementCache.StatementKind.CALL;
+        } else if (operation != null && operation.equalsIgnoreCase(Constants.OPERATION_INSERT) &&
+                dbHandler.getDialectProfile().supportsGeneratedKeys()) {
+            kind = StatementCache.StatementKind.GENERATED_KEYS;
+        }
+        PreparedStatement ps = dbHandler.prepareStatement(stmt.getQuery(), kind);
+        try {
+            bindParameters(ps, stmt);
+        } catch (Exception e) {
+            dbHandler.releaseStatement(ps);
+            throw e;
         }
         return ps;
     }
 
     /**
-     * Extract paramters from the param manager values
-     * matching with the columnnames and types list
+     * Binds the parameters of the statement to the PreparedStatement.
+     *
+     * @param ps   The PreparedStatement to bind the parameters to.
+     * @param stmt The statement object containing the SQL query and parameters.
      */
-    private void processColumnParameters(MessageContext messageContext, Statement stmnt,
-            String[] columnNamesArray, String[] columnTypesArray)
-            throws InvalidConfigurationException {
+    private void bindParameters(PreparedStatement ps, Statement stmt) throws SQLException {
+        List<Statement.Parameter> parameters = stmt.getParameters();
+        List<Statement.OutParameter> outParameters = stmt.getOutParameters();
+        int[] outPositions = outParameters.isEmpty() ? new int[0] : stmt.getOutPositions();
 
-        if (columnNamesArray == null || columnTypesArray == null) {
-            return;
+        int columnNum = 1;
+        for (Statement.Parameter param : parameters) {
+            if (param == null) {
+                continue;
+            }
+            while (isOutPosition(outPositions, columnNum)) {
+                columnNum++;
+            }
+
+            ParameterBinder binder = param.getBinder();
+            if (binder == null) {
+                String msg = "Trying to set an unsupported JDBC Type : " + param.getType() +
+                        " against column : " + columnNum + " and statement : " +
+                        stmt.getQuery() +
+                        " used by a DB connector (see java.sql.Types for valid type values)";
+                throw new SQLException(msg);
+            }
+            binder.bind(ps, columnNum, param.getValue());
+
+            columnNum++;
+        }
+
+        for (int i = 0; i < outPositions.length; i++) {
+            ((CallableStatement) ps).registerOutParameter(outPositions[i], outParameters.get(i).getType());
         }
+    }
 
-        for (int i = 0; i < columnNamesArray.length; i++) {
-            String key = operation.toLowerCase() + ":" + columnNamesArray[i].trim();
-            Object propertyValue = messageContext.getProperty(key);
+    private static boolean isOutPosition(int[] outPositions, int position) {
+        for (int outPosition : outPositions) {
+            if (outPosition == position) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Extract paramters from the param manager values
+     * matching with the compiled column names and types
+     */
+    private void processColumnParameters(MessageContext messageContext, Statement stmnt,
+            OperationDescriptor descriptor) throws InvalidConfigurationException {
+
+        for (int i = 0; i < descriptor.getColumnCount(); i++) {
+            Object propertyValue = messageContext.getProperty(descriptor.getColumnKey(i));
 
             if (propertyValue == null) {
                 throw new InvalidConfigurationException(
-                        "Missing value for column: " + columnNamesArray[i].trim());
+                        "Missing value for column: " + descriptor.getColumnName(i));
             }
 
             String valueString = propertyValue.toString();
@@ -673,10 +1660,10 @@ public class ExecuteQuery extends AbstractConnector {
 
             } else {
                 throw new InvalidConfigurationException(
-                        "Invalid value format for column: " + columnNamesArray[i].trim());
+                        "Invalid value format for column: " + descriptor.getColumnName(i));
             }
 
-            stmnt.addParameter(columnTypesArray[i].trim(), value);
+            stmnt.addParameter(descriptor.getColumnType(i), value);
         }
     }
 
@@ -732,6 +1719,47 @@ public class ExecuteQuery extends AbstractConnector {
 
     }
 
+    /**
+     * Returns the compiled descriptor for the static template inputs of this invocation.
+     * Descriptors are cached by their raw template values, so templates are parsed once.
+     */
+    private OperationDescriptor getOperationDescriptor(MessageContext messageContext, String query)
+            throws InvalidConfigurationException {
+
+        String preparedStmt = (String) getParameter(messageContext, Constants.PREPARED_STMT);
+        String queryTimeout = (String) getParameter(messageContext, Constants.QUERY_TIMEOUT);
+        String fetchSize = (String) getParameter(messageContext, Constants.FETCH_SIZE);
+        String maxRows = (String) getParameter(messageContext, Constants.MAX_ROWS);
+        String autoParameterize = (String) getParameter(messageContext, Constants.AUTO_PARAMETERIZE);
+        String keysetColumns = (String) getParameter(messageContext, Constants.KEYSET_COLUMNS);
+        String outParameters = Constants.OPERATION_CALL.equals(operation)
+                ? (String) getParameter(messageContext, Constants.OUT_PARAMETERS) : null;
+
+        String columnNames = null, columnTypes = null, isPreparedStatement = null, isResultSet = null;
+        if (Constants.OPERATION_EXECUTE_QUERY.equals(operation) || Constants.OPERATION_ITERATE.equals(operation)) {
+            isPreparedStatement = (String) getParameter(messageContext, Constants.IS_PREPARED_STATEMENT);
+            isResultSet = (String) getParameter(messageContext, Constants.IS_RESULT_SET);
+        } else {
+            columnNames = (String) getParameter(messageContext, Constants.COLUMN_NAMES);
+            columnTypes = (String) getParameter(messageContext, Constants.COLUMN_TYPES);
+        }
+
+        List<String> key = Arrays.asList(operation, query, preparedStmt, columnNames, columnTypes, queryTimeout,
+                fetchSize, maxRows, isPreparedStatement, isResultSet, autoParameterize, keysetColumns,
+                outParameters);
+        OperationDescriptor descriptor = descriptorCache.get(key);
+        if (descriptor == null) {
+            descriptor = OperationDescriptor.compile(operation, query, preparedStmt, columnNames, columnTypes,
+                    queryTimeout, fetchSize, maxRows, isPreparedStatement, isResultSet, autoParameterize,
+                    keysetColumns, outParameters);
+            // template values are static in practice, do not let dynamic values grow the cache
+            if (descriptorCache.size() < MAX_CACHED_DESCRIPTORS) {
+                descriptorCache.put(key, descriptor);
+            }
+        }
+        return descriptor;
+    }
+
     /**
      * Processes the given expression using InlineExpressionUtil
      */
@@ -752,9 +1780,10 @@ public class ExecuteQuery extends AbstractConnector {
      * Prepares the transaction environment by creating or reusing a connection and
      * starting a transaction if needed.
      */
-    private DBHandler prepareTransactionEnvironment(MessageContext messageContext, ConnectionHandler handler,
-            String connectionName, String transactionIsolation) throws SQLException, ConnectException {
+    private DBHandler prepareTransactionEnvironment(MessageContext messageContext, DBConnectionPool pool,
+            ExecutionContext context, String transactionIsolation) throws SQLException, ConnectException {
 
+        String connectionName = context.getConnectionName();
         DBHandler dbHandlerConnection = null;
         Connection conn = null;
 
@@ -764,23 +1793,19 @@ public class ExecuteQuery extends AbstractConnector {
             messageContext.setProperty(Constants.DB_CONNECTION + "_" + connectionName, null);
 
             log.debug("Using connection from message context");
-            conn = ((DBHandler) connectionObj).getJDBCConnection();
-            if (conn != null && !conn.isClosed()) {
-                dbHandlerConnection = (DBHandler) connectionObj;
-            } else {
-                dbHandlerConnection = new DBHandler(((DBHandler) connectionObj).getConfig());
-                conn = dbHandlerConnection.getJDBCConnection();
-            }
-        } else {
-            // check if there is a connection in the connection pool
-            dbHandlerConnection = (DBHandler) handler.getConnection(Constants.CONNECTOR_NAME, connectionName);
+            dbHandlerConnection = (DBHandler) connectionObj;
             conn = dbHandlerConnection.getJDBCConnection();
-
-            // check if connection is valid else create a new connection
             if (conn == null || conn.isClosed()) {
-                dbHandlerConnection = new DBHandler(dbHandlerConnection.getConfig());
-                conn = dbHandlerConnection.getJDBCConnection();
+                if (pool != null) {
+                    pool.invalidate(dbHandlerConnection);
+                } else {
+                    dbHandlerConnection.close();
+                }
+                dbHandlerConnection = borrowConnection(pool, connectionName);
             }
+        } else {
+            // the pool validates the connection and replaces it if it is no longer usable
+            dbHandlerConnection = borrowConnection(pool, connectionName);
         }
 
         // check if transactionIsolation is set to something other than TRANSACTION_NONE
@@ -793,27 +1818,95 @@ public class ExecuteQuery extends AbstractConnector {
                 ConnectionConfiguration newConfig = dbHandlerConnection.getConfig();
 
                 // return the current connection to message context
-                if (dbHandlerConnection != null
-                        && handler.getStatusOfConnection(Constants.CONNECTOR_NAME, connectionName)) {
+                if (pool != null && !pool.isClosed()) {
                     messageContext.setProperty(Constants.DB_CONNECTION + "_" + connectionName,
                             dbHandlerConnection);
                 }
 
                 dbHandlerConnection = new DBHandler(newConfig);
-                isNewConnection = true;
+                context.setNewConnection(true);
 
                 log.debug("Creating new connection for transaction isolation level: " + transactionIsolation);
             }
 
             dbHandlerConnection.startTransaction(transactionIsolation);
-            isNewTransaction = true;
+            context.setNewTransaction(true);
         }
 
-        isOngoingTransaction = dbHandlerConnection.isTransactionStarted();
+        context.setOngoingTransaction(dbHandlerConnection.isTransactionStarted());
+        context.setDbHandler(dbHandlerConnection);
 
         return dbHandlerConnection;
     }
 
+    private static boolean isTransactionOperation(String operation) {
+        return Constants.BEGIN_TRANSACTION.equals(operation) || Constants.COMMIT_TRANSACTION.equals(operation)
+                || Constants.ROLLBACK_TRANSACTION.equals(operation);
+    }
+
+    /**
+     * Returns whether the statement runs in a transaction, either one left open in the message
+     * context or one started for the statement with a transaction isolation level.
+     */
+    private static boolean isTransactionActive(MessageContext messageContext, String connectionName,
+            String transactionIsolation) {
+        if (messageContext.getProperty(Constants.DB_CONNECTION + "_" + connectionName) instanceof DBHandler) {
+            return true;
+        }
+        return !StringUtils.isEmpty(transactionIsolation)
+                && !transactionIsolation.equalsIgnoreCase("TRANSACTION_NONE");
+    }
+
+    private DBHandler borrowConnection(DBConnectionPool pool, String connectionName)
+            throws SQLException, ConnectException {
+        if (pool == null) {
+            throw new ConnectException("Connection pool not found for connection: " + connectionName);
+        }
+        return pool.borrow();
+    }
+
+    private void releaseConnection(DBConnectionPool pool, DBHandler dbHandler) {
+        if (pool != null) {
+            pool.release(dbHandler);
+        } else {
+            dbHandler.close();
+        }
+    }
+
+    /**
+     * Sets the error response of a failed batch, including the indexes of the failed rows
+     * and the update counts of the rows that were processed.
+     */
+    private void handleBatchError(MessageContext msgCtx, BatchUpdateException e) {
+
+        String responseVariable = (String) getParameter(msgCtx, Constants.RESPONSE_VARIABLE);
+        Boolean overwriteBody = Boolean.parseBoolean((String) getParameter(msgCtx, Constants.OVERWRITE_BODY));
+
+        int[] updateCounts = e.getUpdateCounts() == null ? new int[0] : e.getUpdateCounts();
+        JsonArray counts = new JsonArray();
+        JsonArray failedRows = new JsonArray();
+        for (int i = 0; i < updateCounts.length; i++) {
+            counts.add(updateCounts[i]);
+            if (updateCounts[i] == java.sql.Statement.EXECUTE_FAILED) {
+                failedRows.add(i);
+            }
+        }
+        // the driver stopped at the first failure, which is the first row without an update count
+        if (failedRows.size() == 0) {
+            failedRows.add(updateCounts.length);
+        }
+
+        JsonObject resultJSON = Utils.generateErrorResult(msgCtx, e, Utils.getErrorCode(e));
+        JsonObject errorJSON = resultJSON.getAsJsonObject("error");
+        if (errorJSON != null) {
+            errorJSON.add("failedRows", failedRows);
+            errorJSON.add("updateCounts", counts);
+        }
+        Utils.handleConnectorResponse(msgCtx, responseVariable, overwriteBody, resultJSON, null);
+        handleException(Constants.GENERAL_ERROR_MSG + "Batch execution failed for rows " + failedRows + ": "
+                + e.getMessage(), e, msgCtx);
+    }
+
     private void handleError(MessageContext msgCtx, Exception e, Error error, String errorDetail) {
 
         String responseVariable = (String) getParameter(msgCtx, Constants.RESPONSE_VARIABLE);
@@ -0,0 +1,76 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.operations;
+
+import org.wso2.carbon.esb.connector.connections.DBHandler;
+
+/**
+ * State of a single operation invocation. Synapse shares one class mediator instance
+ * between all mediation threads, so anything that belongs to one message must live
+ * here instead of in fields of the mediator.
+ */
+class ExecutionContext {
+
+    private final String connectionName;
+
+    private DBHandler dbHandler;
+    private boolean newTransaction = false; // if a new transaction is started
+    private boolean newConnection = false; // if a new connection is created
+    private boolean ongoingTransaction = false; // if a transaction is already in progress
+
+    ExecutionContext(String connectionName) {
+        this.connectionName = connectionName;
+    }
+
+    String getConnectionName() {
+        return connectionName;
+    }
+
+    DBHandler getDbHandler() {
+        return dbHandler;
+    }
+
+    void setDbHandler(DBHandler dbHandler) {
+        this.dbHandler = dbHandler;
+    }
+
+    boolean isNewTransaction() {
+        return newTransaction;
+    }
+
+    void setNewTransaction(boolean newTransaction) {
+        this.newTransaction = newTransaction;
+    }
+
+    boolean isNewConnection() {
+        return newConnection;
+    }
+
+    void setNewConnection(boolean newConnection) {
+        this.newConnection = newConnection;
+    }
+
+    boolean isOngoingTransaction() {
+        return ongoingTransaction;
+    }
+
+    void setOngoingTransaction(boolean ongoingTransaction) {
+        this.ongoingTransaction = ongoingTransaction;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.operations;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.ScheduledFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.carbon.esb.connector.utils.PayloadOutputStream;
+
+/**
+ * A replica read of one invocation raced against its hedge on a second replica. The first
+ * attempt runs on the mediation thread, the hedge on a hedging thread once the hedge delay has
+ * passed. The first attempt to complete wins, and the statement of the other is cancelled.
+ * <p>
+ * A statement is only cancelled while its attempt has it registered, so a cancel never hits
+ * a cached statement that was handed back and reused by another query. An attempt whose
+ * result arrives after the read was decided discards it.
+ */
+final class HedgedRead {
+
+    static final int FIRST = 0;
+    static final int HEDGE = 1;
+
+    private static final Logger log = LoggerFactory.getLogger(HedgedRead.class);
+
+    private final PreparedStatement[] statements = new PreparedStatement[2];
+    private ScheduledFuture<?> scheduledHedge;
+    private boolean hedgeRunning;
+    private boolean decided;
+    private PayloadOutputStream result;
+
+    synchronized void setScheduledHedge(ScheduledFuture<?> scheduledHedge) {
+        this.scheduledHedge = scheduledHedge;
+    }
+
+    /**
+     * Registers the statement of an attempt before it is executed.
+     *
+     * @return false if the read is already decided and the attempt must not run
+     */
+    synchronized boolean start(int attempt, PreparedStatement ps) {
+        if (decided) {
+            return false;
+        }
+        statements[attempt] = ps;
+        if (attempt == HEDGE) {
+            hedgeRunning = true;
+        }
+        return true;
+    }
+
+    /**
+     * Offers the result of an attempt. The first result offered wins and the other attempt is
+     * cancelled.
+     *
+     * @return true if the result won, false if the read was already decided and the caller has
+     *         to discard the result
+     */
+    synchronized boolean complete(int attempt, PayloadOutputStream payload) {
+        end(attempt);
+        if (decided) {
+            return false;
+        }
+        decided = true;
+        result = payload;
+        cancel(attempt == FIRST ? HEDGE : FIRST);
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Ends an attempt that failed.
+     */
+    synchronized void fail(int attempt) {
+        end(attempt);
+        notifyAll();
+    }
+
+    /**
+     * Waits for the hedge after the first attempt failed, which it also does when the hedge
+     * won and cancelled it.
+     *
+     * @return The result of the hedge, or null if there is none and the failure stands
+     */
+    synchronized PayloadOutputStream awaitHedge() {
+        try {
+            while (!decided && hedgeRunning) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (decided) {
+            return result;
+        }
+        // no hedge will start once the read is decided
+        decided = true;
+        cancel(HEDGE);
+        return null;
+    }
+
+    synchronized boolean isDecided() {
+        return decided;
+    }
+
+    synchronized PayloadOutputStream getResult() {
+        return result;
+    }
+
+    private void end(int attempt) {
+        statements[attempt] = null;
+        if (attempt == HEDGE) {
+            hedgeRunning = false;
+        }
+    }
+
+    private void cancel(int attempt) {
+        if (attempt == HEDGE && scheduledHedge != null) {
+            scheduledHedge.cancel(false);
+        }
+        PreparedStatement ps = statements[attempt];
+        if (ps != null) {
+            try {
+                ps.cancel();
+            } catch (SQLException e) {
+                log.debug("Could not cancel the statement of the losing read: " + e.getMessage());
+            }
+        }
+    }
+}
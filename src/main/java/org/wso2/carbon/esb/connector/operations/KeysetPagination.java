@@ -0,0 +1,412 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.operations;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import org.wso2.carbon.esb.connector.exception.InvalidConfigurationException;
+import org.wso2.carbon.esb.connector.utils.ParameterBinder;
+import org.wso2.carbon.esb.connector.utils.ResultSetMapper;
+import org.wso2.carbon.esb.connector.utils.Statement;
+
+/**
+ * Keyset (seek) pagination of a select statement. Instead of skipping offset rows, every
+ * page after the first starts right after the key values of the last row of the previous
+ * page, so the database can seek into the key index and each page costs the same.
+ * <p>
+ * The select is wrapped as a derived table that is ordered by the key columns:
+ * <pre>
+ * SELECT * FROM (select) keyset_page WHERE k1 &gt;= ? AND (k1 &gt; ? OR (k1 = ? AND k2 &gt; ?)) ORDER BY k1, k2
+ * </pre>
+ * The ORDER BY, LIMIT, OFFSET and FETCH clauses of the select are dropped, and the page size
+ * is applied with the max rows of the statement. The seek predicate is spelled out instead of
+ * using a row value comparison, which not all databases support.
+ * <p>
+ * The key values of the last row are returned to the caller as an opaque cursor token, to be
+ * passed back for the next page. The key columns must be part of the select list, must not be
+ * null, and together must identify a row.
+ */
+final class KeysetPagination {
+
+    private static final Pattern KEY_COLUMN = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*");
+    private static final String[] PAGING_CLAUSES = {"ORDER BY", "LIMIT", "OFFSET", "FETCH"};
+    private static final String ALIAS = "keyset_page";
+
+    // binds a cursor string as is, an empty value stays an empty string
+    private static final ParameterBinder STRING_BINDER = (ps, i, v) -> ps.setString(i, v);
+
+    private final String[] keyColumns;
+    private final boolean[] descending;
+    private final String firstPageSql;
+    private final String seekSql;
+
+    private KeysetPagination(String[] keyColumns, boolean[] descending, String firstPageSql, String seekSql) {
+        this.keyColumns = keyColumns;
+        this.descending = descending;
+        this.firstPageSql = firstPageSql;
+        this.seekSql = seekSql;
+    }
+
+    /**
+     * Compiles the keyset pagination of a select statement.
+     *
+     * @param keyColumns   Comma separated key columns, each optionally followed by ASC or DESC,
+     *                     e.g. "created_at DESC, id DESC"
+     * @param preparedStmt The select statement
+     * @return The pagination
+     * @throws InvalidConfigurationException if the key columns are invalid, or the dropped paging
+     *                                       clauses of the select have placeholders
+     */
+    static KeysetPagination compile(String keyColumns, String preparedStmt) throws InvalidConfigurationException {
+        String[] specs = keyColumns.split(",");
+        String[] names = new String[specs.length];
+        boolean[] descending = new boolean[specs.length];
+        for (int i = 0; i < specs.length; i++) {
+            String[] parts = specs[i].trim().split("\\s+");
+            String direction = parts.length > 1 ? parts[1].toUpperCase(Locale.ROOT) : "ASC";
+            if (parts.length > 2 || !KEY_COLUMN.matcher(parts[0]).matches()
+                    || !("ASC".equals(direction) || "DESC".equals(direction))) {
+                throw new InvalidConfigurationException("Invalid keyset column: " + specs[i].trim());
+            }
+            names[i] = parts[0];
+            descending[i] = "DESC".equals(direction);
+        }
+
+        String base = "SELECT * FROM (" + stripPagingClauses(preparedStmt) + ") " + ALIAS;
+        StringBuilder orderBy = new StringBuilder(" ORDER BY ");
+        for (int i = 0; i < names.length; i++) {
+            orderBy.append(i == 0 ? "" : ", ").append(names[i]).append(descending[i] ? " DESC" : "");
+        }
+        return new KeysetPagination(names, descending, base + orderBy,
+                base + " WHERE " + seekPredicate(names, descending) + orderBy);
+    }
+
+    /**
+     * @return the statement of the first page if the cursor is empty, otherwise of the page
+     *         following the cursor
+     */
+    String getSql(String cursor) {
+        return cursor == null || cursor.isEmpty() ? firstPageSql : seekSql;
+    }
+
+    /**
+     * Decodes a cursor token and binds its key values to the seek predicate. Nothing is bound
+     * for the first page.
+     *
+     * @throws InvalidConfigurationException if the cursor is malformed or was not issued for
+     *                                       these key columns
+     */
+    void bindCursor(Statement statement, String cursor) throws InvalidConfigurationException {
+        if (cursor == null || cursor.isEmpty()) {
+            return;
+        }
+
+        int[] types = new int[keyColumns.length];
+        String[] values = new String[keyColumns.length];
+        try {
+            String json = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            JsonObject token = JsonParser.parseString(json).getAsJsonObject();
+            JsonArray keys = token.getAsJsonArray("k");
+            JsonArray entries = token.getAsJsonArray("v");
+            if (keys.size() != keyColumns.length || entries.size() != keyColumns.length) {
+                throw new InvalidConfigurationException("Cursor does not match the keyset columns");
+            }
+            for (int i = 0; i < keyColumns.length; i++) {
+                if (!keyColumns[i].equalsIgnoreCase(keys.get(i).getAsString())) {
+                    throw new InvalidConfigurationException("Cursor does not match the keyset columns");
+                }
+                JsonArray entry = entries.get(i).getAsJsonArray();
+                if (entry.size() != 2 || !entry.get(1).isJsonPrimitive()) {
+                    throw new InvalidConfigurationException("Invalid cursor: " + cursor);
+                }
+                types[i] = entry.get(0).getAsInt();
+                values[i] = entry.get(1).getAsString();
+                checkCursorValue(types[i], values[i]);
+            }
+        } catch (IllegalArgumentException | IllegalStateException | ClassCastException | UnsupportedOperationException
+                 | IndexOutOfBoundsException | NullPointerException | JsonParseException e) {
+            throw new InvalidConfigurationException("Invalid cursor: " + cursor, e);
+        }
+
+        // bind in the order of the placeholders of the seek predicate
+        if (keyColumns.length > 1) {
+            addCursorValue(statement, types[0], values[0]);
+        }
+        for (int i = 0; i < keyColumns.length; i++) {
+            for (int j = 0; j <= i; j++) {
+                addCursorValue(statement, types[j], values[j]);
+            }
+        }
+    }
+
+    /**
+     * @return a tracker that captures the key values of the last row of a page
+     */
+    CursorTracker newTracker(int pageSize) {
+        return new CursorTracker(pageSize);
+    }
+
+    /**
+     * Parses a key value of a cursor as its type, so that a tampered cursor is rejected
+     * before anything is bound.
+     *
+     * @throws IllegalArgumentException if the type is unknown or the value is not of the type
+     */
+    private static void checkCursorValue(int type, String value) {
+        switch (type) {
+            case Types.NUMERIC:
+                new BigDecimal(value);
+                break;
+            case Types.DATE:
+                java.sql.Date.valueOf(value);
+                break;
+            case Types.TIME:
+                java.sql.Time.valueOf(value);
+                break;
+            case Types.TIMESTAMP:
+                java.sql.Timestamp.valueOf(value);
+                break;
+            case Types.VARCHAR:
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown cursor value type: " + type);
+        }
+    }
+
+    private static void addCursorValue(Statement statement, int type, String value) {
+        if (type == Types.VARCHAR) {
+            statement.addParameter(type, value, STRING_BINDER);
+        } else {
+            statement.addParameter(type, value);
+        }
+    }
+
+    private static String seekPredicate(String[] names, boolean[] descending) {
+        if (names.length == 1) {
+            return names[0] + (descending[0] ? " < ?" : " > ?");
+        }
+        // the leading range on the first key lets the database seek into the index
+        StringBuilder predicate = new StringBuilder(names[0]).append(descending[0] ? " <= ?" : " >= ?")
+                .append(" AND (");
+        for (int i = 0; i < names.length; i++) {
+            predicate.append(i == 0 ? "" : " OR ").append('(');
+            for (int j = 0; j < i; j++) {
+                predicate.append(names[j]).append(" = ? AND ");
+            }
+            predicate.append(names[i]).append(descending[i] ? " < ?" : " > ?").append(')');
+        }
+        return predicate.append(')').toString();
+    }
+
+    /**
+     * Drops the trailing ORDER BY, LIMIT, OFFSET and FETCH clauses of the top level of a select.
+     *
+     * @throws InvalidConfigurationException if the dropped clauses have placeholders, whose
+     *                                       parameters would be bound to the wrong placeholders
+     */
+    static String stripPagingClauses(String sql) throws InvalidConfigurationException {
+        String upper = sql.toUpperCase(Locale.ROOT);
+        int depth = 0;
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                int close = sql.indexOf(c, i + 1);
+                i = close < 0 ? sql.length() : close + 1;
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (depth == 0 && (i == 0 || !isWordChar(sql.charAt(i - 1)))) {
+                for (String clause : PAGING_CLAUSES) {
+                    if (matchesClause(upper, i, clause)) {
+                        if (hasPlaceholder(sql, i)) {
+                            throw new InvalidConfigurationException("Keyset pagination can not drop the "
+                                    + "placeholders of the paging clauses of the select: " + sql.substring(i).trim());
+                        }
+                        return sql.substring(0, i).trim();
+                    }
+                }
+            }
+            i++;
+        }
+        return sql.trim();
+    }
+
+    /**
+     * @return whether the statement has a ? placeholder from the given index on, outside of
+     *         quoted literals and identifiers
+     */
+    private static boolean hasPlaceholder(String sql, int start) {
+        int i = start;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                int close = sql.indexOf(c, i + 1);
+                i = close < 0 ? sql.length() : close + 1;
+                continue;
+            }
+            if (c == '?') {
+                return true;
+            }
+            i++;
+        }
+        return false;
+    }
+
+    private static boolean matchesClause(String upper, int start, String clause) {
+        String[] words = clause.split(" ");
+        int i = start;
+        for (int w = 0; w < words.length; w++) {
+            if (!upper.startsWith(words[w], i)) {
+                return false;
+            }
+            i += words[w].length();
+            if (w < words.length - 1) {
+                int next = i;
+                while (next < upper.length() && Character.isWhitespace(upper.charAt(next))) {
+                    next++;
+                }
+                if (next == i) {
+                    return false;
+                }
+                i = next;
+            }
+        }
+        return i == upper.length() || !isWordChar(upper.charAt(i));
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    /**
+     * Captures the key values of the last row of a full page while the page is written. Rows
+     * before that are only counted, and a page with fewer rows than the page size is the
+     * last one and has no next cursor.
+     */
+    final class CursorTracker implements ResultSetMapper.RowListener {
+
+        private final int pageSize;
+        private int rowCount;
+        private String nextCursor;
+
+        private CursorTracker(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public void onRow(ResultSet rs) throws SQLException {
+            if (++rowCount == pageSize) {
+                nextCursor = encode(rs);
+            }
+        }
+
+        int getPageSize() {
+            return pageSize;
+        }
+
+        /**
+         * @return the cursor of the next page, or null if this is the last page
+         */
+        String getNextCursor() {
+            return nextCursor;
+        }
+
+        private String encode(ResultSet rs) throws SQLException {
+            JsonArray keys = new JsonArray(keyColumns.length);
+            JsonArray entries = new JsonArray(keyColumns.length);
+            for (String keyColumn : keyColumns) {
+                JsonElement entry = readKey(rs, rs.findColumn(keyColumn));
+                if (entry == null) {
+                    throw new SQLException("Keyset column " + keyColumn + " is null, the next page can not be "
+                            + "located");
+                }
+                keys.add(keyColumn);
+                entries.add(entry);
+            }
+            JsonObject token = new JsonObject();
+            token.add("k", keys);
+            token.add("v", entries);
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(token.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        private JsonElement readKey(ResultSet rs, int column) throws SQLException {
+            int type;
+            String value;
+            switch (rs.getMetaData().getColumnType(column)) {
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                case Types.NUMERIC:
+                case Types.DECIMAL:
+                    type = Types.NUMERIC;
+                    BigDecimal number = rs.getBigDecimal(column);
+                    value = number == null ? null : number.toPlainString();
+                    break;
+                case Types.DATE:
+                    type = Types.DATE;
+                    value = toString(rs.getDate(column));
+                    break;
+                case Types.TIME:
+                    type = Types.TIME;
+                    value = toString(rs.getTime(column));
+                    break;
+                case Types.TIMESTAMP:
+                    type = Types.TIMESTAMP;
+                    value = toString(rs.getTimestamp(column));
+                    break;
+                default:
+                    type = Types.VARCHAR;
+                    value = rs.getString(column);
+            }
+            if (value == null) {
+                return null;
+            }
+            JsonArray entry = new JsonArray(2);
+            entry.add(type);
+            entry.add(value);
+            return entry;
+        }
+
+        private String toString(Object value) {
+            return value == null ? null : value.toString();
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.operations;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.apache.commons.lang.StringUtils;
+import org.wso2.carbon.esb.connector.exception.InvalidConfigurationException;
+import org.wso2.carbon.esb.connector.utils.Constants;
+import org.wso2.carbon.esb.connector.utils.Statement;
+
+/**
+ * Immutable, pre-parsed form of the static template inputs of an operation. It is
+ * compiled once per distinct set of template values and reused for every message,
+ * so the per-message path only has to evaluate the dynamic values.
+ */
+final class OperationDescriptor {
+
+    private static final int NOT_SET = -1;
+
+    private final String operation;
+    private final String query;
+    private final String preparedStmt;
+    private final boolean select;
+
+    private final String[] columnNames;
+    private final String[] columnKeys;
+    private final int[] columnTypes;
+
+    // OUT parameters of a procedure call
+    private final String[] outNames;
+    private final int[] outTypes;
+    private final int[] outPositions;
+
+    private final int queryTimeout;
+    private final int fetchSize;
+    private final int maxRows;
+
+    // raw query with its inline expressions rewritten into bind markers, if enabled and possible
+    private final ParameterizedQuery parameterizedQuery;
+
+    // seek pagination of a select, if keyset columns are given
+    private final KeysetPagination keysetPagination;
+
+    private OperationDescriptor(String operation, String query, String preparedStmt, boolean select,
+            String[] columnNames, int[] columnTypes, String[] outNames, int[] outTypes, int[] outPositions,
+            int queryTimeout, int fetchSize, int maxRows, ParameterizedQuery parameterizedQuery,
+            KeysetPagination keysetPagination) {
+        this.operation = operation;
+        this.query = query;
+        this.preparedStmt = preparedStmt;
+        this.select = select;
+        this.columnNames = columnNames;
+        this.columnTypes = columnTypes;
+        this.outNames = outNames;
+        this.outTypes = outTypes;
+        this.outPositions = outPositions;
+        this.queryTimeout = queryTimeout;
+        this.fetchSize = fetchSize;
+        this.maxRows = maxRows;
+        this.parameterizedQuery = parameterizedQuery;
+        this.keysetPagination = keysetPagination;
+
+        this.columnKeys = new String[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            columnKeys[i] = operation.toLowerCase() + ":" + columnNames[i];
+        }
+    }
+
+    /**
+     * Compiles the static template inputs of an operation.
+     *
+     * @throws InvalidConfigurationException if the template inputs are invalid
+     */
+    static OperationDescriptor compile(String operation, String query, String preparedStmt, String columnNames,
+            String columnTypes, String queryTimeout, String fetchSize, String maxRows, String isPreparedStatement,
+            String isResultSet, String autoParameterize, String keysetColumns, String outParameters)
+            throws InvalidConfigurationException {
+
+        boolean select = Constants.OPERATION_SELECT.equals(operation);
+        if (Constants.OPERATION_BATCH.equals(operation) && StringUtils.isEmpty(preparedStmt)) {
+            // a batch always runs the query as a prepared statement
+            preparedStmt = query;
+        }
+        if (Constants.OPERATION_EXECUTE_QUERY.equals(operation) || Constants.OPERATION_ITERATE.equals(operation)) {
+            // the rows of an iterated query are always read
+            select = Constants.OPERATION_ITERATE.equals(operation) || Boolean.parseBoolean(isResultSet);
+
+            // if operation is execute query and isPreparedStatement is set to true, the query is the statement
+            if (Boolean.parseBoolean(isPreparedStatement)) {
+                preparedStmt = query;
+            }
+        }
+
+        String[] names = new String[0];
+        int[] types = new int[0];
+        if (!StringUtils.isEmpty(columnNames) && !StringUtils.isEmpty(columnTypes)) {
+            String[] columnNamesArray = columnNames.split(",");
+            String[] columnTypesArray = columnTypes.split(",");
+
+            if (columnNamesArray.length != columnTypesArray.length) {
+                throw new InvalidConfigurationException("Number of column names and types do not match");
+            }
+
+            names = new String[columnNamesArray.length];
+            types = new int[columnTypesArray.length];
+            for (int i = 0; i < columnNamesArray.length; i++) {
+                names[i] = columnNamesArray[i].trim();
+                try {
+                    types[i] = Statement.resolveType(columnTypesArray[i].trim());
+                } catch (RuntimeException e) {
+                    throw new InvalidConfigurationException(e.getMessage(), e);
+                }
+            }
+        }
+
+        String[] outNames = new String[0];
+        int[] outTypes = new int[0];
+        int[] outPositions = new int[0];
+        if (Constants.OPERATION_CALL.equals(operation) && StringUtils.isNotBlank(outParameters)) {
+            // name:TYPE[:position], e.g. total:DECIMAL,status:VARCHAR:1
+            String[] entries = outParameters.split(",");
+            outNames = new String[entries.length];
+            outTypes = new int[entries.length];
+            outPositions = new int[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                String[] parts = entries[i].trim().split(":");
+                if (parts.length < 2 || parts.length > 3 || parts[0].trim().isEmpty()) {
+                    throw new InvalidConfigurationException("Invalid OUT parameter: " + entries[i].trim()
+                            + ", expected name:TYPE or name:TYPE:position");
+                }
+                outNames[i] = parts[0].trim();
+                try {
+                    outTypes[i] = Statement.resolveType(parts[1].trim());
+                } catch (RuntimeException e) {
+                    throw new InvalidConfigurationException(e.getMessage(), e);
+                }
+                if (parts.length == 3) {
+                    outPositions[i] = parseIntOption(Constants.OUT_PARAMETERS, parts[2]);
+                    if (outPositions[i] < 1) {
+                        throw new InvalidConfigurationException("Invalid position of OUT parameter: "
+                                + entries[i].trim());
+                    }
+                }
+            }
+        }
+
+        ParameterizedQuery parameterizedQuery = null;
+        if (StringUtils.isEmpty(preparedStmt) && Boolean.parseBoolean(autoParameterize)) {
+            parameterizedQuery = ParameterizedQuery.compile(query);
+        }
+
+        KeysetPagination keysetPagination = null;
+        if (Constants.OPERATION_SELECT.equals(operation) && StringUtils.isNotBlank(keysetColumns)) {
+            if (StringUtils.isEmpty(preparedStmt)) {
+                throw new InvalidConfigurationException("Keyset pagination requires a prepared statement");
+            }
+            keysetPagination = KeysetPagination.compile(keysetColumns, preparedStmt);
+        }
+
+        return new OperationDescriptor(operation, query, preparedStmt, select, names, types,
+                outNames, outTypes, outPositions,
+                parseIntOption(Constants.QUERY_TIMEOUT, queryTimeout),
+                parseIntOption(Constants.FETCH_SIZE, fetchSize),
+                parseIntOption(Constants.MAX_ROWS, maxRows), parameterizedQuery, keysetPagination);
+    }
+
+    private static int parseIntOption(String name, String value) throws InvalidConfigurationException {
+        if (StringUtils.isEmpty(value)) {
+            return NOT_SET;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidConfigurationException("Invalid value for " + name + ": " + value, e);
+        }
+    }
+
+    /**
+     * Applies the query timeout, fetch size and max rows options that are set.
+     */
+    void applyStatementOptions(PreparedStatement ps) throws SQLException {
+        if (queryTimeout != NOT_SET) {
+            ps.setQueryTimeout(queryTimeout);
+        }
+        if (fetchSize != NOT_SET) {
+            ps.setFetchSize(fetchSize);
+        }
+        if (maxRows != NOT_SET) {
+            ps.setMaxRows(maxRows);
+        }
+    }
+
+    String getOperation() {
+        return operation;
+    }
+
+    String getQuery() {
+        return query;
+    }
+
+    /**
+     * @return the prepared statement, or null/empty if the query has to be run as a raw query
+     */
+    String getPreparedStmt() {
+        return preparedStmt;
+    }
+
+    /**
+     * @return the raw query with its inline expressions rewritten into bind markers, or null if
+     *         the expressions have to be spliced into the query
+     */
+    ParameterizedQuery getParameterizedQuery() {
+        return parameterizedQuery;
+    }
+
+    /**
+     * @return the keyset pagination of the select, or null if it is paged with limit and offset
+     */
+    KeysetPagination getKeysetPagination() {
+        return keysetPagination;
+    }
+
+    /**
+     * @return the configured max rows, or -1 if the rows are not limited
+     */
+    int getMaxRows() {
+        return maxRows;
+    }
+
+    /**
+     * @return the configured fetch size, or -1 if the driver default is used
+     */
+    int getFetchSize() {
+        return fetchSize;
+    }
+
+    boolean isSelect() {
+        return select;
+    }
+
+    int getColumnCount() {
+        return columnNames.length;
+    }
+
+    String getColumnName(int index) {
+        return columnNames[index];
+    }
+
+    /**
+     * @return the message context property key holding the value of the column
+     */
+    String getColumnKey(int index) {
+        return columnKeys[index];
+    }
+
+    int getColumnType(int index) {
+        return columnTypes[index];
+    }
+
+    /**
+     * Adds the OUT parameters of the procedure call to the statement.
+     */
+    void addOutParameters(Statement statement) {
+        for (int i = 0; i < outNames.length; i++) {
+            statement.addOutParameter(outNames[i], outTypes[i], outPositions[i]);
+        }
+    }
+}
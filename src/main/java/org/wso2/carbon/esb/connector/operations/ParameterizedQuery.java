@@ -0,0 +1,248 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.operations;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import org.wso2.carbon.esb.connector.connections.DialectProfile;
+import org.wso2.carbon.esb.connector.utils.ParameterBinder;
+import org.wso2.carbon.esb.connector.utils.Statement;
+
+/**
+ * A raw query template whose inline ${...} expressions are rewritten into bind markers,
+ * so that one SQL text serves every message and the statement cache and the database
+ * plan cache can be reused.
+ * <p>
+ * An expression is rewritten only where binding its value means the same as splicing it
+ * into the SQL text:
+ * <ul>
+ * <li>a string literal that is exactly one expression, e.g. <code>'${payload.name}'</code>,
+ * is bound as a string. A spliced literal is untyped and the database coerces it to the type
+ * of the column it is compared with, so on PostgreSQL, which does not coerce a VARCHAR
+ * parameter, the value is bound untyped. While the dialect is not known yet, such templates
+ * fall back to splicing.</li>
+ * <li>an unquoted expression right after a comparison operator, e.g. <code>id = ${payload.id}</code>,
+ * is bound as a number. If the value of a message is not a number, that message falls back
+ * to splicing.</li>
+ * </ul>
+ * Templates with expressions anywhere else, such as in identifiers, comments, typed literals
+ * or as part of a longer literal, are not rewritten.
+ */
+final class ParameterizedQuery {
+
+    private static final Pattern NUMBER = Pattern.compile("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?");
+    private static final String[] TYPED_LITERAL_PREFIXES = {"DATE", "TIME", "TIMESTAMP", "INTERVAL"};
+
+    // binds the value of a quoted expression as is, an empty value stays an empty string
+    private static final ParameterBinder STRING_BINDER = (ps, i, v) -> ps.setString(i, v);
+    // lets PostgreSQL infer the type of the value from its use, as it does for a spliced literal
+    private static final ParameterBinder UNTYPED_BINDER = (ps, i, v) -> ps.setObject(i, v, Types.OTHER);
+
+    private final String sql;
+    private final String[] expressions;
+    private final boolean[] quoted;
+
+    private ParameterizedQuery(String sql, String[] expressions, boolean[] quoted) {
+        this.sql = sql;
+        this.expressions = expressions;
+        this.quoted = quoted;
+    }
+
+    /**
+     * Rewrites the inline expressions of a raw query into bind markers.
+     *
+     * @param query The raw query template
+     * @return The parameterized query, or null if the query has no expressions or can not be
+     *         rewritten safely
+     */
+    static ParameterizedQuery compile(String query) {
+        if (query == null || !query.contains("${")) {
+            return null;
+        }
+
+        StringBuilder sql = new StringBuilder(query.length());
+        List<String> expressions = new ArrayList<>();
+        List<Boolean> quoted = new ArrayList<>();
+
+        int i = 0;
+        int length = query.length();
+        while (i < length) {
+            char c = query.charAt(i);
+            if (c == '\'') {
+                int end = literalEnd(query, i);
+                if (end < 0) {
+                    return null;
+                }
+                String body = query.substring(i + 1, end);
+                if (!body.contains("${")) {
+                    sql.append(query, i, end + 1);
+                } else if (body.startsWith("${") && expressionEnd(body, 0) == body.length() - 1
+                        && !isTypedLiteral(sql)) {
+                    sql.append('?');
+                    expressions.add(body);
+                    quoted.add(true);
+                } else {
+                    return null;
+                }
+                i = end + 1;
+            } else if (c == '"' || c == '`' || (c == '-' && query.startsWith("--", i))
+                    || (c == '/' && query.startsWith("/*", i))) {
+                // identifiers and comments are copied as is, but may not hold expressions
+                int end = c == '-' ? query.indexOf('\n', i) : c == '/' ? query.indexOf("*/", i + 2) + 1
+                        : query.indexOf(c, i + 1);
+                end = end <= 0 ? length - 1 : end;
+                if (query.substring(i, end + 1).contains("${")) {
+                    return null;
+                }
+                sql.append(query, i, end + 1);
+                i = end + 1;
+            } else if (c == '$' && query.startsWith("${", i)) {
+                int end = expressionEnd(query, i);
+                if (end < 0 || !followsComparison(sql)) {
+                    return null;
+                }
+                sql.append('?');
+                expressions.add(query.substring(i, end + 1));
+                quoted.add(false);
+                i = end + 1;
+            } else {
+                sql.append(c);
+                i++;
+            }
+        }
+
+        boolean[] quotedArray = new boolean[quoted.size()];
+        for (int j = 0; j < quotedArray.length; j++) {
+            quotedArray[j] = quoted.get(j);
+        }
+        return new ParameterizedQuery(sql.toString(), expressions.toArray(new String[0]), quotedArray);
+    }
+
+    /**
+     * Evaluates the expressions of a message and binds them to the rewritten query.
+     *
+     * @param evaluator Evaluates an inline expression, including its ${ } delimiters
+     * @param dialect   The dialect of the database, or null if it is not known yet
+     * @return The statement, or null if a value can not be bound and the query has to be spliced
+     */
+    Statement bind(Function<String, String> evaluator, DialectProfile.Dialect dialect) {
+        Statement statement = new Statement(sql);
+        for (int i = 0; i < expressions.length; i++) {
+            if (quoted[i] && dialect == null) {
+                return null;
+            }
+            String value = evaluator.apply(expressions[i]);
+            if (quoted[i] && dialect == DialectProfile.Dialect.POSTGRESQL) {
+                statement.addParameter(Types.OTHER, value, UNTYPED_BINDER);
+            } else if (quoted[i]) {
+                statement.addParameter(Types.VARCHAR, value, STRING_BINDER);
+            } else if (value != null && NUMBER.matcher(value.trim()).matches()) {
+                statement.addParameter(Types.NUMERIC, value.trim());
+            } else {
+                return null;
+            }
+        }
+        return statement;
+    }
+
+    String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return the index of the quote closing the literal starting at the given index, or -1
+     */
+    private static int literalEnd(String query, int start) {
+        int i = start + 1;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (c == '$' && query.startsWith("${", i)) {
+                // the expression may hold quotes of its own
+                int end = expressionEnd(query, i);
+                if (end < 0) {
+                    return -1;
+                }
+                i = end + 1;
+            } else if (c == '\'') {
+                if (i + 1 < query.length() && query.charAt(i + 1) == '\'') {
+                    i += 2;
+                } else {
+                    return i;
+                }
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index of the brace closing the expression starting at the given index, or -1
+     */
+    private static int expressionEnd(String text, int start) {
+        int depth = 0;
+        int i = start + 1;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\'') {
+                int close = i + 1;
+                while (close < text.length() && text.charAt(close) != c) {
+                    close += text.charAt(close) == '\\' ? 2 : 1;
+                }
+                i = close + 1;
+                continue;
+            }
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static boolean followsComparison(StringBuilder sql) {
+        int i = sql.length() - 1;
+        while (i >= 0 && Character.isWhitespace(sql.charAt(i))) {
+            i--;
+        }
+        if (i < 0) {
+            return false;
+        }
+        char c = sql.charAt(i);
+        return c == '=' || c == '<' || c == '>';
+    }
+
+    private static boolean isTypedLiteral(StringBuilder sql) {
+        String head = sql.toString().trim().toUpperCase(Locale.ROOT);
+        for (String prefix : TYPED_LITERAL_PREFIXES) {
+            if (head.endsWith(prefix) && (head.length() == prefix.length()
+                    || !Character.isLetterOrDigit(head.charAt(head.length() - prefix.length() - 1)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.operations;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.wso2.carbon.esb.connector.connections.ResultCache;
+import org.wso2.carbon.esb.connector.connections.SingleFlight;
+
+/**
+ * A select of one invocation whose serialized result may be shared with other invocations,
+ * either through the result cache of its connection pool or by joining an identical select
+ * that is running at the same time.
+ * <p>
+ * The cache generation is taken when the read is created, before the query runs, so a
+ * result overtaken by a write is not cached. A read that leads a flight must be released
+ * once it is done, whether or not its query succeeded.
+ */
+final class SharedRead {
+
+    private final List<Object> key;
+    private final ResultCache cache;
+    private final Set<String> tables;
+    private final long ttlMillis;
+    private final long generation;
+    private final SingleFlight singleFlight;
+
+    private boolean leader;
+
+    /**
+     * @param key          The SQL text, bound parameter values and result options of the select
+     * @param cache        The result cache of the connection pool, or null if the result is not cached
+     * @param tables       The lower case names of the tables the select reads
+     * @param ttlMillis    The time to live of the cached result in milliseconds
+     * @param singleFlight The in-flight selects of the connection pool, or null if the select is
+     *                     not coalesced
+     */
+    SharedRead(List<Object> key, ResultCache cache, Set<String> tables, long ttlMillis,
+            SingleFlight singleFlight) {
+        this.key = key;
+        this.cache = cache;
+        this.tables = tables;
+        this.ttlMillis = ttlMillis;
+        this.generation = cache == null ? 0 : cache.getGeneration();
+        this.singleFlight = singleFlight;
+    }
+
+    /**
+     * @return the cached serialized result, or null if there is none
+     */
+    byte[] lookup() {
+        return cache == null ? null : cache.get(key);
+    }
+
+    /**
+     * Waits for the result of an identical select in flight. If there is none, this read leads
+     * a new flight and the query has to run.
+     *
+     * @return the serialized result of the identical select, or null if the query has to run
+     */
+    byte[] awaitInFlight() {
+        if (singleFlight == null) {
+            return null;
+        }
+        CompletableFuture<byte[]> flight = singleFlight.join(key);
+        if (flight == null) {
+            leader = true;
+            return null;
+        }
+        return singleFlight.await(flight);
+    }
+
+    /**
+     * Shares the serialized result of the query, caching it and handing it to the selects
+     * waiting in the flight led by this read.
+     *
+     * @param payload The serialized result, or null if it can not be shared
+     */
+    void share(byte[] payload) {
+        if (cache != null && payload != null) {
+            cache.put(key, payload, tables, ttlMillis, generation);
+        }
+        if (leader) {
+            leader = false;
+            singleFlight.complete(key, payload);
+        }
+    }
+
+    /**
+     * Ends the flight led by this read if the result was not shared, so that the waiting
+     * selects run the query themselves.
+     */
+    void release() {
+        share(null);
+    }
+}
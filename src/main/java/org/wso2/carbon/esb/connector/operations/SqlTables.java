@@ -0,0 +1,228 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.operations;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Finds the names of the tables a statement reads or writes, used to invalidate cached
+ * results. The names following FROM, JOIN, INTO, UPDATE and TABLE are collected, including
+ * the comma separated tables of a FROM list. Schema qualifiers and quotes are dropped and
+ * names are lower cased, so a write may invalidate more than it has to, but not less.
+ * <p>
+ * Also tells plain selects, which may run on a read replica, from other statements, and
+ * statements which may return rows from those which can be batched.
+ */
+final class SqlTables {
+
+    private static final Set<String> TABLE_KEYWORDS = new HashSet<>();
+
+    static {
+        TABLE_KEYWORDS.add("FROM");
+        TABLE_KEYWORDS.add("JOIN");
+        TABLE_KEYWORDS.add("INTO");
+        TABLE_KEYWORDS.add("UPDATE");
+        TABLE_KEYWORDS.add("TABLE");
+    }
+
+    private static final Set<String> ROW_KEYWORDS = new HashSet<>();
+
+    static {
+        ROW_KEYWORDS.add("SELECT");
+        ROW_KEYWORDS.add("WITH");
+        ROW_KEYWORDS.add("VALUES");
+        ROW_KEYWORDS.add("CALL");
+        ROW_KEYWORDS.add("EXEC");
+        ROW_KEYWORDS.add("EXECUTE");
+        ROW_KEYWORDS.add("{");
+    }
+
+    private SqlTables() {
+    }
+
+    /**
+     * @param sql The SQL text
+     * @return The lower case names of the tables, empty if none could be found
+     */
+    static Set<String> of(String sql) {
+        Set<String> tables = new HashSet<>();
+        if (sql == null) {
+            return tables;
+        }
+        List<String> tokens = tokenize(sql);
+        for (int i = 0; i < tokens.size(); i++) {
+            String keyword = tokens.get(i).toUpperCase(Locale.ROOT);
+            if (!TABLE_KEYWORDS.contains(keyword)) {
+                continue;
+            }
+            int next = i + 1;
+            while (next < tokens.size() && isName(tokens.get(next))) {
+                tables.add(tableName(tokens.get(next)));
+                // FROM a x, b AS y
+                if (!keyword.equals("FROM")) {
+                    break;
+                }
+                next++;
+                if (next < tokens.size() && tokens.get(next).equalsIgnoreCase("AS")) {
+                    next++;
+                }
+                if (next < tokens.size() && isName(tokens.get(next))) {
+                    next++;
+                }
+                if (next >= tokens.size() || !tokens.get(next).equals(",")) {
+                    break;
+                }
+                next++;
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Returns whether a statement is a select that neither writes nor locks rows. Selects
+     * with INTO, FOR UPDATE, FOR SHARE or LOCK IN SHARE MODE are not read-only, nor are
+     * statements starting with anything but SELECT, such as a WITH whose queries may write.
+     *
+     * @param sql The SQL text
+     * @return true if the statement only reads
+     */
+    static boolean isReadOnly(String sql) {
+        if (sql == null) {
+            return false;
+        }
+        List<String> tokens = tokenize(sql);
+        int first = 0;
+        while (first < tokens.size() && tokens.get(first).equals("(")) {
+            first++;
+        }
+        if (first == tokens.size() || !tokens.get(first).equalsIgnoreCase("SELECT")) {
+            return false;
+        }
+        for (int i = first + 1; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            String next = i + 1 < tokens.size() ? tokens.get(i + 1) : "";
+            if (token.equalsIgnoreCase("INTO")
+                    || (token.equalsIgnoreCase("FOR") && (next.equalsIgnoreCase("UPDATE")
+                            || next.equalsIgnoreCase("SHARE")))
+                    || (token.equalsIgnoreCase("LOCK") && next.equalsIgnoreCase("IN"))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether a statement may return rows, and so can not be batched: a query or a
+     * procedure call.
+     *
+     * @param sql The SQL text
+     * @return true if the statement starts with SELECT, WITH, VALUES, CALL, EXEC or EXECUTE,
+     *         or is a JDBC call escape
+     */
+    static boolean mayReturnRows(String sql) {
+        if (sql == null) {
+            return false;
+        }
+        List<String> tokens = tokenize(sql);
+        int first = 0;
+        while (first < tokens.size() && tokens.get(first).equals("(")) {
+            first++;
+        }
+        if (first == tokens.size()) {
+            return false;
+        }
+        String keyword = tokens.get(first).toUpperCase(Locale.ROOT);
+        return ROW_KEYWORDS.contains(keyword);
+    }
+
+    /**
+     * Splits the SQL into names, possibly qualified and quoted, and single character symbols.
+     * String literals and comments are skipped.
+     */
+    private static List<String> tokenize(String sql) {
+        List<String> tokens = new ArrayList<>();
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '\'') {
+                i = skipQuoted(sql, i, '\'');
+            } else if (c == '-' && sql.startsWith("--", i)) {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+            } else if (c == '/' && sql.startsWith("/*", i)) {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (isNameStart(c)) {
+                int start = i;
+                while (i < length) {
+                    char n = sql.charAt(i);
+                    if (n == '"' || n == '`') {
+                        i = skipQuoted(sql, i, n);
+                    } else if (n == '[') {
+                        i = skipQuoted(sql, i, ']');
+                    } else if (Character.isLetterOrDigit(n) || n == '_' || n == '$' || n == '.') {
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                tokens.add(sql.substring(start, i));
+            } else {
+                tokens.add(String.valueOf(c));
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * @return the index after the quote closing the quoted text starting at the given index
+     */
+    private static int skipQuoted(String sql, int start, char close) {
+        int end = sql.indexOf(close, start + 1);
+        return end < 0 ? sql.length() : end + 1;
+    }
+
+    private static boolean isNameStart(char c) {
+        return Character.isLetter(c) || c == '_' || c == '"' || c == '`' || c == '[';
+    }
+
+    private static boolean isName(String token) {
+        return isNameStart(token.charAt(0));
+    }
+
+    private static String tableName(String name) {
+        String table = name.substring(name.lastIndexOf('.') + 1);
+        StringBuilder unquoted = new StringBuilder(table.length());
+        for (int i = 0; i < table.length(); i++) {
+            char c = table.charAt(i);
+            if (c != '"' && c != '`' && c != '[' && c != ']') {
+                unquoted.append(c);
+            }
+        }
+        return unquoted.toString().toLowerCase(Locale.ROOT);
+    }
+}
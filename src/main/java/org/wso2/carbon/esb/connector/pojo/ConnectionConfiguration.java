@@ -18,6 +18,11 @@
 
 package org.wso2.carbon.esb.connector.pojo;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import org.apache.commons.lang.StringUtils;
 import org.apache.synapse.MessageContext;
 import org.wso2.carbon.connector.core.pool.Configuration;
@@ -35,6 +40,26 @@ public class ConnectionConfiguration {
     private Configuration configuration;
 
     private int maxFailureRetryCount = 0;
+    private int statementCacheSize = 20;
+    private long validationInterval = 30000;
+    private int validationTimeout = 5;
+    private String validationQuery;
+    private boolean warmUpConnections = false;
+    private List<String> warmUpQueries = Collections.emptyList();
+    private int warmUpIterations = 10;
+    private long resultSpillThreshold = 0;
+    private boolean resultSpillCompression = false;
+    private int resultCacheMaxEntries = 0;
+    private long resultCacheMaxBytes = 16 * 1024 * 1024;
+    private List<String> readReplicaUrls = Collections.emptyList();
+    private double hedgeDelayPercentile = 95;
+    private int hedgeBudgetPercent = 5;
+    private List<String> failoverUrls = Collections.emptyList();
+    private int circuitBreakerFailureThreshold = 5;
+    private long circuitBreakerOpenDuration = 30000;
+    private long retryBackoff = 100;
+    private long retryMaxBackoff = 5000;
+    private long retryDeadline = 30000;
     private long poolConnectionAgedTimeout;
 
     private String url;
@@ -55,6 +80,44 @@ public class ConnectionConfiguration {
 
     }
 
+    /**
+     * Copies the configuration of a primary connection for another host of the connection, a
+     * read replica or a failover host. The copy has no result cache, no replicas and no
+     * failover hosts of its own.
+     */
+    private ConnectionConfiguration(ConnectionConfiguration primary, String hostUrl) {
+
+        this.configuration = primary.configuration;
+        this.connectionName = primary.connectionName;
+        this.maxFailureRetryCount = primary.maxFailureRetryCount;
+        this.statementCacheSize = primary.statementCacheSize;
+        this.validationInterval = primary.validationInterval;
+        this.validationTimeout = primary.validationTimeout;
+        this.validationQuery = primary.validationQuery;
+        this.warmUpConnections = primary.warmUpConnections;
+        this.warmUpQueries = primary.warmUpQueries;
+        this.warmUpIterations = primary.warmUpIterations;
+        this.resultSpillThreshold = primary.resultSpillThreshold;
+        this.resultSpillCompression = primary.resultSpillCompression;
+        this.circuitBreakerFailureThreshold = primary.circuitBreakerFailureThreshold;
+        this.circuitBreakerOpenDuration = primary.circuitBreakerOpenDuration;
+        this.poolConnectionAgedTimeout = primary.poolConnectionAgedTimeout;
+        this.url = hostUrl;
+        this.username = primary.username;
+        this.password = primary.password;
+        this.driverClassName = primary.driverClassName;
+        this.driverPath = primary.driverPath;
+        this.protocol = primary.protocol;
+    }
+
+    /**
+     * @param hostUrl The JDBC URL of a read replica or failover host
+     * @return The configuration of the host, sharing every connection setting but the URL with this one
+     */
+    public ConnectionConfiguration forHost(String hostUrl) {
+        return new ConnectionConfiguration(this, hostUrl);
+    }
+
     public String getUrl() {
         return url;
     }
@@ -148,6 +211,281 @@ public class ConnectionConfiguration {
         }
     }
 
+    public long getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    public void setRetryBackoff(String retryBackoff) throws InvalidConfigurationException {
+        if (StringUtils.isNotEmpty(retryBackoff)) {
+            if (!StringUtils.isNumeric(retryBackoff)) {
+                throw new InvalidConfigurationException("Parameter 'retryBackoff' should be a number.");
+            }
+            this.retryBackoff = Long.parseLong(retryBackoff);
+        }
+    }
+
+    public long getRetryMaxBackoff() {
+        return retryMaxBackoff;
+    }
+
+    public void setRetryMaxBackoff(String retryMaxBackoff) throws InvalidConfigurationException {
+        if (StringUtils.isNotEmpty(retryMaxBackoff)) {
+            if (!StringUtils.isNumeric(retryMaxBackoff)) {
+                throw new InvalidConfigurationException("Parameter 'retryMaxBackoff' should be a number.");
+            }
+            this.retryMaxBackoff = Long.parseLong(retryMaxBackoff);
+        }
+    }
+
+    public long getRetryDeadline() {
+        return retryDeadline;
+    }
+
+    public void setRetryDeadline(String retryDeadline) throws InvalidConfigurationException {
+        if (StringUtils.isNotEmpty(retryDeadline)) {
+            if (!StringUtils.isNumeric(retryDeadline)) {
+                throw new InvalidConfigurationException("Parameter 'retryDeadline' should be a number.");
+            }
+            this.retryDeadline = Long.parseLong(retryDeadline);
+        }
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(String statementCacheSize) throws InvalidConfigurationException {
+        if (StringUtils.isNotEmpty(statementCacheSize)) {
+            if (!StringUtils.isNumeric(statementCacheSize)) {
+                throw new InvalidConfigurationException("Parameter 'statementCacheSize' should be a number.");
+            }
+            this.statementCacheSize = Integer.parseInt(statementCacheSize);
+        }
+    }
+
+    public long getValidationInterval() {
+        return validationInterval;
+    }
+
+    public void setValidationInterval(String validationInterval) throws InvalidConfigurationException {
+        if (StringUtils.isNotEmpty(validationInterval)) {
+            if (!StringUtils.isNumeric(validationInterval)) {
+                throw new InvalidConfigurationException("Parameter 'validationInterval' should be a number.");
+            }
+            this.validationInterval = Long.parseLong(validationInterval);
+        }
+    }
+
+    public int getValidationTimeout() {
+        return validationTimeout;
+    }
+
+    public void setValidationTimeout(String validationTimeout) throws InvalidConfigurationException {
+        if (StringUtils.isNotEmpty(validationTimeout)) {
+            if (!StringUtils.isNumeric(validationTimeout)) {
+                throw new InvalidConfigurationException("Parameter 'validationTimeout' should be a number.");
+            }
+            this.validationTimeout = Integer.parseInt(validationTimeout);
+        }
+    }
+
+    public String getValidationQuery() {
+        return validationQuery;
+    }
+
+    public void setValidationQuery(String validationQuery) {
+        this.validationQuery = StringUtils.isNotBlank(validationQuery) ? validationQuery.trim() : null;
+    }
+
+    public boolean isWarmUpConnections() {
+        return warmUpConnections;
+    }
+
+    public void setWarmUpConnections(String warmUpConnections) {
+        this.warmUpConnections = Boolean.parseBoolean(warmUpConnections);
+    }
+
+    public List<String> getWarmUpQueries() {
+        return warmUpQueries;
+    }
+
+    /**
+     * @param warmUpQueries Warm-up statements separated by semicolons
+     */
+    public void setWarmUpQueries(String warmUpQueries) {
+        List<String> queries = new ArrayList<>();
+        if (StringUtils.isNotBlank(warmUpQueries)) {
+            for (String query : warmUpQueries.split(";")) {
+                if (StringUtils.isNotBlank(query)) {
+                    queries.add(query.trim());
+                }
+            }
+        }
+        this.warmUpQueries = Collections.unmodifiableList(queries);
+    }
+
+    public int getWarmUpIterations() {
+        return warmUpIterations;
+    }
+
+    public void setWarmUpIterations(String warmUpIterations) throws InvalidConfigurationException {
+        if (StringUtils.isNotEmpty(warmUpIterations)) {
+            if (!StringUtils.isNumeric(warmUpIterations)) {
+                throw new InvalidConfigurationException("Parameter 'warmUpIterations' should be a number.");
+            }
+            this.warmUpIterations = Integer.parseInt(warmUpIterations);
+        }
+    }
+
+    public boolean isWarmUpEnabled() {
+        return warmUpConnections || (!warmUpQueries.isEmpty() && warmUpIterations > 0);
+    }
+
+    public long getResultSpillThreshold() {
+        return resultSpillThreshold;
+    }
+
+    public void setResultSpillThreshold(String resultSpillThreshold) throws InvalidConfigurationException {
+        if (StringUtils.isNotEmpty(resultSpillThreshold)) {
+            if (!StringUtils.isNumeric(resultSpillThreshold)) {
+                throw new InvalidConfigurationException("Parameter 'resultSpillThreshold' should be a number.");
+            }
+            this.resultSpillThreshold = Long.parseLong(resultSpillThreshold);
+        }
+    }
+
+    public boolean isResultSpillCompression() {
+        return resultSpillCompression;
+    }
+
+    public void setResultSpillCompression(String resultSpillCompression) {
+        this.resultSpillCompression = Boolean.parseBoolean(resultSpillCompression);
+    }
+
+    public int getResultCacheMaxEntries() {
+        return resultCacheMaxEntries;
+    }
+
+    public void setResultCacheMaxEntries(String resultCacheMaxEntries) throws InvalidConfigurationException {
+        if (StringUtils.isNotEmpty(resultCacheMaxEntries)) {
+            if (!StringUtils.isNumeric(resultCacheMaxEntries)) {
+                throw new InvalidConfigurationException("Parameter 'resultCacheMaxEntries' should be a number.");
+            }
+            this.resultCacheMaxEntries = Integer.parseInt(resultCacheMaxEntries);
+        }
+    }
+
+    public long getResultCacheMaxBytes() {
+        return resultCacheMaxBytes;
+    }
+
+    public void setResultCacheMaxBytes(String resultCacheMaxBytes) throws InvalidConfigurationException {
+        if (StringUtils.isNotEmpty(resultCacheMaxBytes)) {
+            if (!StringUtils.isNumeric(resultCacheMaxBytes)) {
+                throw new InvalidConfigurationException("Parameter 'resultCacheMaxBytes' should be a number.");
+            }
+            this.resultCacheMaxBytes = Long.parseLong(resultCacheMaxBytes);
+        }
+    }
+
+    public List<String> getReadReplicaUrls() {
+        return readReplicaUrls;
+    }
+
+    /**
+     * @param readReplicaUrls JDBC URLs of read replicas, separated by commas or white space
+     */
+    public void setReadReplicaUrls(String readReplicaUrls) throws InvalidConfigurationException {
+        this.readReplicaUrls = parseUrls(readReplicaUrls, "readReplicaUrls");
+    }
+
+    public List<String> getFailoverUrls() {
+        return failoverUrls;
+    }
+
+    /**
+     * @param failoverUrls JDBC URLs of the hosts to connect to, in order, when the url can not
+     *                     be connected to, separated by commas or white space
+     */
+    public void setFailoverUrls(String failoverUrls) throws InvalidConfigurationException {
+        this.failoverUrls = parseUrls(failoverUrls, "failoverUrls");
+    }
+
+    private static List<String> parseUrls(String value, String parameter) throws InvalidConfigurationException {
+        List<String> urls = new ArrayList<>();
+        if (StringUtils.isNotBlank(value)) {
+            // a JDBC URL may contain commas itself, e.g. the hosts of a MySQL URL
+            for (String hostUrl : value.trim().split("[,\\s]+(?=jdbc:)")) {
+                if (!hostUrl.startsWith("jdbc:")) {
+                    throw new InvalidConfigurationException("Parameter '" + parameter + "' should contain JDBC URLs.");
+                }
+                urls.add(hostUrl);
+            }
+        }
+        return Collections.unmodifiableList(urls);
+    }
+
+    public int getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+
+    public void setCircuitBreakerFailureThreshold(String circuitBreakerFailureThreshold)
+            throws InvalidConfigurationException {
+        if (StringUtils.isNotEmpty(circuitBreakerFailureThreshold)) {
+            if (!StringUtils.isNumeric(circuitBreakerFailureThreshold)) {
+                throw new InvalidConfigurationException(
+                        "Parameter 'circuitBreakerFailureThreshold' should be a number.");
+            }
+            this.circuitBreakerFailureThreshold = Integer.parseInt(circuitBreakerFailureThreshold);
+        }
+    }
+
+    public long getCircuitBreakerOpenDuration() {
+        return circuitBreakerOpenDuration;
+    }
+
+    public void setCircuitBreakerOpenDuration(String circuitBreakerOpenDuration) throws InvalidConfigurationException {
+        if (StringUtils.isNotEmpty(circuitBreakerOpenDuration)) {
+            if (!StringUtils.isNumeric(circuitBreakerOpenDuration)) {
+                throw new InvalidConfigurationException("Parameter 'circuitBreakerOpenDuration' should be a number.");
+            }
+            this.circuitBreakerOpenDuration = Long.parseLong(circuitBreakerOpenDuration);
+        }
+    }
+
+    public double getHedgeDelayPercentile() {
+        return hedgeDelayPercentile;
+    }
+
+    public void setHedgeDelayPercentile(String hedgeDelayPercentile) throws InvalidConfigurationException {
+        if (StringUtils.isNotEmpty(hedgeDelayPercentile)) {
+            double percentile;
+            try {
+                percentile = Double.parseDouble(hedgeDelayPercentile);
+            } catch (NumberFormatException e) {
+                throw new InvalidConfigurationException("Parameter 'hedgeDelayPercentile' should be a number.", e);
+            }
+            if (percentile <= 0 || percentile > 100) {
+                throw new InvalidConfigurationException(
+                        "Parameter 'hedgeDelayPercentile' should be greater than 0 and at most 100.");
+            }
+            this.hedgeDelayPercentile = percentile;
+        }
+    }
+
+    public int getHedgeBudgetPercent() {
+        return hedgeBudgetPercent;
+    }
+
+    public void setHedgeBudgetPercent(String hedgeBudgetPercent) throws InvalidConfigurationException {
+        if (StringUtils.isNotEmpty(hedgeBudgetPercent)) {
+            if (!StringUtils.isNumeric(hedgeBudgetPercent)) {
+                throw new InvalidConfigurationException("Parameter 'hedgeBudgetPercent' should be a number.");
+            }
+            this.hedgeBudgetPercent = Integer.parseInt(hedgeBudgetPercent);
+        }
+    }
+
     public int getMaxActiveConnections() {
 
         return configuration.getMaxActiveConnections();
@@ -158,6 +496,11 @@ public class ConnectionConfiguration {
         this.configuration.setMaxActiveConnections(maxActiveConnections);
     }
 
+    public int getMinIdleConnections() {
+
+        return configuration.getMinIdleConnections();
+    }
+
     public int getMaxIdleConnections() {
 
         return configuration.getMaxIdleConnections();
@@ -208,6 +551,11 @@ public class ConnectionConfiguration {
         this.configuration.setExhaustedAction(exhaustedAction);
     }
 
+    public boolean isTestOnBorrow() {
+
+        return configuration.getTestOnBorrow();
+    }
+
     public Configuration getConfiguration() {
 
         return configuration;
@@ -235,4 +583,35 @@ public class ConnectionConfiguration {
         this.configuration.setRetryCount(retryCount);
     }
 
+    /**
+     * @return Every setting of the connection, including the pool settings, in a fixed order
+     */
+    private List<Object> getSettings() {
+        return Arrays.asList(connectionName, url, username, password, driverClassName, driverPath, protocol,
+                maxFailureRetryCount, statementCacheSize, validationInterval, validationTimeout, validationQuery,
+                warmUpConnections, warmUpQueries, warmUpIterations, resultSpillThreshold, resultSpillCompression,
+                resultCacheMaxEntries, resultCacheMaxBytes, readReplicaUrls, hedgeDelayPercentile,
+                hedgeBudgetPercent, failoverUrls, circuitBreakerFailureThreshold, circuitBreakerOpenDuration,
+                retryBackoff, retryMaxBackoff, retryDeadline, poolConnectionAgedTimeout,
+                getMaxActiveConnections(), getMinIdleConnections(), getMaxIdleConnections(), getMaxWaitTime(),
+                getMinEvictionTime(), getEvictionCheckInterval(), getExhaustedAction(), isTestOnBorrow(),
+                getRetryCount());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ConnectionConfiguration)) {
+            return false;
+        }
+        return getSettings().equals(((ConnectionConfiguration) o).getSettings());
+    }
+
+    @Override
+    public int hashCode() {
+        return getSettings().hashCode();
+    }
+
 }
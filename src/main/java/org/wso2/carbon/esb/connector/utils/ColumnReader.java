@@ -0,0 +1,241 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.utils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads the value of a result set column with the getter specialised for its JDBC type,
+ * and writes it as JSON. Readers are chosen once per column from the result set metadata,
+ * so the per-cell path has no type checks and, for the primitive types, no boxing.
+ * <p>
+ * Every reader produces the same JSON value as reading the column with getObject. Types
+ * whose getObject value differs between drivers, such as temporal and bit types, use the
+ * generic reader.
+ */
+public enum ColumnReader {
+
+    INT {
+        @Override
+        public void write(ResultSet rs, int column, JsonWriter writer) throws SQLException, IOException {
+            int value = rs.getInt(column);
+            if (rs.wasNull()) {
+                writer.nullValue();
+            } else {
+                writer.value(value);
+            }
+        }
+
+        @Override
+        public JsonElement read(ResultSet rs, int column) throws SQLException {
+            int value = rs.getInt(column);
+            return rs.wasNull() ? JsonNull.INSTANCE : new JsonPrimitive(value);
+        }
+    },
+
+    LONG {
+        @Override
+        public void write(ResultSet rs, int column, JsonWriter writer) throws SQLException, IOException {
+            long value = rs.getLong(column);
+            if (rs.wasNull()) {
+                writer.nullValue();
+            } else {
+                writer.value(value);
+            }
+        }
+
+        @Override
+        public JsonElement read(ResultSet rs, int column) throws SQLException {
+            long value = rs.getLong(column);
+            return rs.wasNull() ? JsonNull.INSTANCE : new JsonPrimitive(value);
+        }
+    },
+
+    DOUBLE {
+        @Override
+        public void write(ResultSet rs, int column, JsonWriter writer) throws SQLException, IOException {
+            double value = rs.getDouble(column);
+            if (rs.wasNull()) {
+                writer.nullValue();
+            } else {
+                writer.value(value);
+            }
+        }
+
+        @Override
+        public JsonElement read(ResultSet rs, int column) throws SQLException {
+            double value = rs.getDouble(column);
+            return rs.wasNull() ? JsonNull.INSTANCE : new JsonPrimitive(value);
+        }
+    },
+
+    DECIMAL {
+        @Override
+        public void write(ResultSet rs, int column, JsonWriter writer) throws SQLException, IOException {
+            BigDecimal value = rs.getBigDecimal(column);
+            if (value == null) {
+                writer.nullValue();
+            } else {
+                writer.value(value);
+            }
+        }
+
+        @Override
+        public JsonElement read(ResultSet rs, int column) throws SQLException {
+            BigDecimal value = rs.getBigDecimal(column);
+            return value == null ? JsonNull.INSTANCE : new JsonPrimitive(value);
+        }
+    },
+
+    BOOLEAN {
+        @Override
+        public void write(ResultSet rs, int column, JsonWriter writer) throws SQLException, IOException {
+            boolean value = rs.getBoolean(column);
+            if (rs.wasNull()) {
+                writer.nullValue();
+            } else {
+                writer.value(value);
+            }
+        }
+
+        @Override
+        public JsonElement read(ResultSet rs, int column) throws SQLException {
+            boolean value = rs.getBoolean(column);
+            return rs.wasNull() ? JsonNull.INSTANCE : new JsonPrimitive(value);
+        }
+    },
+
+    STRING {
+        @Override
+        public void write(ResultSet rs, int column, JsonWriter writer) throws SQLException, IOException {
+            String value = rs.getString(column);
+            if (value == null) {
+                writer.nullValue();
+            } else {
+                writer.value(value);
+            }
+        }
+
+        @Override
+        public JsonElement read(ResultSet rs, int column) throws SQLException {
+            String value = rs.getString(column);
+            return value == null ? JsonNull.INSTANCE : new JsonPrimitive(value);
+        }
+    },
+
+    OBJECT {
+        @Override
+        public void write(ResultSet rs, int column, JsonWriter writer) throws SQLException, IOException {
+            writeValue(rs.getObject(column), writer);
+        }
+
+        @Override
+        public JsonElement read(ResultSet rs, int column) throws SQLException {
+            Object value = rs.getObject(column);
+            if (value == null) {
+                return JsonNull.INSTANCE;
+            } else if (value instanceof Boolean) {
+                return new JsonPrimitive((Boolean) value);
+            } else if (value instanceof Number) {
+                return new JsonPrimitive((Number) value);
+            }
+            return new JsonPrimitive(value.toString());
+        }
+    };
+
+    /**
+     * Writes the value of the column of the current row.
+     */
+    public abstract void write(ResultSet rs, int column, JsonWriter writer) throws SQLException, IOException;
+
+    /**
+     * Reads the value of the column of the current row as a JSON element.
+     */
+    public abstract JsonElement read(ResultSet rs, int column) throws SQLException;
+
+    /**
+     * Writes a value read with getObject, such as an OUT parameter of a procedure call.
+     */
+    public static void writeValue(Object value, JsonWriter writer) throws IOException {
+        if (value == null) {
+            writer.nullValue();
+        } else if (value instanceof Boolean) {
+            writer.value((Boolean) value);
+        } else if (value instanceof Number) {
+            writer.value((Number) value);
+        } else {
+            writer.value(value.toString());
+        }
+    }
+
+    /**
+     * Builds the reader plan of a result set, one reader per column.
+     *
+     * @param metadata The result set metadata
+     * @return The readers, indexed from 0
+     */
+    public static ColumnReader[] plan(ResultSetMetaData metadata) throws SQLException {
+        ColumnReader[] readers = new ColumnReader[metadata.getColumnCount()];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = forColumn(metadata, i + 1);
+        }
+        return readers;
+    }
+
+    private static ColumnReader forColumn(ResultSetMetaData metadata, int column) throws SQLException {
+        switch (metadata.getColumnType(column)) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+                return INT;
+            case Types.INTEGER:
+                // unsigned integers do not fit into an int
+                return metadata.isSigned(column) ? INT : LONG;
+            case Types.BIGINT:
+                // unsigned bigints are read as BigInteger
+                return metadata.isSigned(column) ? LONG : OBJECT;
+            case Types.DOUBLE:
+                return DOUBLE;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return DECIMAL;
+            case Types.BOOLEAN:
+                return BOOLEAN;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return STRING;
+            default:
+                // includes FLOAT, which Oracle reads as a BigDecimal that a double cannot hold
+                return OBJECT;
+        }
+    }
+}
@@ -43,8 +43,11 @@ public final class Constants {
     public static final String OPERATION_BATCH = "BATCH";
     public static final String OPERATION_CALL = "CALL";
     public static final String OPERATION_EXECUTE_QUERY = "EXECUTE_QUERY";
+    public static final String OPERATION_ITERATE = "ITERATE";
+    public static final String OPERATION_ATOMIC_BLOCK = "ATOMIC_BLOCK";
 
     public static final String DB_CONNECTION = "dbConnection";
+    public static final String DB_LAST_WRITE = "dbLastWrite";
 
     // transaction types
     public static final String BEGIN_TRANSACTION = "BEGIN_TRANSACTION";
@@ -71,6 +74,26 @@ public final class Constants {
     public static final String MAX_FAILURE_RETRY_COUNT = "maxFailureRetryCount";
     public static final String RETRY_COUNT = "retryCount";
     public static final String POOL_CONNECTION_AGED_TIMEOUT = "poolConnectionAgedTimeout";
+    public static final String STATEMENT_CACHE_SIZE = "statementCacheSize";
+    public static final String VALIDATION_QUERY = "validationQuery";
+    public static final String VALIDATION_INTERVAL = "validationInterval";
+    public static final String VALIDATION_TIMEOUT = "validationTimeout";
+    public static final String WARM_UP_CONNECTIONS = "warmUpConnections";
+    public static final String WARM_UP_QUERIES = "warmUpQueries";
+    public static final String WARM_UP_ITERATIONS = "warmUpIterations";
+    public static final String RESULT_SPILL_THRESHOLD = "resultSpillThreshold";
+    public static final String RESULT_SPILL_COMPRESSION = "resultSpillCompression";
+    public static final String RESULT_CACHE_MAX_ENTRIES = "resultCacheMaxEntries";
+    public static final String RESULT_CACHE_MAX_BYTES = "resultCacheMaxBytes";
+    public static final String READ_REPLICA_URLS = "readReplicaUrls";
+    public static final String HEDGE_DELAY_PERCENTILE = "hedgeDelayPercentile";
+    public static final String HEDGE_BUDGET_PERCENT = "hedgeBudgetPercent";
+    public static final String FAILOVER_URLS = "failoverUrls";
+    public static final String CIRCUIT_BREAKER_FAILURE_THRESHOLD = "circuitBreakerFailureThreshold";
+    public static final String CIRCUIT_BREAKER_OPEN_DURATION = "circuitBreakerOpenDuration";
+    public static final String RETRY_BACKOFF = "retryBackoff";
+    public static final String RETRY_MAX_BACKOFF = "retryMaxBackoff";
+    public static final String RETRY_DEADLINE = "retryDeadline";
 
     // Connection pool configuration
     public static final String MAX_POOL_SIZE = "pool.maxSize";
@@ -84,10 +107,24 @@ public final class Constants {
     public static final String COLUMN_TYPES = "columnTypes";
     public static final String COLUMN_NAMES = "columnNames";
 
+    // batch parameters
+    public static final String BATCH_DATA = "batchData";
+    public static final String BATCH_SIZE = "batchSize";
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final String SEQUENCE = "sequence";
+    public static final String CHUNK_SIZE = "chunkSize";
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    // atomic block parameters
+    public static final String STATEMENTS = "statements";
+    public static final String REPLAY_COUNT = "replayCount";
+    public static final int DEFAULT_REPLAY_COUNT = 3;
+
     // execute query parameters
     public static final String PARAMETERS = "parameters";
     public static final String IS_PREPARED_STATEMENT = "isPreparedStatement"; 
     public static final String IS_RESULT_SET = "isResultSet";
+    public static final String AUTO_PARAMETERIZE = "autoParameterize";
     
     public static final String INCLUDE_RESULT_TO = "includeResultTo";
     public static final String RESULT_PROPERTY_NAME = "resultPropertyName";
@@ -107,6 +144,15 @@ public final class Constants {
     public static final String HAVING = "having";
     public static final String LIMIT = "limit";
     public static final String OFFSET = "offset";
+    public static final String KEYSET_COLUMNS = "keysetColumns";
+    public static final String CURSOR = "cursor";
+    public static final String NEXT_CURSOR = "nextCursor";
+
+    // call parameters
+    public static final String OUT_PARAMETERS = "outParameters";
+    public static final String RESULT_SETS = "resultSets";
+    public static final String UPDATE_COUNT = "updateCount";
+    public static final String OUTPUT_PARAMETERS = "outputParameters";
 
     public static final String FORMAT = "format";
     public static final String RESULT = "result";
@@ -116,6 +162,12 @@ public final class Constants {
     public static final String FORMAT_XML = "xml";
     public static final String FORMAT_CSV = "csv";
     public static final String FORMAT_TEXT = "text";
+    public static final String RESULT_LAYOUT = "resultLayout";
+    public static final String RESULT_LAYOUT_COLUMNAR = "columnar";
+    public static final String RESULT_CACHE_TTL = "resultCacheTtl";
+    public static final String COALESCE_READS = "coalesceReads";
+    public static final String READ_YOUR_WRITES_WINDOW = "readYourWritesWindow";
+    public static final String HEDGE_READS = "hedgeReads";
 
     public static final String JSON_CONTENT_TYPE = "application/json";
 
@@ -0,0 +1,145 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.utils;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/**
+ * Binds a string value to a PreparedStatement parameter as a specific JDBC type.
+ * Binders are resolved once per JDBC type and reused for every message.
+ */
+@FunctionalInterface
+public interface ParameterBinder {
+
+    void bind(PreparedStatement ps, int index, String value) throws SQLException;
+
+    /**
+     * Returns the binder for the given java.sql.Types code, mapped according to
+     * https://docs.oracle.com/javase/1.5.0/docs/guide/jdbc/getstart/mapping.html
+     *
+     * @param type The java.sql.Types code.
+     * @return The binder, or null if the type is not supported.
+     */
+    static ParameterBinder forType(int type) {
+        switch (type) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+                return (ps, i, v) -> ps.setString(i, isEmpty(v) ? null : v);
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return (ps, i, v) -> ps.setBigDecimal(i, isEmpty(v) ? null : new BigDecimal(v));
+            case Types.BIT:
+                return (ps, i, v) -> {
+                    if (isEmpty(v)) {
+                        ps.setNull(i, Types.BIT);
+                    } else {
+                        ps.setBoolean(i, Boolean.parseBoolean(v));
+                    }
+                };
+            case Types.TINYINT:
+                return (ps, i, v) -> {
+                    if (isEmpty(v)) {
+                        ps.setNull(i, Types.TINYINT);
+                    } else {
+                        ps.setByte(i, Byte.parseByte(v));
+                    }
+                };
+            case Types.SMALLINT:
+                return (ps, i, v) -> {
+                    if (isEmpty(v)) {
+                        ps.setNull(i, Types.SMALLINT);
+                    } else {
+                        ps.setShort(i, Short.parseShort(v));
+                    }
+                };
+            case Types.INTEGER:
+                return (ps, i, v) -> {
+                    if (isEmpty(v)) {
+                        ps.setNull(i, Types.INTEGER);
+                    } else {
+                        ps.setInt(i, Integer.parseInt(v));
+                    }
+                };
+            case Types.BIGINT:
+                return (ps, i, v) -> {
+                    if (isEmpty(v)) {
+                        ps.setNull(i, Types.BIGINT);
+                    } else {
+                        ps.setLong(i, Long.parseLong(v));
+                    }
+                };
+            case Types.REAL:
+                return (ps, i, v) -> {
+                    if (isEmpty(v)) {
+                        ps.setNull(i, Types.REAL);
+                    } else {
+                        ps.setFloat(i, Float.parseFloat(v));
+                    }
+                };
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return (ps, i, v) -> {
+                    if (isEmpty(v)) {
+                        ps.setNull(i, type);
+                    } else {
+                        ps.setDouble(i, Double.parseDouble(v));
+                    }
+                };
+            // skip BINARY, VARBINARY and LONGVARBINARY
+            case Types.DATE:
+                return (ps, i, v) -> {
+                    if (isEmpty(v)) {
+                        ps.setNull(i, Types.DATE);
+                    } else {
+                        ps.setDate(i, Date.valueOf(v));
+                    }
+                };
+            case Types.TIME:
+                return (ps, i, v) -> {
+                    if (isEmpty(v)) {
+                        ps.setNull(i, Types.TIME);
+                    } else {
+                        ps.setTime(i, Time.valueOf(v));
+                    }
+                };
+            case Types.TIMESTAMP:
+                return (ps, i, v) -> {
+                    if (isEmpty(v)) {
+                        ps.setNull(i, Types.TIMESTAMP);
+                    } else {
+                        ps.setTimestamp(i, Timestamp.valueOf(v));
+                    }
+                };
+            // skip CLOB, BLOB, ARRAY, DISTINCT, STRUCT, REF, JAVA_OBJECT
+            default:
+                return null;
+        }
+    }
+
+    static boolean isEmpty(String value) {
+        return value == null || value.length() == 0;
+    }
+}
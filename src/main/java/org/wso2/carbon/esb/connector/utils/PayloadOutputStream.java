@@ -0,0 +1,333 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Buffer that the serialized query result is written into. The bytes are kept on heap
+ * until they exceed the spill threshold, after which everything is moved to a temporary
+ * file, optionally gzip compressed, and the rest of the result is written there.
+ * <p>
+ * The buffered bytes are handed over to the message as an input stream that is read lazily
+ * when the response is written. A spilled file is unlinked as soon as the stream is opened
+ * where the platform allows it, and otherwise when the stream is read to the end or closed.
+ * <p>
+ * The file is not removed when the message completes: neither the Synapse nor the Axis2
+ * message context lets a class mediator register a callback for the end of the message,
+ * and the stream may be read after the mediator returned, when the response is written.
+ * Cleanup is therefore tied to the stream. On POSIX platforms no name is left once the
+ * stream is opened, and the disk space is returned when the descriptor is closed, at the
+ * latest when the stream is garbage collected. Where open files can not be unlinked, such
+ * as on Windows, a message that is dropped without reading its payload leaves the file in
+ * the temporary directory.
+ */
+public class PayloadOutputStream extends OutputStream {
+
+    private static final Logger log = LoggerFactory.getLogger(PayloadOutputStream.class);
+
+    private static final int INITIAL_CAPACITY = 8192;
+    private static final int FILE_BUFFER_SIZE = 65536;
+    private static final String SPILL_FILE_PREFIX = "db-connector-result-";
+
+    private final long spillThreshold;
+    private final boolean compress;
+
+    private byte[] buf = new byte[INITIAL_CAPACITY];
+    private int count;
+    private long size;
+
+    private Path spillFile;
+    private OutputStream fileOut;
+    private boolean closed;
+
+    /**
+     * Creates a buffer that keeps the whole payload on heap.
+     */
+    public PayloadOutputStream() {
+        this(0, false);
+    }
+
+    /**
+     * @param spillThreshold Number of bytes above which the payload is moved to a temporary
+     *                       file, 0 or less to always keep it on heap
+     * @param compress       Whether to gzip compress the temporary file
+     */
+    public PayloadOutputStream(long spillThreshold, boolean compress) {
+        this.spillThreshold = spillThreshold;
+        this.compress = compress;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (fileOut == null && shouldSpill(1)) {
+            spill();
+        }
+        if (fileOut != null) {
+            fileOut.write(b);
+        } else {
+            ensureCapacity(count + 1);
+            buf[count++] = (byte) b;
+        }
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (fileOut == null && shouldSpill(len)) {
+            spill();
+        }
+        if (fileOut != null) {
+            fileOut.write(b, off, len);
+        } else {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+        size += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (fileOut != null) {
+            fileOut.flush();
+        }
+    }
+
+    /**
+     * Finishes writing. The payload stays available to {@link #toInputStream()}.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            if (fileOut != null) {
+                fileOut.close();
+            }
+        }
+    }
+
+    /**
+     * @return the number of payload bytes written, before compression
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return whether the payload was moved to a temporary file
+     */
+    public boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    /**
+     * Returns an input stream over the payload. The heap buffer is shared and a spilled file
+     * is removed once the stream is done with it, so this must be called once, after
+     * everything is written.
+     *
+     * @return InputStream over the written payload
+     */
+    public InputStream toInputStream() throws IOException {
+        close();
+        if (spillFile == null) {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+
+        Path file = spillFile;
+        InputStream in = new FileInputStream(file.toFile());
+        // the open stream keeps the data readable on platforms that allow unlinking open files
+        boolean deleted = deleteQuietly(file);
+        try {
+            InputStream payload = compress ? new GZIPInputStream(in, FILE_BUFFER_SIZE)
+                    : new BufferedInputStream(in, FILE_BUFFER_SIZE);
+            return new SpillInputStream(payload, deleted ? null : file);
+        } catch (IOException e) {
+            in.close();
+            deleteQuietly(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a copy of a payload kept on heap, for example to cache it. The payload stays
+     * available to {@link #toInputStream()}.
+     *
+     * @return The payload bytes, or null if the payload was moved to a temporary file
+     */
+    public byte[] toByteArray() {
+        return spillFile == null && buf != null ? Arrays.copyOf(buf, count) : null;
+    }
+
+    /**
+     * Drops the payload and removes the temporary file, for results that are not handed over
+     * to the message.
+     */
+    public void discard() {
+        try {
+            close();
+        } catch (IOException e) {
+            log.debug("Error closing the result spill file: " + e.getMessage());
+        }
+        if (spillFile != null) {
+            deleteQuietly(spillFile);
+        }
+        buf = null;
+        count = 0;
+    }
+
+    private boolean shouldSpill(int len) {
+        return spillThreshold > 0 && count + (long) len > spillThreshold;
+    }
+
+    private void spill() throws IOException {
+        spillFile = Files.createTempFile(SPILL_FILE_PREFIX, compress ? ".gz" : ".tmp");
+        try {
+            OutputStream out = new FileOutputStream(spillFile.toFile());
+            fileOut = compress ? new GZIPOutputStream(out, FILE_BUFFER_SIZE)
+                    : new BufferedOutputStream(out, FILE_BUFFER_SIZE);
+            fileOut.write(buf, 0, count);
+        } catch (IOException e) {
+            if (fileOut != null) {
+                fileOut.close();
+            }
+            deleteQuietly(spillFile);
+            throw e;
+        }
+        log.debug("Result exceeded " + spillThreshold + " bytes, spooling it to " + spillFile);
+        buf = null;
+        count = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buf.length) {
+            int newCapacity = Math.max(buf.length << 1, capacity);
+            if (newCapacity < 0) {
+                throw new OutOfMemoryError("Result payload is too large to be buffered");
+            }
+            buf = Arrays.copyOf(buf, newCapacity);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Payload stream is closed");
+        }
+    }
+
+    private static boolean deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stream over a spilled payload that releases the file as soon as it is read to the end
+     * or closed.
+     */
+    private static final class SpillInputStream extends FilterInputStream {
+
+        private Path file;
+        private boolean released;
+
+        SpillInputStream(InputStream in, Path file) {
+            super(in);
+            this.file = file;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (released) {
+                return -1;
+            }
+            int b = super.read();
+            if (b < 0) {
+                release();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (released) {
+                return -1;
+            }
+            int n = super.read(b, off, len);
+            if (n < 0) {
+                release();
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return released ? 0 : super.skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return released ? 0 : super.available();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            release();
+        }
+
+        private void release() throws IOException {
+            if (!released) {
+                released = true;
+                try {
+                    in.close();
+                } finally {
+                    if (file != null) {
+                        deleteQuietly(file);
+                        file = null;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -24,10 +24,12 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 
 import org.apache.axiom.om.OMAbstractFactory;
-import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.OMFactory;
+import org.apache.axiom.om.ds.ByteArrayDataSource;
+import org.apache.axiom.om.util.StAXUtils;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 
@@ -37,12 +39,21 @@ import org.slf4j.LoggerFactory;
 import org.apache.synapse.MessageContext;
 import org.wso2.carbon.connector.core.util.ConnectorUtils;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.JDBCType;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.Date;
 import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 /**
  * Utility class to convert ResultSet to different formats like JSON, XML, CSV,
@@ -51,16 +62,44 @@ import javax.xml.namespace.QName;
 public class ResultSetMapper {
     private static final Logger log = LoggerFactory.getLogger(ResultSetMapper.class);
     private static final int INITIAL_STRING_BUILDER_CAPACITY = 1024;
+    // widest column the text format pads to, longer values are written in full
+    private static final int MAX_TEXT_COLUMN_WIDTH = 40;
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
-     * Converts a ResultSet to a JsonArray (gson).
+     * Callback for the rows of a ResultSet while it is mapped, e.g. to capture values of the
+     * last row that are not part of the output.
+     */
+    @FunctionalInterface
+    public interface RowListener {
+
+        /**
+         * Called with the ResultSet positioned on a row, after the row is mapped.
+         */
+        void onRow(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Converts a ResultSet to a JsonArray (gson). Columns are read with the
+     * {@link ColumnReader} of their JDBC type.
      * 
      * @param rs The ResultSet to convert.
      * @return A JsonArray representing the ResultSet data.
      * @throws SQLException If a database access error occurs.
      */
     public static JsonArray mapResultSetToJsonArray(ResultSet rs) throws SQLException {
+        return mapResultSetToJsonArray(rs, null);
+    }
+
+    /**
+     * Converts a ResultSet to a JsonArray (gson), notifying the listener of every row.
+     *
+     * @param rs       The ResultSet to convert.
+     * @param listener The listener called after each row is read, or null.
+     * @return A JsonArray representing the ResultSet data.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static JsonArray mapResultSetToJsonArray(ResultSet rs, RowListener listener) throws SQLException {
         JsonArray jsonArray = new JsonArray();
         if (rs == null) {
             log.warn("Null ResultSet provided for JSON conversion");
@@ -70,6 +109,7 @@ public class ResultSetMapper {
         ResultSetMetaData metadata = rs.getMetaData();
         int columnCount = metadata.getColumnCount();
         String[] columnNames = new String[columnCount];
+        ColumnReader[] readers = ColumnReader.plan(metadata);
 
         // Cache column names/labels
         for (int i = 0; i < columnCount; i++) {
@@ -79,25 +119,369 @@ public class ResultSetMapper {
         while (rs.next()) {
             JsonObject jsonRow = new JsonObject();
             for (int i = 0; i < columnCount; i++) {
-                String columnName = columnNames[i];
-                Object value = rs.getObject(i + 1);
+                jsonRow.add(columnNames[i], readers[i].read(rs, i + 1));
+            }
+            jsonArray.add(jsonRow);
+            if (listener != null) {
+                listener.onRow(rs);
+            }
+        }
+        return jsonArray;
+    }
+
+    /**
+     * Writes the rows of a ResultSet as a JSON array of row objects directly to the
+     * given writer, without building an intermediate JSON tree.
+     *
+     * @param rs     The ResultSet to write.
+     * @param writer The JSON writer to write the array to.
+     * @return The number of rows written.
+     * @throws SQLException If a database access error occurs.
+     * @throws IOException  If an error occurs while writing the JSON output.
+     */
+    public static int writeResultSetToJson(ResultSet rs, JsonWriter writer) throws SQLException, IOException {
+        return writeResultSetToJson(rs, writer, null);
+    }
+
+    /**
+     * Writes the rows of a ResultSet as a JSON array of row objects, notifying the listener
+     * of every row.
+     *
+     * @param rs       The ResultSet to write.
+     * @param writer   The JSON writer to write the array to.
+     * @param listener The listener called after each row is written, or null.
+     * @return The number of rows written.
+     * @throws SQLException If a database access error occurs.
+     * @throws IOException  If an error occurs while writing the JSON output.
+     */
+    public static int writeResultSetToJson(ResultSet rs, JsonWriter writer, RowListener listener)
+            throws SQLException, IOException {
+        return writeResultSetToJson(rs, writer, listener, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Writes at most maxRows of the remaining rows of a ResultSet as a JSON array of row
+     * objects, leaving the ResultSet on the last row written so that the next rows can be
+     * written in another call.
+     *
+     * @param rs       The ResultSet to write.
+     * @param writer   The JSON writer to write the array to.
+     * @param listener The listener called after each row is written, or null.
+     * @param maxRows  The maximum number of rows to write.
+     * @return The number of rows written.
+     * @throws SQLException If a database access error occurs.
+     * @throws IOException  If an error occurs while writing the JSON output.
+     */
+    public static int writeResultSetToJson(ResultSet rs, JsonWriter writer, RowListener listener, int maxRows)
+            throws SQLException, IOException {
+        writer.beginArray();
+        if (rs == null) {
+            log.warn("Null ResultSet provided for JSON conversion");
+            writer.endArray();
+            return 0;
+        }
+
+        ResultSetMetaData metadata = rs.getMetaData();
+        int columnCount = metadata.getColumnCount();
+        String[] columnNames = new String[columnCount];
+
+        // Cache column names/labels
+        for (int i = 0; i < columnCount; i++) {
+            columnNames[i] = metadata.getColumnLabel(i + 1);
+        }
+
+        ColumnReader[] readers = ColumnReader.plan(metadata);
+
+        int rowCount = 0;
+        while (rowCount < maxRows && rs.next()) {
+            writer.beginObject();
+            for (int i = 0; i < columnCount; i++) {
+                writer.name(columnNames[i]);
+                readers[i].write(rs, i + 1, writer);
+            }
+            writer.endObject();
+            rowCount++;
+            if (listener != null) {
+                listener.onRow(rs);
+            }
+        }
+        writer.endArray();
+        return rowCount;
+    }
+
+    /**
+     * Converts a ResultSet to the columnar layout, where the column labels and types are
+     * given once and every row is an array of values in column order:
+     * {"columns":[...],"types":[...],"rows":[[...],...]}
+     *
+     * @param rs The ResultSet to convert.
+     * @return A JsonObject with the columns, types and rows of the ResultSet.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static JsonObject mapResultSetToColumnarJson(ResultSet rs) throws SQLException {
+        return mapResultSetToColumnarJson(rs, null);
+    }
+
+    /**
+     * Converts a ResultSet to the columnar layout, notifying the listener of every row.
+     *
+     * @param rs       The ResultSet to convert.
+     * @param listener The listener called after each row is read, or null.
+     * @return A JsonObject with the columns, types and rows of the ResultSet.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static JsonObject mapResultSetToColumnarJson(ResultSet rs, RowListener listener) throws SQLException {
+        JsonObject result = new JsonObject();
+        ResultSetMetaData metadata = rs.getMetaData();
+        int columnCount = metadata.getColumnCount();
+        ColumnReader[] readers = ColumnReader.plan(metadata);
 
+        JsonArray columns = new JsonArray(columnCount);
+        JsonArray types = new JsonArray(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            columns.add(metadata.getColumnLabel(i + 1));
+            types.add(getTypeName(metadata, i + 1));
+        }
+
+        JsonArray rows = new JsonArray();
+        while (rs.next()) {
+            JsonArray row = new JsonArray(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                row.add(readers[i].read(rs, i + 1));
+            }
+            rows.add(row);
+            if (listener != null) {
+                listener.onRow(rs);
+            }
+        }
+
+        result.add("columns", columns);
+        result.add("types", types);
+        result.add("rows", rows);
+        return result;
+    }
+
+    /**
+     * Writes the columns, types and rows fields of the columnar layout into the JSON object
+     * the writer is in, in a single pass over the ResultSet.
+     *
+     * @param rs     The ResultSet to write.
+     * @param writer The JSON writer, positioned inside an object.
+     * @return The number of rows written.
+     * @throws SQLException If a database access error occurs.
+     * @throws IOException  If an error occurs while writing the JSON output.
+     * @see #mapResultSetToColumnarJson(ResultSet)
+     */
+    public static int writeResultSetToColumnarJson(ResultSet rs, JsonWriter writer) throws SQLException, IOException {
+        return writeResultSetToColumnarJson(rs, writer, null);
+    }
+
+    /**
+     * Writes the columnar layout fields, notifying the listener of every row.
+     *
+     * @param rs       The ResultSet to write.
+     * @param writer   The JSON writer, positioned inside an object.
+     * @param listener The listener called after each row is written, or null.
+     * @return The number of rows written.
+     * @throws SQLException If a database access error occurs.
+     * @throws IOException  If an error occurs while writing the JSON output.
+     */
+    public static int writeResultSetToColumnarJson(ResultSet rs, JsonWriter writer, RowListener listener)
+            throws SQLException, IOException {
+        ResultSetMetaData metadata = rs.getMetaData();
+        int columnCount = metadata.getColumnCount();
+        ColumnReader[] readers = ColumnReader.plan(metadata);
+
+        writer.name("columns").beginArray();
+        for (int i = 0; i < columnCount; i++) {
+            writer.value(metadata.getColumnLabel(i + 1));
+        }
+        writer.endArray();
+
+        writer.name("types").beginArray();
+        for (int i = 0; i < columnCount; i++) {
+            writer.value(getTypeName(metadata, i + 1));
+        }
+        writer.endArray();
+
+        int rowCount = 0;
+        writer.name("rows").beginArray();
+        while (rs.next()) {
+            writer.beginArray();
+            for (int i = 0; i < columnCount; i++) {
+                readers[i].write(rs, i + 1, writer);
+            }
+            writer.endArray();
+            rowCount++;
+            if (listener != null) {
+                listener.onRow(rs);
+            }
+        }
+        writer.endArray();
+        return rowCount;
+    }
+
+    /**
+     * @return the JDBC type name of the column, or the database type name for vendor types
+     */
+    private static String getTypeName(ResultSetMetaData metadata, int column) throws SQLException {
+        try {
+            return JDBCType.valueOf(metadata.getColumnType(column)).getName();
+        } catch (IllegalArgumentException e) {
+            return metadata.getColumnTypeName(column);
+        }
+    }
+
+    /**
+     * Writes the rows of a ResultSet in the given format to the output stream as UTF-8.
+     *
+     * @param rs     The ResultSet to write.
+     * @param format The format, one of xml, csv or text.
+     * @param out    The stream to write to. It is flushed but not closed.
+     * @return The number of rows written.
+     * @throws SQLException If a database access error occurs or the result can not be written.
+     */
+    public static int writeResultSet(ResultSet rs, String format, OutputStream out) throws SQLException {
+        try {
+            switch (format) {
+                case Constants.FORMAT_XML:
+                    XMLStreamWriter xmlWriter = StAXUtils.createXMLStreamWriter(out, "UTF-8");
+                    int rowCount = writeResultSetToXML(rs, xmlWriter);
+                    xmlWriter.flush();
+                    return rowCount;
+                case Constants.FORMAT_CSV:
+                case Constants.FORMAT_TEXT:
+                    Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                    rowCount = Constants.FORMAT_CSV.equals(format) ? writeResultSetToCSV(rs, writer)
+                            : writeResultSetToText(rs, writer);
+                    writer.flush();
+                    return rowCount;
+                default:
+                    throw new SQLException("Unsupported format: " + format);
+            }
+        } catch (IOException | XMLStreamException e) {
+            throw new SQLException("Failed to write result in " + format + " format", e);
+        }
+    }
+
+    /**
+     * Writes the rows of a ResultSet as a rows element with one row element per row and one
+     * child element per column. Null values are written as empty elements.
+     */
+    public static int writeResultSetToXML(ResultSet rs, XMLStreamWriter writer)
+            throws SQLException, XMLStreamException {
+        ResultSetMetaData metadata = rs.getMetaData();
+        int columnCount = metadata.getColumnCount();
+        String[] columnNames = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnNames[i] = metadata.getColumnLabel(i + 1);
+        }
+
+        int rowCount = 0;
+        writer.writeStartElement("rows");
+        while (rs.next()) {
+            writer.writeStartElement("row");
+            for (int i = 0; i < columnCount; i++) {
+                Object value = rs.getObject(i + 1);
                 if (value == null) {
-                    jsonRow.add(columnName, null); // Add as JSON null
-                } else if (value instanceof Boolean) {
-                    jsonRow.addProperty(columnName, (Boolean) value);
-                } else if (value instanceof Number) {
-                    jsonRow.addProperty(columnName, (Number) value);
-                } else if (value instanceof Date) {
-                    // Represent dates as ISO 8601 strings or timestamps
-                    jsonRow.addProperty(columnName, value.toString());
+                    writer.writeEmptyElement(columnNames[i]);
                 } else {
-                    jsonRow.addProperty(columnName, value.toString());
+                    writer.writeStartElement(columnNames[i]);
+                    writer.writeCharacters(value.toString());
+                    writer.writeEndElement();
                 }
             }
-            jsonArray.add(jsonRow);
+            writer.writeEndElement();
+            rowCount++;
+        }
+        writer.writeEndElement();
+        return rowCount;
+    }
+
+    /**
+     * Writes the rows of a ResultSet as CSV with a header record of the column labels.
+     * Values are printed cell by cell, so no record array is built per row.
+     */
+    public static int writeResultSetToCSV(ResultSet rs, Writer writer) throws SQLException, IOException {
+        ResultSetMetaData metadata = rs.getMetaData();
+        int columnCount = metadata.getColumnCount();
+        String[] headers = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            headers[i] = metadata.getColumnLabel(i + 1);
+        }
+
+        int rowCount = 0;
+        CSVPrinter csvPrinter = new CSVPrinter(writer, CSVFormat.DEFAULT.builder().setHeader(headers).build());
+        while (rs.next()) {
+            for (int i = 0; i < columnCount; i++) {
+                csvPrinter.print(rs.getObject(i + 1));
+            }
+            csvPrinter.println();
+            rowCount++;
+        }
+        csvPrinter.flush();
+        return rowCount;
+    }
+
+    /**
+     * Writes the rows of a ResultSet as a text table in a single forward pass. Column widths
+     * come from the column labels and display sizes instead of a scan of all the values, so
+     * values wider than {@value #MAX_TEXT_COLUMN_WIDTH} characters are written in full and
+     * may shift the columns after them.
+     */
+    public static int writeResultSetToText(ResultSet rs, Writer writer) throws SQLException, IOException {
+        ResultSetMetaData metadata = rs.getMetaData();
+        int columnCount = metadata.getColumnCount();
+        String[] columnNames = new String[columnCount];
+        int[] columnWidths = new int[columnCount];
+
+        for (int i = 0; i < columnCount; i++) {
+            columnNames[i] = metadata.getColumnLabel(i + 1);
+            int displaySize = Math.min(Math.max(metadata.getColumnDisplaySize(i + 1), 0), MAX_TEXT_COLUMN_WIDTH);
+            columnWidths[i] = Math.max(columnNames[i].length(), displaySize);
+        }
+
+        // print header
+        for (int i = 0; i < columnCount; i++) {
+            writePadded(writer, columnNames[i], columnWidths[i]);
+            if (i < columnCount - 1) {
+                writer.write(" | ");
+            }
+        }
+        writer.write('\n');
+
+        // print separator
+        for (int i = 0; i < columnCount; i++) {
+            for (int j = 0; j < columnWidths[i]; j++) {
+                writer.write('-');
+            }
+            if (i < columnCount - 1) {
+                writer.write("-+-");
+            }
+        }
+        writer.write('\n');
+
+        // print data
+        int rowCount = 0;
+        while (rs.next()) {
+            for (int i = 0; i < columnCount; i++) {
+                Object value = rs.getObject(i + 1);
+                writePadded(writer, value == null ? "" : value.toString(), columnWidths[i]);
+                if (i < columnCount - 1) {
+                    writer.write(" | ");
+                }
+            }
+            writer.write('\n');
+            rowCount++;
+        }
+        return rowCount;
+    }
+
+    private static void writePadded(Writer writer, String value, int width) throws IOException {
+        writer.write(value);
+        for (int i = value.length(); i < width; i++) {
+            writer.write(' ');
         }
-        return jsonArray;
     }
 
     public Object mapToFormat(ResultSet rs, String format) throws Exception {
@@ -172,142 +556,33 @@ public class ResultSetMapper {
     }
 
     private Object convertToXML(ResultSet rs) throws SQLException {
-        OMFactory factory = OMAbstractFactory.getOMFactory();
-        OMElement rootElement = factory.createOMElement(new QName("rows"));
-
-        ResultSetMetaData metadata = rs.getMetaData();
-        int columnCount = metadata.getColumnCount();
-        String[] columnNames = new String[columnCount];
-
-        for (int i = 0; i < columnCount; i++) {
-            columnNames[i] = metadata.getColumnLabel(i + 1);
-        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_STRING_BUILDER_CAPACITY);
+        writeResultSet(rs, Constants.FORMAT_XML, out);
 
-        while (rs.next()) {
-            OMElement rowElement = factory.createOMElement(new QName("row"));
-            rootElement.addChild(rowElement);
-
-            for (int i = 0; i < columnCount; i++) {
-                OMElement colElement = factory.createOMElement(new QName(columnNames[i]));
-                Object value = rs.getObject(i + 1);
-                if (value != null) {
-                    colElement.setText(value.toString());
-                }
-                rowElement.addChild(colElement);
-            }
-        }
-
-        return rootElement;
+        // the element is only expanded into a tree if it is navigated, serializing it copies the bytes
+        OMFactory factory = OMAbstractFactory.getOMFactory();
+        return factory.createOMElement(new ByteArrayDataSource(out.toByteArray(), "UTF-8"), new QName("rows"));
     }
 
     private Object convertToCSV(ResultSet rs) throws SQLException {
         try {
             StringWriter writer = new StringWriter(INITIAL_STRING_BUILDER_CAPACITY);
-            ResultSetMetaData metadata = rs.getMetaData();
-            int columnCount = metadata.getColumnCount();
-
-            // Prepare header
-            String[] headers = new String[columnCount];
-            for (int i = 0; i < columnCount; i++) {
-                headers[i] = metadata.getColumnLabel(i + 1);
-            }
-
-            // load class csvPrinter
-            Class.forName("org.apache.commons.csv.CSVPrinter");
-
-            // CSVPrinter csvPrinter = CSVFormat.DEFAULT.withHeader(headers).print(writer);
-            try (CSVPrinter csvPrinter = new CSVPrinter(writer,
-                    CSVFormat.DEFAULT.builder().setHeader(headers).build())) {
-                // Add data rows
-                while (rs.next()) {
-                    Object[] rowData = new Object[columnCount];
-                    for (int i = 0; i < columnCount; i++) {
-                        rowData[i] = rs.getObject(i + 1);
-                    }
-                    csvPrinter.printRecord(rowData);
-                }
-                csvPrinter.flush();
-            }
-
+            writeResultSetToCSV(rs, writer);
             return writer.toString();
-        } catch (Exception e) {
+        } catch (IOException e) {
             log.error("Error converting to CSV: {}", e.getMessage(), e);
             throw new SQLException("Failed to convert to CSV format", e);
         }
     }
 
     private Object convertToText(ResultSet rs) throws SQLException {
-        StringBuilder textBuilder = new StringBuilder(INITIAL_STRING_BUILDER_CAPACITY);
-
-        ResultSetMetaData metadata = rs.getMetaData();
-        int columnCount = metadata.getColumnCount();
-
-        // get column names and determine column widths
-        String[] columnNames = new String[columnCount];
-        int[] columnWidths = new int[columnCount];
-
-        for (int i = 0; i < columnCount; i++) {
-            columnNames[i] = metadata.getColumnLabel(i + 1);
-            columnWidths[i] = columnNames[i].length();
-        }
-
-        // get column widths
-        rs.beforeFirst(); // Reset cursor if supported
-        while (rs.next()) {
-            for (int i = 0; i < columnCount; i++) {
-                Object value = rs.getObject(i + 1);
-                int valueLength = value == null ? 4 : value.toString().length(); // "null" length is 4
-                if (valueLength > columnWidths[i]) {
-                    columnWidths[i] = valueLength;
-                }
-            }
-        }
-
-        rs.beforeFirst();
-
-        // print header
-        for (int i = 0; i < columnCount; i++) {
-            textBuilder.append(padRight(columnNames[i], columnWidths[i]));
-            if (i < columnCount - 1) {
-                textBuilder.append(" | ");
-            }
-        }
-        textBuilder.append('\n');
-
-        // print separator
-        for (int i = 0; i < columnCount; i++) {
-            textBuilder.append("-".repeat(columnWidths[i]));
-            if (i < columnCount - 1) {
-                textBuilder.append("-+-");
-            }
-        }
-        textBuilder.append('\n');
-
-        // print data
-        while (rs.next()) {
-            for (int i = 0; i < columnCount; i++) {
-                Object value = rs.getObject(i + 1);
-                String displayValue = value == null ? "" : value.toString();
-                textBuilder.append(padRight(displayValue, columnWidths[i]));
-                if (i < columnCount - 1) {
-                    textBuilder.append(" | ");
-                }
-            }
-            textBuilder.append('\n');
-        }
-
-        return textBuilder.toString();
-    }
-
-    private String padRight(String s, int width) {
-        if (s == null) {
-            s = "";
-        }
-        StringBuilder sb = new StringBuilder(s);
-        while (sb.length() < width) {
-            sb.append(' ');
+        try {
+            StringWriter writer = new StringWriter(INITIAL_STRING_BUILDER_CAPACITY);
+            writeResultSetToText(rs, writer);
+            return writer.toString();
+        } catch (IOException e) {
+            throw new SQLException("Failed to convert to text format", e);
         }
-        return sb.toString();
     }
 
     public static String getTargetFormat(MessageContext messageContext) {
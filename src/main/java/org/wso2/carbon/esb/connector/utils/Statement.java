@@ -28,8 +28,41 @@ import org.apache.synapse.SynapseException;
 
 public class Statement {
 
+    private static final Map<String, Integer> TYPE_CODES = new HashMap<>();
+    private static final Map<Integer, ParameterBinder> BINDERS = new HashMap<>();
+
+    static {
+        // match java.sql.Types to the type string
+        TYPE_CODES.put("CHAR", Types.CHAR);
+        TYPE_CODES.put("VARCHAR", Types.VARCHAR);
+        TYPE_CODES.put("LONGVARCHAR", Types.LONGVARCHAR);
+        TYPE_CODES.put("NUMERIC", Types.NUMERIC);
+        TYPE_CODES.put("DECIMAL", Types.DECIMAL);
+        TYPE_CODES.put("BIT", Types.BIT);
+        TYPE_CODES.put("TINYINT", Types.TINYINT);
+        TYPE_CODES.put("SMALLINT", Types.SMALLINT);
+        TYPE_CODES.put("INT", Types.INTEGER);
+        TYPE_CODES.put("INTEGER", Types.INTEGER);
+        TYPE_CODES.put("BIGINT", Types.BIGINT);
+        TYPE_CODES.put("REAL", Types.REAL);
+        TYPE_CODES.put("FLOAT", Types.FLOAT);
+        TYPE_CODES.put("DOUBLE", Types.DOUBLE);
+        TYPE_CODES.put("DATE", Types.DATE);
+        TYPE_CODES.put("TIME", Types.TIME);
+        TYPE_CODES.put("TIMESTAMP", Types.TIMESTAMP);
+        TYPE_CODES.put("BINARY", Types.BINARY);
+
+        for (Integer type : TYPE_CODES.values()) {
+            ParameterBinder binder = ParameterBinder.forType(type);
+            if (binder != null) {
+                BINDERS.put(type, binder);
+            }
+        }
+    }
+
     private String sqlString = null;
     private final List<Parameter> parameters = new ArrayList<Parameter>();
+    private final List<OutParameter> outParameters = new ArrayList<OutParameter>();
     private final Map<String, String> resultsMap = new HashMap<String, String>();
 
     public Statement(String sqlString) {
@@ -40,10 +73,82 @@ public class Statement {
         parameters.add(new Parameter(type, value));
     }
 
+    public void addParameter(int type, String value) {
+        parameters.add(new Parameter(type, value));
+    }
+
+    public void addParameter(int type, String value, ParameterBinder binder) {
+        parameters.add(new Parameter(type, value, binder));
+    }
+
     public List<Parameter> getParameters() {
         return parameters;
     }
 
+    /**
+     * Adds an OUT parameter of a procedure call.
+     *
+     * @param name     The name the value is returned under
+     * @param type     The java.sql.Types code the parameter is registered with
+     * @param position The 1 based placeholder position, or 0 to take the next placeholder
+     *                 after the IN parameters
+     */
+    public void addOutParameter(String name, int type, int position) {
+        outParameters.add(new OutParameter(name, type, position));
+    }
+
+    public List<OutParameter> getOutParameters() {
+        return outParameters;
+    }
+
+    /**
+     * Resolves the placeholder positions of the OUT parameters. IN parameters are bound to the
+     * placeholders that are not taken by an OUT parameter with an explicit position, and OUT
+     * parameters without a position take the placeholders left after the IN parameters.
+     *
+     * @return The positions, in the order of {@link #getOutParameters()}
+     */
+    public int[] getOutPositions() {
+        int inCount = 0;
+        for (Parameter parameter : parameters) {
+            if (parameter != null) {
+                inCount++;
+            }
+        }
+        int placeholders = inCount + outParameters.size();
+        boolean[] taken = new boolean[placeholders + 1];
+        int[] positions = new int[outParameters.size()];
+        for (int i = 0; i < positions.length; i++) {
+            OutParameter parameter = outParameters.get(i);
+            int position = parameter.getPosition();
+            if (position > 0) {
+                if (position > placeholders || taken[position]) {
+                    throw new SynapseException("Invalid position " + position + " of OUT parameter : "
+                            + parameter.getName());
+                }
+                taken[position] = true;
+                positions[i] = position;
+            }
+        }
+
+        int next = 1;
+        for (int i = 0; i < inCount; i++) {
+            while (taken[next]) {
+                next++;
+            }
+            next++;
+        }
+        for (int i = 0; i < positions.length; i++) {
+            if (positions[i] == 0) {
+                while (taken[next]) {
+                    next++;
+                }
+                positions[i] = next++;
+            }
+        }
+        return positions;
+    }
+
     public String getSqlString() {
         return sqlString;
     }
@@ -57,69 +162,22 @@ public class Statement {
     }
 
     public static class Parameter {
-        private int type;
-        private String value;
+        private final int type;
+        private final String value;
+        private final ParameterBinder binder;
 
         Parameter(String type, String value) {
-            this.value = value;
+            this(resolveType(type), value);
+        }
 
-            // match java.sql.Types to the type string
-            switch (type) {
-                case "CHAR":
-                    this.type = Types.CHAR;
-                    break;
-                case "VARCHAR":
-                    this.type = Types.VARCHAR;
-                    break;
-                case "LONGVARCHAR":
-                    this.type = Types.LONGVARCHAR;
-                    break;
-                case "NUMERIC":
-                    this.type = Types.NUMERIC;
-                    break;
-                case "DECIMAL":
-                    this.type = Types.DECIMAL;
-                    break;
-                case "BIT":
-                    this.type = Types.BIT;
-                    break;
-                case "TINYINT":
-                    this.type = Types.TINYINT;
-                    break;
-                case "SMALLINT":
-                    this.type = Types.SMALLINT;
-                    break;
-                case "INT":
-                case "INTEGER":
-                    this.type = Types.INTEGER;
-                    break;
-                case "BIGINT":
-                    this.type = Types.BIGINT;
-                    break;
-                case "REAL":
-                    this.type = Types.REAL;
-                    break;
-                case "FLOAT":
-                    this.type = Types.FLOAT;
-                    break;
-                case "DOUBLE":
-                    this.type = Types.DOUBLE;
-                    break;
-                case "DATE":
-                    this.type = Types.DATE;
-                    break;
-                case "TIME":
-                    this.type = Types.TIME;
-                    break;
-                case "TIMESTAMP":
-                    this.type = Types.TIMESTAMP;
-                    break;
-                case "BINARY":
-                    this.type = Types.BINARY;
-                    break;
-                default:
-                    throw new SynapseException("Unknown or unsupported JDBC type : " + type);
-            }
+        Parameter(int type, String value) {
+            this(type, value, Statement.getBinder(type));
+        }
+
+        Parameter(int type, String value, ParameterBinder binder) {
+            this.type = type;
+            this.value = value;
+            this.binder = binder;
         }
 
         public int getType() {
@@ -129,6 +187,64 @@ public class Statement {
         public String getValue() {
             return value;
         }
+
+        /**
+         * @return the binder for the type of this parameter, or null if the type can not be bound
+         */
+        public ParameterBinder getBinder() {
+            return binder;
+        }
+    }
+
+    public static class OutParameter {
+        private final String name;
+        private final int type;
+        private final int position;
+
+        OutParameter(String name, int type, int position) {
+            this.name = name;
+            this.type = type;
+            this.position = position;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        /**
+         * @return the configured placeholder position, or 0 if it follows the IN parameters
+         */
+        public int getPosition() {
+            return position;
+        }
+    }
+
+    /**
+     * Match the type string to the java.sql.Types code.
+     *
+     * @param type The type name, e.g. VARCHAR
+     * @return The java.sql.Types code
+     */
+    public static int resolveType(String type) {
+        Integer code = TYPE_CODES.get(type);
+        if (code == null) {
+            throw new SynapseException("Unknown or unsupported JDBC type : " + type);
+        }
+        return code;
+    }
+
+    /**
+     * Returns the shared binder of the given java.sql.Types code.
+     *
+     * @param type The java.sql.Types code
+     * @return The binder, or null if values of the type can not be bound
+     */
+    public static ParameterBinder getBinder(int type) {
+        return BINDERS.get(type);
     }
 
     public String getQuery() {
@@ -18,6 +18,9 @@
 
 package org.wso2.carbon.esb.connector.utils;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 
@@ -28,6 +31,8 @@ import org.apache.axiom.om.OMAbstractFactory;
 import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.OMFactory;
 import org.apache.axiom.om.OMNamespace;
+import org.apache.axiom.om.ds.InputStreamDataSource;
+import org.apache.axiom.om.ds.WrappedTextNodeOMDataSourceFromReader;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseConstants;
 import org.apache.axiom.soap.SOAPBody;
@@ -59,9 +64,14 @@ import java.sql.SQLTransientException;
 
 import java.sql.SQLWarning;
 import java.util.Map;
+import javax.xml.namespace.QName;
 
 public class Utils {
 
+    private static final QName TEXT_WRAPPER = new QName("http://ws.apache.org/commons/ns/payload", "text");
+    private static final String XML_CONTENT_TYPE = "application/xml";
+    private static final String TEXT_CONTENT_TYPE = "text/plain";
+
     public static String getConnectionName(MessageContext messageContext) throws ConnectException {
         String connectionName = (String) messageContext.getProperty(Constants.CONNECTION_NAME);
         if (connectionName == null)
@@ -103,8 +113,6 @@ public class Utils {
 
         if (exception instanceof ConnectException) {
             return Error.CONNECTION_ERROR;
-        } else if (exception instanceof SQLException) {
-            return Error.QUERY_EXECUTION_FAILURE;
         } else if (exception instanceof ClassNotFoundException) {
             return Error.CONNECTION_ERROR;
         } else if (exception instanceof NullPointerException) {
@@ -148,6 +156,11 @@ public class Utils {
         } else if (exception instanceof SQLWarning) {
             return Error.UNKNOWN_EXCEPTION;
         } else if (exception instanceof SQLException) {
+            // drivers that do not use the SQLException subclasses report connection failures by SQLState
+            String sqlState = ((SQLException) exception).getSQLState();
+            if (sqlState != null && sqlState.startsWith("08")) {
+                return Error.CONNECTION_ERROR;
+            }
             return Error.QUERY_EXECUTION_FAILURE;
         }
 
@@ -207,10 +220,7 @@ public class Utils {
             } catch (AxisFault e) {
                 throw new RuntimeException("Error while setting JSON payload", e);
             }
-            axisMsgCtx.setProperty(org.apache.axis2.Constants.Configuration.MESSAGE_TYPE,
-                    Constants.JSON_CONTENT_TYPE);
-            axisMsgCtx.setProperty(org.apache.axis2.Constants.Configuration.CONTENT_TYPE,
-                    Constants.JSON_CONTENT_TYPE);
+            setJsonContentType(axisMsgCtx);
         } else {
             response.setPayload(payload);
             response.setAttributes(attributes);
@@ -218,6 +228,83 @@ public class Utils {
         }
     }
 
+    /**
+     * Replaces the message body with an already serialized JSON payload. Used when the
+     * result is streamed from the ResultSet, so no JSON tree or intermediate string is built.
+     * <p>
+     * JsonUtil.getNewJsonPayload keeps the stream in a BufferedInputStream marked with an
+     * unlimited read limit, so that the payload can be read more than once. Reading it, for
+     * example when the response is written, copies the whole payload onto the heap. JSON
+     * results are therefore never spilled to disk, spilling would not bound their memory.
+     *
+     * @param messageContext The message context
+     * @param jsonStream     Stream over the serialized JSON payload
+     */
+    public static void setJsonStreamAsPayload(MessageContext messageContext, InputStream jsonStream) {
+
+        org.apache.axis2.context.MessageContext axisMsgCtx = ((Axis2MessageContext) messageContext)
+                .getAxis2MessageContext();
+        try {
+            JsonUtil.getNewJsonPayload(axisMsgCtx, jsonStream, true, true);
+        } catch (AxisFault e) {
+            throw new RuntimeException("Error while setting JSON payload", e);
+        }
+        setJsonContentType(axisMsgCtx);
+    }
+
+    /**
+     * Sets a query result serialized in the xml, csv or text format as the result of the
+     * operation. The message body is replaced if overwriteBody is set, otherwise the result is
+     * stored in the response variable. XML results are wrapped in an element that is only
+     * expanded if the mediation navigates it. CSV and text results are wrapped in the plain
+     * text wrapper element and streamed out as text/plain.
+     *
+     * @param messageContext   The message context
+     * @param format           The format the result is serialized in
+     * @param result           Stream over the UTF-8 serialized result
+     * @param responseVariable The variable to store the result in
+     * @param overwriteBody    Whether to replace the message body with the result
+     */
+    public static void handleFormattedResponse(MessageContext messageContext, String format, InputStream result,
+            String responseVariable, Boolean overwriteBody) {
+
+        OMFactory factory = OMAbstractFactory.getOMFactory();
+        boolean xml = Constants.FORMAT_XML.equals(format);
+        OMElement element = xml
+                ? factory.createOMElement(new InputStreamDataSource(result, "UTF-8"), "rows", null)
+                : factory.createOMElement(new WrappedTextNodeOMDataSourceFromReader(TEXT_WRAPPER,
+                        new InputStreamReader(result, StandardCharsets.UTF_8)), TEXT_WRAPPER);
+
+        if (overwriteBody != null && overwriteBody) {
+            org.apache.axis2.context.MessageContext axisMsgCtx = ((Axis2MessageContext) messageContext)
+                    .getAxis2MessageContext();
+            JsonUtil.removeJsonPayload(axisMsgCtx);
+            axisMsgCtx.removeProperty(PassThroughConstants.NO_ENTITY_BODY);
+
+            SOAPBody soapBody = messageContext.getEnvelope().getBody();
+            OMElement child;
+            while ((child = soapBody.getFirstElement()) != null) {
+                child.detach();
+            }
+            soapBody.addChild(element);
+
+            String contentType = xml ? XML_CONTENT_TYPE : TEXT_CONTENT_TYPE;
+            axisMsgCtx.setProperty(org.apache.axis2.Constants.Configuration.MESSAGE_TYPE, contentType);
+            axisMsgCtx.setProperty(org.apache.axis2.Constants.Configuration.CONTENT_TYPE, contentType);
+        } else {
+            ConnectorResponse response = new DefaultConnectorResponse();
+            response.setPayload(xml ? element : element.getText());
+            messageContext.setVariable(responseVariable, response);
+        }
+    }
+
+    private static void setJsonContentType(org.apache.axis2.context.MessageContext axisMsgCtx) {
+        axisMsgCtx.setProperty(org.apache.axis2.Constants.Configuration.MESSAGE_TYPE,
+                Constants.JSON_CONTENT_TYPE);
+        axisMsgCtx.setProperty(org.apache.axis2.Constants.Configuration.CONTENT_TYPE,
+                Constants.JSON_CONTENT_TYPE);
+    }
+
     public JsonObject generateOperationResult(MessageContext msgContext, boolean resultStatus, Error error) {
         JsonObject jsonResult = new JsonObject();
 
@@ -0,0 +1,73 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Stack;
+
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.mediators.template.TemplateContext;
+
+/**
+ * Message contexts for running the connector operations without a server.
+ */
+public final class MockMessageContext {
+
+    private MockMessageContext() {
+    }
+
+    /**
+     * Returns a message context backed by a map of properties, called from a template with
+     * the given parameters. Other methods return null, or the default of a primitive type.
+     *
+     * @param templateParams The template parameters, read when the operation looks them up
+     * @return The message context
+     */
+    public static MessageContext create(Map<String, Object> templateParams) {
+        Map<String, Object> properties = new HashMap<>();
+        Stack<TemplateContext> functionStack = new Stack<>();
+        functionStack.push(new TemplateContext("db", new ArrayList<>()) {
+            @Override
+            public Object getParameterValue(String name) {
+                return templateParams.get(name);
+            }
+        });
+        properties.put(SynapseConstants.SYNAPSE__FUNCTION__STACK, functionStack);
+
+        return (MessageContext) Proxy.newProxyInstance(MockMessageContext.class.getClassLoader(),
+                new Class<?>[]{MessageContext.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getProperty":
+                            return properties.get((String) args[0]);
+                        case "setProperty":
+                            properties.put((String) args[0], args[1]);
+                            return null;
+                        default:
+                            Class<?> type = method.getReturnType();
+                            return type.isPrimitive() && type != void.class ? Array.get(Array.newInstance(type, 1), 0)
+                                    : null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.connections;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.SQLTimeoutException;
+import java.util.HashMap;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.esb.connector.MockMessageContext;
+import org.wso2.carbon.esb.connector.pojo.ConnectionConfiguration;
+
+/**
+ * Tests the state transitions of {@link CircuitBreaker}, and which statement failures a
+ * {@link DBConnectionPool} counts against it.
+ */
+public class CircuitBreakerTest {
+
+    private static final String POOL_NAME = "breakerTest";
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        DBConnectionPool.shutdownPools();
+    }
+
+    @Test
+    public void testBreakerOpensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("db", 3, 60000);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.CLOSED);
+
+        breaker.recordFailure();
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.OPEN);
+        Assert.assertFalse(breaker.isAvailable());
+        Assert.assertFalse(breaker.tryAcquire());
+        Assert.assertEquals(breaker.getTripCount(), 1);
+        Assert.assertEquals(breaker.getRejectionCount(), 1);
+    }
+
+    @Test
+    public void testProbeClosesTheBreaker() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("db", 1, 10);
+        breaker.recordFailure();
+        Thread.sleep(20);
+
+        Assert.assertTrue(breaker.isAvailable());
+        Assert.assertTrue(breaker.tryAcquire());
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.HALF_OPEN);
+        Assert.assertFalse(breaker.tryAcquire(), "only one probe is let through");
+
+        breaker.recordSuccess();
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.CLOSED);
+        Assert.assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testFailedProbeOpensTheBreakerAgain() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("db", 2, 10);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        Thread.sleep(20);
+        Assert.assertTrue(breaker.tryAcquire());
+
+        breaker.recordFailure();
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.OPEN);
+        Assert.assertFalse(breaker.isAvailable());
+        Assert.assertEquals(breaker.getTripCount(), 2);
+    }
+
+    @Test
+    public void testBreakerWithoutThresholdNeverOpens() {
+        CircuitBreaker breaker = new CircuitBreaker("db", 0, 60000);
+        for (int i = 0; i < 10; i++) {
+            breaker.recordFailure();
+        }
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.CLOSED);
+        Assert.assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testOnlyConnectionFailuresCount() throws Exception {
+        ConnectionConfiguration config = new ConnectionConfiguration(MockMessageContext.create(new HashMap<>()));
+        config.setUrl("jdbc:h2:mem:" + POOL_NAME + ";DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setPassword("sa");
+        config.setDriverClassName("org.h2.Driver");
+        config.setProtocol("h2");
+        config.setCircuitBreakerFailureThreshold("1");
+        config.setCircuitBreakerOpenDuration("60000");
+        DBConnectionPool pool = DBConnectionPool.createPool(POOL_NAME, config);
+        DBHandler handler = pool.borrow();
+        CircuitBreaker breaker = handler.getCircuitBreaker();
+
+        Assert.assertFalse(pool.recordFailure(handler, new SQLTimeoutException("timed out", "08001")));
+        Assert.assertFalse(pool.recordFailure(handler, new SQLException("lock wait timeout", "HYT00")));
+        Assert.assertFalse(pool.recordFailure(handler, new SQLSyntaxErrorException("bad", "42000")));
+        Assert.assertFalse(pool.recordFailure(null, new SQLException("gone", "08S01")));
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.CLOSED);
+
+        Assert.assertTrue(pool.recordFailure(handler, new SQLException("gone", "08S01")));
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.OPEN);
+
+        breaker.recordSuccess();
+        Assert.assertTrue(pool.recordFailure(handler,
+                new RuntimeException(new SQLNonTransientConnectionException("closed"))));
+        Assert.assertEquals(breaker.getState(), CircuitBreaker.State.OPEN);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.connections;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.wso2.carbon.connector.core.ConnectException;
+import org.wso2.carbon.connector.core.connection.ConnectionHandler;
+import org.wso2.carbon.esb.connector.MockMessageContext;
+import org.wso2.carbon.esb.connector.pojo.ConnectionConfiguration;
+import org.wso2.carbon.esb.connector.utils.Constants;
+
+/**
+ * Borrows and releases connections over an in-memory H2 database from 8, 32 and 128 threads,
+ * reporting the time of a borrow and release pair. Each borrowed connection is held for a few
+ * hundred nanoseconds of work, so that threads beyond the pool size wait for a connection.
+ * <p>
+ * The native pool is a {@link DBConnectionPool}. The connectorCore pool is the generic object
+ * pool of the connector core {@link ConnectionHandler} the connector used before, fed by the
+ * same {@link DBConnectionFactory} and configuration.
+ * <p>
+ * Run with <code>mvn -Pbenchmark test-compile exec:exec -Dbenchmark=DBConnectionPoolBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DBConnectionPoolBenchmark {
+
+    private static final String POOL_NAME = "poolBenchmark";
+
+    @Param({"native", "connectorCore"})
+    public String pooling;
+
+    @Param({"16"})
+    public int maxActiveConnections;
+
+    @Param({"100"})
+    public int holdTokens;
+
+    private DBConnectionPool pool;
+    private ConnectionHandler connectionHandler;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ConnectionConfiguration config = new ConnectionConfiguration(MockMessageContext.create(new HashMap<>()));
+        config.setUrl("jdbc:h2:mem:" + POOL_NAME + ";DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setPassword("sa");
+        config.setDriverClassName("org.h2.Driver");
+        config.setProtocol("h2");
+        config.setMaxActiveConnections(maxActiveConnections);
+        config.setMaxIdleConnections(maxActiveConnections);
+        config.setMaxWaitTime(60000);
+        config.setExhaustedAction(DBConnectionPool.WHEN_EXHAUSTED_BLOCK);
+        if ("native".equals(pooling)) {
+            pool = DBConnectionPool.createPool(POOL_NAME, config);
+        } else {
+            connectionHandler = ConnectionHandler.getConnectionHandler();
+            connectionHandler.createConnection(Constants.CONNECTOR_NAME, POOL_NAME, new DBConnectionFactory(config),
+                    config.getConfiguration());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != null) {
+            DBConnectionPool.shutdownPools();
+        } else {
+            connectionHandler.shutdownConnections(Constants.CONNECTOR_NAME);
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public DBHandler threads8() throws SQLException, ConnectException {
+        return borrowAndRelease();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public DBHandler threads32() throws SQLException, ConnectException {
+        return borrowAndRelease();
+    }
+
+    @Benchmark
+    @Threads(128)
+    public DBHandler threads128() throws SQLException, ConnectException {
+        return borrowAndRelease();
+    }
+
+    private DBHandler borrowAndRelease() throws SQLException, ConnectException {
+        if (pool == null) {
+            DBHandler handler = (DBHandler) connectionHandler.getConnection(Constants.CONNECTOR_NAME, POOL_NAME);
+            try {
+                Blackhole.consumeCPU(holdTokens);
+            } finally {
+                connectionHandler.returnConnection(Constants.CONNECTOR_NAME, POOL_NAME, handler);
+            }
+            return handler;
+        }
+        DBHandler handler = pool.borrow();
+        try {
+            Blackhole.consumeCPU(holdTokens);
+        } finally {
+            pool.release(handler);
+        }
+        return handler;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.connections;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashMap;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.esb.connector.MockMessageContext;
+import org.wso2.carbon.esb.connector.pojo.ConnectionConfiguration;
+
+/**
+ * Tests the sizing and the registration of {@link DBConnectionPool} against an in-memory H2
+ * database.
+ */
+public class DBConnectionPoolTest {
+
+    private static final String POOL_NAME = "poolTest";
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        DBConnectionPool.shutdownPools();
+    }
+
+    private static ConnectionConfiguration newConfig(int maxActive, String exhaustedAction) throws Exception {
+        ConnectionConfiguration config = new ConnectionConfiguration(MockMessageContext.create(new HashMap<>()));
+        config.setUrl("jdbc:h2:mem:" + POOL_NAME + ";DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setPassword("sa");
+        config.setDriverClassName("org.h2.Driver");
+        config.setProtocol("h2");
+        config.setMaxActiveConnections(maxActive);
+        config.setExhaustedAction(exhaustedAction);
+        return config;
+    }
+
+    @Test
+    public void testGrownConnectionsAreDestroyedOnRelease() throws Exception {
+        DBConnectionPool pool = DBConnectionPool.createPool(POOL_NAME,
+                newConfig(1, DBConnectionPool.WHEN_EXHAUSTED_GROW));
+        DBHandler first = pool.borrow();
+        DBHandler grown = pool.borrow();
+
+        pool.release(grown);
+        Assert.assertTrue(grown.isClosed());
+        Assert.assertEquals(pool.getMetrics().idle.get(), 0);
+
+        pool.release(first);
+        Assert.assertFalse(first.isClosed());
+        Assert.assertEquals(pool.getMetrics().idle.get(), 1);
+        Assert.assertSame(pool.borrow(), first);
+    }
+
+    @Test
+    public void testPoolIsKeptForTheSameConfiguration() throws Exception {
+        DBConnectionPool pool = DBConnectionPool.createPool(POOL_NAME,
+                newConfig(2, DBConnectionPool.WHEN_EXHAUSTED_BLOCK));
+
+        Assert.assertSame(DBConnectionPool.createPool(POOL_NAME, newConfig(2, DBConnectionPool.WHEN_EXHAUSTED_BLOCK)),
+                pool);
+        Assert.assertFalse(pool.isClosed());
+    }
+
+    @Test
+    public void testPoolIsReplacedWhenTheConfigurationChanges() throws Exception {
+        DBConnectionPool pool = DBConnectionPool.createPool(POOL_NAME,
+                newConfig(2, DBConnectionPool.WHEN_EXHAUSTED_BLOCK));
+        DBHandler borrowed = pool.borrow();
+
+        DBConnectionPool replacement = DBConnectionPool.createPool(POOL_NAME,
+                newConfig(4, DBConnectionPool.WHEN_EXHAUSTED_BLOCK));
+        Assert.assertNotSame(replacement, pool);
+        Assert.assertSame(DBConnectionPool.getPool(POOL_NAME), replacement);
+        Assert.assertTrue(pool.isClosed());
+        Assert.assertEquals(replacement.getConfig().getMaxActiveConnections(), 4);
+
+        // a connection of the old pool is closed when it comes back
+        replacement.release(borrowed);
+        Assert.assertTrue(borrowed.isClosed());
+    }
+
+    @Test
+    public void testOpenTransactionIsRolledBackOnRelease() throws Exception {
+        DBConnectionPool pool = DBConnectionPool.createPool(POOL_NAME,
+                newConfig(1, DBConnectionPool.WHEN_EXHAUSTED_BLOCK));
+        DBHandler handler = pool.borrow();
+        try (Statement statement = handler.getJDBCConnection().createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS released (id INT)");
+            statement.execute("DELETE FROM released");
+        }
+        handler.startTransaction("TRANSACTION_READ_COMMITTED");
+        try (Statement statement = handler.getJDBCConnection().createStatement()) {
+            statement.execute("INSERT INTO released VALUES (1)");
+        }
+
+        pool.release(handler);
+        Assert.assertFalse(handler.isTransactionStarted());
+        Assert.assertFalse(handler.isClosed());
+
+        DBHandler next = pool.borrow();
+        Assert.assertSame(next, handler);
+        Connection conn = next.getJDBCConnection();
+        Assert.assertTrue(conn.getAutoCommit());
+        try (Statement statement = conn.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT COUNT(*) FROM released")) {
+            rows.next();
+            Assert.assertEquals(rows.getInt(1), 0);
+        }
+        pool.release(next);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.connections;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the expiry, the bounds, the invalidation and the generations of {@link ResultCache}.
+ */
+public class ResultCacheTest {
+
+    private static final long TTL = 60000;
+
+    private static Set<String> tables(String... names) {
+        return new HashSet<>(java.util.Arrays.asList(names));
+    }
+
+    private static boolean put(ResultCache cache, String key, int size, Set<String> tables) {
+        return cache.put(key, new byte[size], tables, TTL, cache.getGeneration());
+    }
+
+    @Test
+    public void testStoredResultIsReturned() {
+        ResultCache cache = new ResultCache(4, 0);
+        byte[] payload = {1, 2, 3};
+        Assert.assertTrue(cache.put("a", payload, tables("t"), TTL, cache.getGeneration()));
+
+        Assert.assertSame(cache.get("a"), payload);
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals(cache.getHitCount(), 1);
+        Assert.assertEquals(cache.getMissCount(), 1);
+        Assert.assertEquals(cache.getByteSize(), 3);
+    }
+
+    @Test
+    public void testExpiredResultIsDropped() throws Exception {
+        ResultCache cache = new ResultCache(4, 0);
+        Assert.assertTrue(cache.put("a", new byte[1], tables("t"), 1, cache.getGeneration()));
+        Thread.sleep(5);
+
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals(cache.size(), 0);
+        Assert.assertEquals(cache.getByteSize(), 0);
+        Assert.assertFalse(cache.put("b", new byte[1], tables("t"), 0, cache.getGeneration()));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvictedAboveMaxEntries() {
+        ResultCache cache = new ResultCache(2, 0);
+        put(cache, "a", 1, tables("t"));
+        put(cache, "b", 1, tables("t"));
+        cache.get("a");
+        put(cache, "c", 1, tables("t"));
+
+        Assert.assertNotNull(cache.get("a"));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertNotNull(cache.get("c"));
+        Assert.assertEquals(cache.getEvictionCount(), 1);
+    }
+
+    @Test
+    public void testBytesAreBounded() {
+        ResultCache cache = new ResultCache(10, 10);
+        put(cache, "a", 4, tables("t"));
+        put(cache, "b", 4, tables("t"));
+        put(cache, "c", 4, tables("t"));
+
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals(cache.getByteSize(), 8);
+        // a result larger than the cache is not stored, and evicts nothing
+        Assert.assertFalse(put(cache, "d", 11, tables("t")));
+        Assert.assertEquals(cache.size(), 2);
+    }
+
+    @Test
+    public void testReplacedResultKeepsByteCount() {
+        ResultCache cache = new ResultCache(10, 0);
+        put(cache, "a", 4, tables("t"));
+        put(cache, "a", 6, tables("t"));
+
+        Assert.assertEquals(cache.size(), 1);
+        Assert.assertEquals(cache.getByteSize(), 6);
+    }
+
+    @Test
+    public void testWriteDropsResultsOfItsTables() {
+        ResultCache cache = new ResultCache(10, 0);
+        put(cache, "orders", 1, tables("orders"));
+        put(cache, "join", 1, tables("orders", "customers"));
+        put(cache, "items", 1, tables("items"));
+
+        cache.invalidate(tables("customers"));
+        Assert.assertNotNull(cache.get("orders"));
+        Assert.assertNull(cache.get("join"));
+        Assert.assertNotNull(cache.get("items"));
+
+        cache.invalidate(Collections.singleton(ResultCache.ALL_TABLES));
+        Assert.assertEquals(cache.size(), 0);
+        Assert.assertEquals(cache.getByteSize(), 0);
+        Assert.assertEquals(cache.getInvalidationCount(), 3);
+    }
+
+    @Test
+    public void testResultReadBeforeAWriteIsNotStored() {
+        ResultCache cache = new ResultCache(10, 0);
+        long generation = cache.getGeneration();
+        cache.invalidate(tables("unrelated"));
+
+        Assert.assertFalse(cache.put("a", new byte[1], tables("t"), TTL, generation));
+        Assert.assertTrue(cache.put("a", new byte[1], tables("t"), TTL, cache.getGeneration()));
+
+        // an empty set of tables is not a write
+        generation = cache.getGeneration();
+        cache.invalidate(Collections.<String>emptySet());
+        Assert.assertEquals(cache.getGeneration(), generation);
+    }
+}
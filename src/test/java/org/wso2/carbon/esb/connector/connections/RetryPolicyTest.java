@@ -0,0 +1,103 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.connections;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.SQLTransientConnectionException;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the failure classification and the retry delays of {@link RetryPolicy}.
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void testTransientFailures() {
+        Assert.assertTrue(RetryPolicy.isTransient(new SQLException("link failure", "08S01")));
+        Assert.assertTrue(RetryPolicy.isTransient(new SQLException("serialization", "40001")));
+        Assert.assertTrue(RetryPolicy.isTransient(new SQLException("deadlock", "40P01")));
+        Assert.assertTrue(RetryPolicy.isTransient(new SQLTransientConnectionException("busy")));
+        Assert.assertTrue(RetryPolicy.isTransient(new SQLNonTransientConnectionException("closed")));
+        Assert.assertTrue(RetryPolicy.isTransient(new SQLRecoverableException("reconnect")));
+        Assert.assertTrue(RetryPolicy.isTransient(new SQLTransactionRollbackException("rolled back")));
+        // the SQLState of a wrapped exception is used when the outer one has none
+        Assert.assertTrue(RetryPolicy.isTransient(new SQLException("wrapped",
+                new SQLException("deadlock", "40P01"))));
+    }
+
+    @Test
+    public void testPermanentFailures() {
+        Assert.assertFalse(RetryPolicy.isTransient(new SQLTimeoutException("timed out")));
+        Assert.assertFalse(RetryPolicy.isTransient(new SQLTimeoutException("timed out", "08001")));
+        Assert.assertFalse(RetryPolicy.isTransient(new SQLSyntaxErrorException("bad", "42000")));
+        Assert.assertFalse(RetryPolicy.isTransient(new SQLIntegrityConstraintViolationException("dup", "23505")));
+        Assert.assertFalse(RetryPolicy.isTransient(new SQLException("unknown")));
+        // a rollback whose SQLState is not a serialization failure or a deadlock is not retried
+        Assert.assertFalse(RetryPolicy.isSerializationFailure(new SQLTransactionRollbackException("x", "40002")));
+    }
+
+    @Test
+    public void testRetriesStopAfterMaxRetries() {
+        PoolMetrics metrics = new PoolMetrics();
+        RetryPolicy policy = new RetryPolicy(2, 1, 4, 60000, metrics);
+        long start = System.nanoTime();
+
+        Assert.assertTrue(policy.awaitRetry(1, start));
+        Assert.assertTrue(policy.awaitRetry(2, start));
+        Assert.assertFalse(policy.awaitRetry(3, start));
+        policy.recordRecovery();
+        Assert.assertEquals(metrics.getRetryCount(), 2);
+        Assert.assertEquals(metrics.getRetriesExhaustedCount(), 1);
+        Assert.assertEquals(metrics.getRetryRecoveryCount(), 1);
+    }
+
+    @Test
+    public void testBackoffIsBoundedAndJittered() {
+        RetryPolicy policy = new RetryPolicy(10, 20, 40, 60000, new PoolMetrics());
+        long start = System.nanoTime();
+        for (int retry = 1; retry <= 3; retry++) {
+            long before = System.nanoTime();
+            Assert.assertTrue(policy.awaitRetry(retry, start));
+            long waited = (System.nanoTime() - before) / 1000000;
+            long delay = Math.min(20L << (retry - 1), 40);
+            Assert.assertTrue(waited >= delay / 2 - 1, "retry " + retry + " waited " + waited + "ms");
+            Assert.assertTrue(waited < delay + 1000, "retry " + retry + " waited " + waited + "ms");
+        }
+    }
+
+    @Test
+    public void testNoRetryEndsAfterTheDeadline() {
+        PoolMetrics metrics = new PoolMetrics();
+        RetryPolicy policy = new RetryPolicy(5, 1000, 1000, 100, metrics);
+
+        long before = System.nanoTime();
+        Assert.assertFalse(policy.awaitRetry(1, before));
+        Assert.assertTrue(System.nanoTime() - before < 500000000L, "a retry past the deadline does not wait");
+        Assert.assertEquals(metrics.getRetriesExhaustedCount(), 1);
+        Assert.assertEquals(metrics.getRetryCount(), 0);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.connections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that {@link SingleFlight} shares a result only with the selects waiting for it.
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void testFollowersReceiveTheResultOfTheLeader() throws Exception {
+        SingleFlight flights = new SingleFlight();
+        Assert.assertNull(flights.join("k"));
+        CompletableFuture<byte[]> first = flights.join("k");
+        CompletableFuture<byte[]> second = flights.join("k");
+        Assert.assertNotNull(first);
+        Assert.assertSame(first, second);
+        Assert.assertNull(flights.join("other"));
+        Assert.assertEquals(flights.getInFlightCount(), 2);
+
+        byte[] result = {1};
+        flights.complete("k", result);
+        Assert.assertSame(flights.await(first), result);
+        Assert.assertSame(flights.await(second), result);
+        Assert.assertEquals(flights.getLeaderCount(), 2);
+        Assert.assertEquals(flights.getFollowerCount(), 2);
+        Assert.assertEquals(flights.getFallbackCount(), 0);
+        Assert.assertEquals(flights.getInFlightCount(), 1);
+    }
+
+    @Test
+    public void testCompletedFlightIsNotServedLater() {
+        SingleFlight flights = new SingleFlight();
+        Assert.assertNull(flights.join("k"));
+        flights.complete("k", new byte[] {1});
+
+        Assert.assertNull(flights.join("k"), "a select arriving after the flight has to lead a new one");
+        Assert.assertEquals(flights.getLeaderCount(), 2);
+    }
+
+    @Test
+    public void testFailedLeaderMakesFollowersRunTheQuery() {
+        SingleFlight flights = new SingleFlight();
+        Assert.assertNull(flights.join("k"));
+        CompletableFuture<byte[]> flight = flights.join("k");
+        flights.complete("k", null);
+
+        Assert.assertNull(flights.await(flight));
+        Assert.assertEquals(flights.getFallbackCount(), 1);
+        Assert.assertEquals(flights.getInFlightCount(), 0);
+    }
+
+    @Test
+    public void testConcurrentSelectsElectOneLeader() throws Exception {
+        SingleFlight flights = new SingleFlight();
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch joined = new CountDownLatch(threads);
+        byte[] result = {42};
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    CompletableFuture<byte[]> flight = flights.join("k");
+                    joined.countDown();
+                    if (flight != null) {
+                        return flights.await(flight);
+                    }
+                    joined.await();
+                    flights.complete("k", result);
+                    return result;
+                }));
+            }
+            start.countDown();
+            for (Future<byte[]> future : results) {
+                Assert.assertSame(future.get(10, TimeUnit.SECONDS), result);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(flights.getLeaderCount(), 1);
+        Assert.assertEquals(flights.getFollowerCount(), threads - 1);
+        Assert.assertEquals(flights.getInFlightCount(), 0);
+    }
+}
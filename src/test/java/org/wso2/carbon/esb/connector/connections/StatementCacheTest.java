@@ -0,0 +1,174 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.connections;
+
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the LRU eviction and in-use tracking of {@link StatementCache} against a fake
+ * connection whose statements only record whether they were closed.
+ */
+public class StatementCacheTest {
+
+    private List<PreparedStatement> prepared;
+    private Set<PreparedStatement> closed;
+    private Connection conn;
+
+    @BeforeMethod
+    public void setUp() {
+        prepared = new ArrayList<>();
+        closed = new HashSet<>();
+        conn = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("prepare")) {
+                        PreparedStatement ps = newStatement();
+                        prepared.add(ps);
+                        return ps;
+                    }
+                    return null;
+                });
+    }
+
+    private PreparedStatement newStatement() {
+        PreparedStatement[] self = new PreparedStatement[1];
+        self[0] = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{CallableStatement.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            closed.add(self[0]);
+                            return null;
+                        case "isClosed":
+                            return closed.contains(self[0]);
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+        return self[0];
+    }
+
+    private PreparedStatement prepareAndRelease(StatementCache cache, String sql) throws Exception {
+        PreparedStatement ps = cache.prepare(conn, sql, StatementCache.StatementKind.PLAIN);
+        cache.release(ps);
+        return ps;
+    }
+
+    @Test
+    public void testReleasedStatementIsReused() throws Exception {
+        StatementCache cache = new StatementCache(2);
+        PreparedStatement first = prepareAndRelease(cache, "select 1");
+        PreparedStatement second = prepareAndRelease(cache, "select 1");
+
+        Assert.assertSame(second, first);
+        Assert.assertFalse(closed.contains(first));
+        Assert.assertEquals(cache.getHitCount(), 1);
+        Assert.assertEquals(cache.getMissCount(), 1);
+    }
+
+    @Test
+    public void testStatementKindsAreCachedApart() throws Exception {
+        StatementCache cache = new StatementCache(4);
+        PreparedStatement plain = prepareAndRelease(cache, "call p()");
+        PreparedStatement call = cache.prepare(conn, "call p()", StatementCache.StatementKind.CALL);
+        cache.release(call);
+
+        Assert.assertNotSame(call, plain);
+        Assert.assertEquals(cache.size(), 2);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws Exception {
+        StatementCache cache = new StatementCache(2);
+        PreparedStatement a = prepareAndRelease(cache, "a");
+        PreparedStatement b = prepareAndRelease(cache, "b");
+        prepareAndRelease(cache, "a");
+        prepareAndRelease(cache, "c");
+
+        Assert.assertEquals(cache.size(), 2);
+        Assert.assertTrue(closed.contains(b));
+        Assert.assertFalse(closed.contains(a));
+        Assert.assertEquals(cache.getEvictionCount(), 1);
+    }
+
+    @Test
+    public void testStatementInUseIsNotEvicted() throws Exception {
+        StatementCache cache = new StatementCache(1);
+        PreparedStatement a = cache.prepare(conn, "a", StatementCache.StatementKind.PLAIN);
+        PreparedStatement b = prepareAndRelease(cache, "b");
+
+        Assert.assertFalse(closed.contains(a));
+        Assert.assertTrue(closed.contains(b));
+        Assert.assertEquals(cache.size(), 1);
+
+        // once released the cache shrinks back to its size
+        cache.release(a);
+        Assert.assertEquals(cache.size(), 1);
+    }
+
+    @Test
+    public void testSecondPrepareOfStatementInUseGetsUncachedStatement() throws Exception {
+        StatementCache cache = new StatementCache(2);
+        PreparedStatement outer = cache.prepare(conn, "select 1", StatementCache.StatementKind.PLAIN);
+        PreparedStatement inner = cache.prepare(conn, "select 1", StatementCache.StatementKind.PLAIN);
+
+        Assert.assertNotSame(inner, outer);
+        cache.release(inner);
+        Assert.assertTrue(closed.contains(inner));
+        Assert.assertFalse(closed.contains(outer));
+
+        cache.release(outer);
+        Assert.assertSame(prepareAndRelease(cache, "select 1"), outer);
+    }
+
+    @Test
+    public void testDisabledCacheClosesOnRelease() throws Exception {
+        StatementCache cache = new StatementCache(0);
+        PreparedStatement ps = prepareAndRelease(cache, "select 1");
+
+        Assert.assertTrue(closed.contains(ps));
+        Assert.assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testClearClosesStatementInUseOnRelease() throws Exception {
+        StatementCache cache = new StatementCache(2);
+        PreparedStatement idle = prepareAndRelease(cache, "a");
+        PreparedStatement used = cache.prepare(conn, "b", StatementCache.StatementKind.PLAIN);
+        cache.clear();
+
+        Assert.assertTrue(closed.contains(idle));
+        cache.release(used);
+        Assert.assertTrue(closed.contains(used));
+        Assert.assertEquals(cache.size(), 0);
+    }
+}
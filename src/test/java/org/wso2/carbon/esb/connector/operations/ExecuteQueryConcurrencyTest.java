@@ -0,0 +1,272 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.operations;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseException;
+import org.testng.Assert;
+import org.testng.Reporter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.connector.core.ConnectException;
+import org.wso2.carbon.esb.connector.MockMessageContext;
+import org.wso2.carbon.esb.connector.connections.DBConnectionPool;
+import org.wso2.carbon.esb.connector.connections.DBHandler;
+import org.wso2.carbon.esb.connector.pojo.ConnectionConfiguration;
+import org.wso2.carbon.esb.connector.utils.Constants;
+
+/**
+ * Runs many messages through shared ExecuteQuery instances at once against an in-memory H2
+ * database. The messages insert rows with and without transactions, and commit, roll back or fail
+ * on a duplicate key. Only the rows of committed messages may be left, and no connection may be
+ * left in a transaction, which would not hold if a message committed or rolled back on the state
+ * of another one.
+ * <p>
+ * The same mediators also run statements that take a fixed time in the database with a growing
+ * number of workers, to check that throughput grows with the workers while the pool has
+ * connections for them.
+ */
+public class ExecuteQueryConcurrencyTest {
+
+    private static final String CONNECTION_NAME = "concurrencyTest";
+    private static final int THREADS = 16;
+    private static final int MESSAGES = 300;
+
+    private static final String THROUGHPUT_CONNECTION_NAME = "throughputTest";
+    private static final int[] WORKERS = {1, 4, 16};
+    private static final int THROUGHPUT_MESSAGES = 96;
+    private static final int STATEMENT_MILLIS = 10;
+
+    // one mediator instance per operation is shared by all messages, as in a deployed template
+    private final ExecuteQuery begin = newMediator(Constants.BEGIN_TRANSACTION);
+    private final ExecuteQuery insert = newMediator(Constants.OPERATION_INSERT);
+    private final ExecuteQuery commit = newMediator(Constants.COMMIT_TRANSACTION);
+    private final ExecuteQuery rollback = newMediator(Constants.ROLLBACK_TRANSACTION);
+    private final ExecuteQuery query = newMediator(Constants.OPERATION_EXECUTE_QUERY);
+
+    private DBConnectionPool pool;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        ConnectionConfiguration config = new ConnectionConfiguration(MockMessageContext.create(new HashMap<>()));
+        config.setUrl("jdbc:h2:mem:" + CONNECTION_NAME + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        config.setUsername("sa");
+        config.setPassword("sa");
+        config.setDriverClassName("org.h2.Driver");
+        config.setProtocol("h2");
+        pool = DBConnectionPool.createPool(CONNECTION_NAME, config);
+
+        DBHandler handler = pool.borrow();
+        try (java.sql.Statement statement = handler.getJDBCConnection().createStatement()) {
+            statement.execute("CREATE TABLE MESSAGES (ID INT, STEP INT, PRIMARY KEY (ID, STEP))");
+        } finally {
+            pool.release(handler);
+        }
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown() {
+        DBConnectionPool.shutdownPools();
+    }
+
+    @Test
+    public void testConcurrentTransactionsDoNotAffectEachOther() throws Exception {
+        Map<Integer, Throwable> unexpected = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            int id = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    runMessage(id);
+                } catch (Throwable e) {
+                    unexpected.put(id, e);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES), "Messages did not complete");
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        Assert.assertTrue(unexpected.isEmpty(), "Messages failed unexpectedly: " + unexpected);
+
+        DBHandler handler = pool.borrow();
+        try (java.sql.Statement statement = handler.getJDBCConnection().createStatement();
+             ResultSet rs = statement.executeQuery("SELECT ID, COUNT(*) FROM MESSAGES GROUP BY ID")) {
+            int committed = 0;
+            while (rs.next()) {
+                int kind = rs.getInt(1) % 5;
+                Assert.assertTrue(kind == 0 || kind >= 3, "Rows left by message " + rs.getInt(1));
+                Assert.assertEquals(rs.getInt(2), 2, "Partial transaction of message " + rs.getInt(1));
+                committed++;
+            }
+            Assert.assertEquals(committed, MESSAGES * 3 / 5, "Rows of committed messages lost");
+        } finally {
+            pool.release(handler);
+        }
+    }
+
+    @Test
+    public void testThroughputScalesWithWorkers() throws Exception {
+        ConnectionConfiguration config = new ConnectionConfiguration(MockMessageContext.create(new HashMap<>()));
+        config.setUrl("jdbc:h2:mem:" + THROUGHPUT_CONNECTION_NAME + ";DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setPassword("sa");
+        config.setDriverClassName("org.h2.Driver");
+        config.setProtocol("h2");
+        config.setMaxActiveConnections(WORKERS[WORKERS.length - 1]);
+        config.setExhaustedAction(DBConnectionPool.WHEN_EXHAUSTED_BLOCK);
+        DBConnectionPool throughputPool = DBConnectionPool.createPool(THROUGHPUT_CONNECTION_NAME, config);
+        DBHandler handler = throughputPool.borrow();
+        try (java.sql.Statement statement = handler.getJDBCConnection().createStatement()) {
+            statement.execute("CREATE ALIAS IF NOT EXISTS PAUSE FOR '" + getClass().getName() + ".pause'");
+        } finally {
+            throughputPool.release(handler);
+        }
+
+        // warm up the mediator, the statement cache and the connections
+        runTimedMessages(WORKERS[WORKERS.length - 1]);
+        double[] throughput = new double[WORKERS.length];
+        for (int i = 0; i < WORKERS.length; i++) {
+            throughput[i] = runTimedMessages(WORKERS[i]);
+            Reporter.log(WORKERS[i] + " workers: " + Math.round(throughput[i]) + " messages/s", true);
+        }
+        // each step has four times the workers, at least half of that has to show as throughput
+        for (int i = 1; i < WORKERS.length; i++) {
+            Assert.assertTrue(throughput[i] >= throughput[i - 1] * 2, WORKERS[i] + " workers ran "
+                    + Math.round(throughput[i]) + " messages/s, " + WORKERS[i - 1] + " workers "
+                    + Math.round(throughput[i - 1]) + " messages/s");
+        }
+    }
+
+    /**
+     * Called by the database through the PAUSE alias, stands in for the time a statement takes.
+     */
+    public static int pause(int millis) throws InterruptedException {
+        Thread.sleep(millis);
+        return millis;
+    }
+
+    /**
+     * Runs THROUGHPUT_MESSAGES messages that each run one statement on the given number of workers.
+     *
+     * @return The messages completed per second
+     */
+    private double runTimedMessages(int workers) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < THROUGHPUT_MESSAGES; i++) {
+                futures.add(executor.submit(() -> {
+                    Map<String, Object> params = new HashMap<>();
+                    MessageContext messageContext = MockMessageContext.create(params);
+                    messageContext.setProperty(Constants.CONNECTION_NAME, THROUGHPUT_CONNECTION_NAME);
+                    params.put(Constants.QUERY, "SELECT PAUSE(?) AS MILLIS");
+                    params.put(Constants.PARAMETERS, "[[\"" + STATEMENT_MILLIS + "\", \"INTEGER\"]]");
+                    params.put(Constants.IS_PREPARED_STATEMENT, "true");
+                    params.put(Constants.IS_RESULT_SET, "true");
+                    query.connect(messageContext);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+            return THROUGHPUT_MESSAGES * 1e9 / (System.nanoTime() - start);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the message with the given id, which inserts the rows (id, 1) and (id, 2). By id % 5 the
+     * message:
+     * <ol start="0">
+     * <li>begins a transaction, inserts both rows and commits</li>
+     * <li>begins a transaction, inserts both rows and rolls back</li>
+     * <li>begins a transaction and fails inserting the first row again, which rolls it back</li>
+     * <li>inserts both rows without a transaction</li>
+     * <li>inserts both rows in a transaction of their own, started with a transaction isolation</li>
+     * </ol>
+     */
+    private void runMessage(int id) throws ConnectException {
+        Map<String, Object> params = new HashMap<>();
+        MessageContext messageContext = MockMessageContext.create(params);
+        messageContext.setProperty(Constants.CONNECTION_NAME, CONNECTION_NAME);
+        params.put("isolationLevel", "TRANSACTION_READ_COMMITTED");
+        params.put(Constants.PREPARED_STMT, "INSERT INTO MESSAGES (ID, STEP) VALUES (?, ?)");
+        params.put(Constants.COLUMN_NAMES, "ID,STEP");
+        params.put(Constants.COLUMN_TYPES, "INTEGER,INTEGER");
+        messageContext.setProperty("insert:ID", "keyValue ='" + id + "'");
+
+        int kind = id % 5;
+        if (kind == 4) {
+            params.put(Constants.TRANSACTION_ISOLATION, "TRANSACTION_READ_COMMITTED");
+        } else if (kind != 3) {
+            begin.connect(messageContext);
+        }
+
+        messageContext.setProperty("insert:STEP", "keyValue ='1'");
+        insert.connect(messageContext);
+        if (kind == 2) {
+            try {
+                insert.connect(messageContext);
+                Assert.fail("Duplicate insert of message " + id + " succeeded");
+            } catch (SynapseException expected) {
+                // the failed statement rolled the transaction of this message back
+            }
+        } else {
+            messageContext.setProperty("insert:STEP", "keyValue ='2'");
+            insert.connect(messageContext);
+        }
+
+        if (kind == 0) {
+            commit.connect(messageContext);
+        } else if (kind == 1) {
+            rollback.connect(messageContext);
+        }
+        Assert.assertNull(messageContext.getProperty(Constants.DB_CONNECTION + "_" + CONNECTION_NAME),
+                "Connection of message " + id + " left in a transaction");
+    }
+
+    private static ExecuteQuery newMediator(String operation) {
+        ExecuteQuery mediator = new ExecuteQuery();
+        mediator.setOperation(operation);
+        return mediator;
+    }
+}
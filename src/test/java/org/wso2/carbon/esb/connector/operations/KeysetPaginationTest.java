@@ -0,0 +1,198 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.operations;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.esb.connector.exception.InvalidConfigurationException;
+import org.wso2.carbon.esb.connector.utils.Statement;
+
+/**
+ * Tests the statements of {@link KeysetPagination}, the validation of cursors, and pages
+ * through an in-memory H2 table with ascending, descending and mixed key orders.
+ */
+public class KeysetPaginationTest {
+
+    private static final String SELECT = "SELECT ID, GRP, CREATED FROM ITEMS WHERE ID <> ? ORDER BY ID";
+    private static final int ROWS = 23;
+
+    private Connection conn;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        conn = DriverManager.getConnection("jdbc:h2:mem:keysetTest", "sa", "sa");
+        try (java.sql.Statement statement = conn.createStatement()) {
+            statement.execute("CREATE TABLE ITEMS (ID INT PRIMARY KEY, GRP VARCHAR(10), CREATED TIMESTAMP)");
+        }
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO ITEMS VALUES (?, ?, ?)")) {
+            for (int id = 1; id <= ROWS; id++) {
+                ps.setInt(1, id);
+                ps.setString(2, "g" + (id % 3));
+                // several rows share a timestamp, so the later key columns break the ties
+                ps.setTimestamp(3, java.sql.Timestamp.valueOf("2025-01-0" + (1 + id % 4) + " 10:00:00.5"));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown() throws Exception {
+        conn.close();
+    }
+
+    @Test
+    public void testSeekStatements() throws Exception {
+        KeysetPagination single = KeysetPagination.compile("id", "SELECT * FROM t ORDER BY name");
+        Assert.assertEquals(single.getSql(null), "SELECT * FROM (SELECT * FROM t) keyset_page ORDER BY id");
+        Assert.assertEquals(single.getSql("c"),
+                "SELECT * FROM (SELECT * FROM t) keyset_page WHERE id > ? ORDER BY id");
+
+        KeysetPagination mixed = KeysetPagination.compile("a DESC, b", "SELECT * FROM t");
+        Assert.assertEquals(mixed.getSql("c"), "SELECT * FROM (SELECT * FROM t) keyset_page "
+                + "WHERE a <= ? AND ((a < ?) OR (a = ? AND b > ?)) ORDER BY a DESC, b");
+    }
+
+    @Test(expectedExceptions = InvalidConfigurationException.class)
+    public void testInvalidKeyColumnIsRejected() throws Exception {
+        KeysetPagination.compile("id; DROP TABLE t", "SELECT * FROM t");
+    }
+
+    @Test
+    public void testPagingClausesAreStripped() throws Exception {
+        Assert.assertEquals(KeysetPagination.stripPagingClauses("SELECT * FROM t ORDER BY a LIMIT 10 OFFSET 5"),
+                "SELECT * FROM t");
+        Assert.assertEquals(KeysetPagination.stripPagingClauses("SELECT * FROM t FETCH FIRST 10 ROWS ONLY"),
+                "SELECT * FROM t");
+        // nested clauses, literals, identifiers and longer words are kept
+        Assert.assertEquals(KeysetPagination.stripPagingClauses(
+                "SELECT * FROM (SELECT * FROM t ORDER BY a LIMIT 5) s WHERE s.note = 'order by' AND s.limits > 1"),
+                "SELECT * FROM (SELECT * FROM t ORDER BY a LIMIT 5) s WHERE s.note = 'order by' AND s.limits > 1");
+        Assert.assertEquals(KeysetPagination.stripPagingClauses("SELECT \"limit\" FROM t WHERE a = '?' ORDER BY 1"),
+                "SELECT \"limit\" FROM t WHERE a = '?'");
+    }
+
+    @Test(expectedExceptions = InvalidConfigurationException.class)
+    public void testPlaceholderInStrippedLimitIsRejected() throws Exception {
+        KeysetPagination.stripPagingClauses("SELECT * FROM t WHERE a = ? ORDER BY a LIMIT ?");
+    }
+
+    @Test(expectedExceptions = InvalidConfigurationException.class)
+    public void testPlaceholderInStrippedOffsetIsRejectedOnCompile() throws Exception {
+        KeysetPagination.compile("id", "SELECT * FROM t OFFSET ? ROWS FETCH NEXT 10 ROWS ONLY");
+    }
+
+    @Test
+    public void testTamperedCursorsAreRejected() throws Exception {
+        KeysetPagination keyset = KeysetPagination.compile("id", SELECT);
+        String[] cursors = {
+                token("{\"k\":[\"id\"],\"v\":[[2,\"x\"]]}"),
+                token("{\"k\":[\"id\"],\"v\":[[93,\"yesterday\"]]}"),
+                token("{\"k\":[\"id\"],\"v\":[[1234,\"1\"]]}"),
+                token("{\"k\":[\"id\"],\"v\":[[2,null]]}"),
+                token("{\"k\":[null],\"v\":[[2,\"1\"]]}"),
+                token("{\"k\":[\"name\"],\"v\":[[2,\"1\"]]}"),
+                token("{\"k\":[\"id\"],\"v\":[]}"),
+                token("[1]"),
+                "not a cursor"};
+        for (String cursor : cursors) {
+            try {
+                keyset.bindCursor(new Statement(keyset.getSql(cursor)), cursor);
+                Assert.fail("Cursor accepted: " + cursor);
+            } catch (InvalidConfigurationException e) {
+                Assert.assertTrue(e.getMessage().startsWith("Invalid cursor") || e.getMessage().startsWith(
+                        "Cursor does not match"), e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testAscendingPages() throws Exception {
+        assertPagesMatch("ID", "ID", 5);
+    }
+
+    @Test
+    public void testDescendingPages() throws Exception {
+        assertPagesMatch("CREATED DESC, ID DESC", "CREATED DESC, ID DESC", 4);
+    }
+
+    @Test
+    public void testMixedOrderPages() throws Exception {
+        assertPagesMatch("GRP, CREATED DESC, ID", "GRP, CREATED DESC, ID", 3);
+    }
+
+    /**
+     * Reads the table page by page, passing the cursor of every page to the next, and checks
+     * that the pages hold every row once in the order of the key columns.
+     */
+    private void assertPagesMatch(String keyColumns, String orderBy, int pageSize) throws Exception {
+        List<Integer> expected = new ArrayList<>();
+        try (java.sql.Statement statement = conn.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT ID FROM ITEMS ORDER BY " + orderBy)) {
+            while (rs.next()) {
+                expected.add(rs.getInt(1));
+            }
+        }
+
+        KeysetPagination keyset = KeysetPagination.compile(keyColumns, SELECT);
+        List<Integer> paged = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            Statement statement = new Statement(keyset.getSql(cursor));
+            statement.addParameter(Types.INTEGER, "-1");
+            keyset.bindCursor(statement, cursor);
+            KeysetPagination.CursorTracker tracker = keyset.newTracker(pageSize);
+
+            try (PreparedStatement ps = conn.prepareStatement(statement.getQuery())) {
+                List<Statement.Parameter> parameters = statement.getParameters();
+                for (int i = 0; i < parameters.size(); i++) {
+                    parameters.get(i).getBinder().bind(ps, i + 1, parameters.get(i).getValue());
+                }
+                ps.setMaxRows(tracker.getPageSize());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        paged.add(rs.getInt("ID"));
+                        tracker.onRow(rs);
+                    }
+                }
+            }
+            cursor = tracker.getNextCursor();
+            Assert.assertTrue(++pages <= ROWS, "Pagination does not end");
+        } while (cursor != null);
+
+        Assert.assertEquals(paged, expected);
+    }
+
+    private static String token(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
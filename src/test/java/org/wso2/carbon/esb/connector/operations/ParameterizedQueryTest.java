@@ -0,0 +1,164 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.operations;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.esb.connector.connections.DialectProfile;
+import org.wso2.carbon.esb.connector.utils.Statement;
+
+/**
+ * Tests which inline expressions {@link ParameterizedQuery} rewrites into bind markers, and
+ * how the values of a message are bound.
+ */
+public class ParameterizedQueryTest {
+
+    @Test
+    public void testQuotedAndComparedExpressionsAreRewritten() {
+        ParameterizedQuery query = ParameterizedQuery.compile(
+                "SELECT * FROM t WHERE name = '${payload.name}' AND id >= ${payload.id}");
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(query.getSql(), "SELECT * FROM t WHERE name = ? AND id >= ?");
+    }
+
+    @Test
+    public void testQueriesWithoutExpressionsAreNotRewritten() {
+        Assert.assertNull(ParameterizedQuery.compile("SELECT 1"));
+        Assert.assertNull(ParameterizedQuery.compile(null));
+    }
+
+    @Test
+    public void testExpressionsOutsideValuesAreNotRewritten() {
+        // identifiers, partial literals, typed literals and comments
+        Assert.assertNull(ParameterizedQuery.compile("SELECT * FROM ${vars.table}"));
+        Assert.assertNull(ParameterizedQuery.compile("SELECT * FROM t WHERE name LIKE '${payload.n}%'"));
+        Assert.assertNull(ParameterizedQuery.compile("SELECT * FROM t WHERE d = DATE '${payload.d}'"));
+        Assert.assertNull(ParameterizedQuery.compile("SELECT * FROM t WHERE id = 1 -- ${payload.id}"));
+        Assert.assertNull(ParameterizedQuery.compile("SELECT \"${payload.column}\" FROM t"));
+        Assert.assertNull(ParameterizedQuery.compile("SELECT * FROM t WHERE name = '${payload.name}"));
+    }
+
+    @Test
+    public void testQuotesInLiteralsAndExpressionsAreKept() {
+        ParameterizedQuery query = ParameterizedQuery.compile(
+                "INSERT INTO t VALUES ('${vars.x['a']}', 'it''s') -- don't");
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(query.getSql(), "INSERT INTO t VALUES (?, 'it''s') -- don't");
+    }
+
+    @Test
+    public void testValuesAreBoundInOrder() {
+        ParameterizedQuery query = ParameterizedQuery.compile(
+                "SELECT * FROM t WHERE name = '${payload.name}' AND id = ${payload.id}");
+        Map<String, String> values = new HashMap<>();
+        values.put("${payload.name}", "O'Brien");
+        values.put("${payload.id}", " 42 ");
+
+        Statement statement = query.bind(values::get, DialectProfile.Dialect.GENERIC);
+        Assert.assertNotNull(statement);
+        Assert.assertEquals(statement.getQuery(), query.getSql());
+        List<Statement.Parameter> parameters = statement.getParameters();
+        Assert.assertEquals(parameters.size(), 2);
+        Assert.assertEquals(parameters.get(0).getType(), Types.VARCHAR);
+        Assert.assertEquals(parameters.get(0).getValue(), "O'Brien");
+        Assert.assertEquals(parameters.get(1).getType(), Types.NUMERIC);
+        Assert.assertEquals(parameters.get(1).getValue(), "42");
+    }
+
+    @Test
+    public void testQuotedEmptyValueStaysAString() {
+        ParameterizedQuery query = ParameterizedQuery.compile("SELECT * FROM t WHERE name = '${payload.name}'");
+
+        Statement statement = query.bind(expression -> "", DialectProfile.Dialect.GENERIC);
+        Assert.assertNotNull(statement);
+        Assert.assertEquals(statement.getParameters().get(0).getValue(), "");
+    }
+
+    @Test
+    public void testNonNumericComparedValueFallsBackToSplicing() {
+        ParameterizedQuery query = ParameterizedQuery.compile("SELECT * FROM t WHERE id = ${payload.id}");
+
+        Assert.assertNull(query.bind(expression -> "1 OR 1=1", null));
+        Assert.assertNull(query.bind(expression -> null, null));
+        Assert.assertNotNull(query.bind(expression -> "-1.5e3", null));
+    }
+
+    @Test
+    public void testQuotedValueComparedWithNumericColumn() throws Exception {
+        ParameterizedQuery query = ParameterizedQuery.compile(
+                "SELECT name FROM numbered WHERE id = '${payload.id}'");
+        Statement statement = query.bind(expression -> "42", DialectProfile.Dialect.GENERIC);
+
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:parameterized;DB_CLOSE_DELAY=-1", "sa",
+                "sa")) {
+            conn.createStatement().execute(
+                    "CREATE TABLE IF NOT EXISTS numbered (id INT PRIMARY KEY, name VARCHAR(10))");
+            conn.createStatement().execute("MERGE INTO numbered VALUES (42, 'answer')");
+            try (PreparedStatement ps = conn.prepareStatement(statement.getQuery())) {
+                Statement.Parameter parameter = statement.getParameters().get(0);
+                parameter.getBinder().bind(ps, 1, parameter.getValue());
+                try (ResultSet rows = ps.executeQuery()) {
+                    Assert.assertTrue(rows.next());
+                    Assert.assertEquals(rows.getString(1), "answer");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testQuotedValueIsBoundUntypedOnPostgreSQL() throws Exception {
+        // PostgreSQL rejects integer = character varying, so the value must not be sent as a VARCHAR
+        ParameterizedQuery query = ParameterizedQuery.compile("SELECT * FROM t WHERE id = '${payload.id}'");
+        Statement statement = query.bind(expression -> "42", DialectProfile.Dialect.POSTGRESQL);
+        Statement.Parameter parameter = statement.getParameters().get(0);
+        Assert.assertEquals(parameter.getType(), Types.OTHER);
+
+        List<String> calls = new ArrayList<>();
+        PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+                    calls.add(method.getName() + Arrays.asList(args));
+                    return null;
+                });
+        parameter.getBinder().bind(ps, 1, parameter.getValue());
+        Assert.assertEquals(calls, Arrays.asList("setObject[1, 42, " + Types.OTHER + "]"));
+    }
+
+    @Test
+    public void testQuotedValuesAreSplicedWhileTheDialectIsUnknown() {
+        ParameterizedQuery query = ParameterizedQuery.compile(
+                "SELECT * FROM t WHERE name = '${payload.name}' AND id = ${payload.id}");
+
+        Assert.assertNull(query.bind(expression -> "1", null));
+        Assert.assertNotNull(query.bind(expression -> "1", DialectProfile.Dialect.MYSQL));
+    }
+}
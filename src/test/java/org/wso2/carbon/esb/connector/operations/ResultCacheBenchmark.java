@@ -0,0 +1,115 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.operations;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.synapse.MessageContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.esb.connector.MockMessageContext;
+import org.wso2.carbon.esb.connector.connections.DBConnectionPool;
+import org.wso2.carbon.esb.connector.connections.DBHandler;
+import org.wso2.carbon.esb.connector.pojo.ConnectionConfiguration;
+import org.wso2.carbon.esb.connector.utils.Constants;
+
+/**
+ * Runs the same lookup select through an ExecuteQuery mediator against an in-memory H2 database,
+ * with the result cache off and with a result cache TTL, reporting the time of a message. A
+ * message is created for every operation in both cases, so the difference is the time the
+ * cache saves on the connection, the statement and the mapping of the result.
+ * <p>
+ * Run with <code>mvn -Pbenchmark test-compile exec:exec -Dbenchmark=ResultCacheBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ResultCacheBenchmark {
+
+    private static final String CONNECTION_NAME = "resultCacheBenchmark";
+
+    /**
+     * The resultCacheTtl of the select in milliseconds, 0 runs it without the cache.
+     */
+    @Param({"0", "60000"})
+    public String resultCacheTtl;
+
+    @Param({"11"})
+    public int lookupRows;
+
+    private final ExecuteQuery query = new ExecuteQuery();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ConnectionConfiguration config = new ConnectionConfiguration(MockMessageContext.create(new HashMap<>()));
+        config.setUrl("jdbc:h2:mem:" + CONNECTION_NAME + ";DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setPassword("sa");
+        config.setDriverClassName("org.h2.Driver");
+        config.setProtocol("h2");
+        config.setResultCacheMaxEntries("100");
+        DBConnectionPool pool = DBConnectionPool.createPool(CONNECTION_NAME, config);
+        DBHandler handler = pool.borrow();
+        try (java.sql.Statement statement = handler.getJDBCConnection().createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS lookup");
+            statement.execute("CREATE TABLE lookup (code INT PRIMARY KEY, category VARCHAR(20), "
+                    + "label VARCHAR(40))");
+            statement.execute("INSERT INTO lookup SELECT x, 'status', 'label ' || x FROM SYSTEM_RANGE(1, "
+                    + lookupRows + ")");
+        } finally {
+            pool.release(handler);
+        }
+        query.setOperation(Constants.OPERATION_EXECUTE_QUERY);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DBConnectionPool.shutdownPools();
+    }
+
+    @Benchmark
+    public MessageContext lookup() throws Exception {
+        Map<String, Object> params = new HashMap<>();
+        MessageContext messageContext = MockMessageContext.create(params);
+        messageContext.setProperty(Constants.CONNECTION_NAME, CONNECTION_NAME);
+        params.put(Constants.QUERY, "SELECT code, label FROM lookup WHERE category = ? ORDER BY code");
+        params.put(Constants.PARAMETERS, "[[\"status\", \"VARCHAR\"]]");
+        params.put(Constants.IS_PREPARED_STATEMENT, "true");
+        params.put(Constants.IS_RESULT_SET, "true");
+        params.put(Constants.RESULT_CACHE_TTL, resultCacheTtl);
+        query.connect(messageContext);
+        return messageContext;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.operations;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the table names and the statement kinds found by {@link SqlTables}.
+ */
+public class SqlTablesTest {
+
+    @Test
+    public void testTablesOfStatements() {
+        Assert.assertEquals(SqlTables.of("SELECT * FROM Orders o JOIN dbo.\"Customers\" c ON o.c = c.id"),
+                new HashSet<>(Arrays.asList("orders", "customers")));
+        Assert.assertEquals(SqlTables.of("select * from a x, b as y, `c` where x.id = y.id"),
+                new HashSet<>(Arrays.asList("a", "b", "c")));
+        Assert.assertEquals(SqlTables.of("INSERT INTO items (id) VALUES (1)"),
+                new HashSet<>(Arrays.asList("items")));
+        Assert.assertEquals(SqlTables.of("UPDATE [stock] SET qty = 0"), new HashSet<>(Arrays.asList("stock")));
+        Assert.assertEquals(SqlTables.of("TRUNCATE TABLE logs"), new HashSet<>(Arrays.asList("logs")));
+    }
+
+    @Test
+    public void testLiteralsAndCommentsAreSkipped() {
+        Assert.assertEquals(SqlTables.of("SELECT 'from fake' FROM real -- join other\n/* into x */"),
+                new HashSet<>(Arrays.asList("real")));
+        Assert.assertTrue(SqlTables.of("SELECT 1").isEmpty());
+        Assert.assertTrue(SqlTables.of(null).isEmpty());
+    }
+
+    @Test
+    public void testReadOnlyStatements() {
+        Assert.assertTrue(SqlTables.isReadOnly("SELECT * FROM t WHERE a = 'for update'"));
+        Assert.assertTrue(SqlTables.isReadOnly("(SELECT a FROM t) UNION (SELECT a FROM u)"));
+        Assert.assertTrue(SqlTables.isReadOnly("select * from t -- for update"));
+    }
+
+    @Test
+    public void testWritingOrLockingStatementsAreNotReadOnly() {
+        Assert.assertFalse(SqlTables.isReadOnly("SELECT * FROM t FOR UPDATE"));
+        Assert.assertFalse(SqlTables.isReadOnly("SELECT * FROM t FOR SHARE"));
+        Assert.assertFalse(SqlTables.isReadOnly("SELECT * FROM t LOCK IN SHARE MODE"));
+        Assert.assertFalse(SqlTables.isReadOnly("SELECT * INTO archive FROM t"));
+        Assert.assertFalse(SqlTables.isReadOnly("INSERT INTO t VALUES (1) RETURNING id"));
+        Assert.assertFalse(SqlTables.isReadOnly("DELETE FROM t WHERE id = 1 RETURNING *"));
+        Assert.assertFalse(SqlTables.isReadOnly("WITH d AS (DELETE FROM t RETURNING *) SELECT * FROM d"));
+        Assert.assertFalse(SqlTables.isReadOnly("CALL p()"));
+        Assert.assertFalse(SqlTables.isReadOnly(null));
+    }
+
+    @Test
+    public void testStatementsReturningRows() {
+        Assert.assertTrue(SqlTables.mayReturnRows("SELECT 1"));
+        Assert.assertTrue(SqlTables.mayReturnRows("with x as (select 1) select * from x"));
+        Assert.assertTrue(SqlTables.mayReturnRows("VALUES (1)"));
+        Assert.assertTrue(SqlTables.mayReturnRows("EXEC p"));
+        Assert.assertTrue(SqlTables.mayReturnRows("{call p(?)}"));
+        Assert.assertTrue(SqlTables.mayReturnRows("(SELECT 1)"));
+        Assert.assertFalse(SqlTables.mayReturnRows("INSERT INTO t VALUES (1)"));
+        Assert.assertFalse(SqlTables.mayReturnRows("UPDATE t SET a = 1"));
+        Assert.assertFalse(SqlTables.mayReturnRows(""));
+        Assert.assertFalse(SqlTables.mayReturnRows(null));
+    }
+}
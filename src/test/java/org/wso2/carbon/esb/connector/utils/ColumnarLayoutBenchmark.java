@@ -0,0 +1,149 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.utils;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Maps a 30-column report over an in-memory H2 database to JSON in the row-object layout and
+ * in the columnar layout, both into a JSON tree and streamed to a discarding writer. The rows
+ * are queried once and rewound for every operation, as in {@link ResultSetMapperBenchmark}.
+ * The payload sizes of the two layouts are compared by {@link ResultSetMapperTest}.
+ * <p>
+ * Run with <code>mvn -Pbenchmark test-compile exec:exec -Dbenchmark="ColumnarLayoutBenchmark -prof gc"</code>
+ * to report the bytes allocated per operation as <code>gc.alloc.rate.norm</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ColumnarLayoutBenchmark {
+
+    @Param({"1000"})
+    public int rows;
+
+    private Connection connection;
+    private ResultSet resultSet;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:columnarBenchmark;DB_CLOSE_DELAY=-1", "sa", "sa");
+        try (Statement statement = connection.createStatement()) {
+            createReport(statement, rows);
+        }
+        resultSet = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)
+                .executeQuery("SELECT * FROM report ORDER BY id");
+    }
+
+    /**
+     * Creates the report table, with 30 columns of the types a report typically holds.
+     */
+    static void createReport(Statement statement, int rows) throws SQLException {
+        StringBuilder create = new StringBuilder("CREATE TABLE report (id INT PRIMARY KEY");
+        StringBuilder insert = new StringBuilder("INSERT INTO report SELECT x");
+        for (int column = 1; column < 30; column++) {
+            String name = ", report_column_" + column;
+            switch (column % 5) {
+                case 0:
+                    create.append(name).append(" INT");
+                    insert.append(", x * 1000 + ").append(column);
+                    break;
+                case 1:
+                    create.append(name).append(" DECIMAL(12, 2)");
+                    insert.append(", CAST(x * 1.75 + ").append(column).append(" AS DECIMAL(12, 2))");
+                    break;
+                case 2:
+                    create.append(name).append(" VARCHAR(40)");
+                    insert.append(", 'value ' || x || '-").append(column).append('\'');
+                    break;
+                case 3:
+                    create.append(name).append(" BOOLEAN");
+                    insert.append(", MOD(x, 2) = 0");
+                    break;
+                default:
+                    create.append(name).append(" DOUBLE PRECISION");
+                    insert.append(", x / 7.0 + ").append(column);
+                    break;
+            }
+        }
+        statement.execute("DROP TABLE IF EXISTS report");
+        statement.execute(create.append(')').toString());
+        statement.execute(insert.append(" FROM SYSTEM_RANGE(1, ").append(rows).append(')').toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public JsonArray rowsTree() throws SQLException {
+        resultSet.beforeFirst();
+        return ResultSetMapper.mapResultSetToJsonArray(resultSet);
+    }
+
+    @Benchmark
+    public JsonObject columnarTree() throws SQLException {
+        resultSet.beforeFirst();
+        return ResultSetMapper.mapResultSetToColumnarJson(resultSet);
+    }
+
+    @Benchmark
+    public int rowsStream() throws SQLException, IOException {
+        resultSet.beforeFirst();
+        return ResultSetMapper.writeResultSetToJson(resultSet,
+                new JsonWriter(new ResultSetMapperBenchmark.DiscardingWriter()));
+    }
+
+    @Benchmark
+    public int columnarStream() throws SQLException, IOException {
+        resultSet.beforeFirst();
+        JsonWriter writer = new JsonWriter(new ResultSetMapperBenchmark.DiscardingWriter());
+        writer.beginObject();
+        int rowCount = ResultSetMapper.writeResultSetToColumnarJson(resultSet, writer);
+        writer.endObject();
+        return rowCount;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.utils;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * The mapping of result set rows to JSON before the column readers, reading every cell with
+ * getObject and choosing its JSON type with an instanceof chain. Kept as the reference the
+ * readers are compared with.
+ */
+final class GetObjectMapper {
+
+    private GetObjectMapper() {
+    }
+
+    static JsonArray mapResultSetToJsonArray(ResultSet rs) throws SQLException {
+        JsonArray jsonArray = new JsonArray();
+        ResultSetMetaData metadata = rs.getMetaData();
+        int columnCount = metadata.getColumnCount();
+        String[] columnNames = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnNames[i] = metadata.getColumnLabel(i + 1);
+        }
+
+        while (rs.next()) {
+            JsonObject jsonRow = new JsonObject();
+            for (int i = 0; i < columnCount; i++) {
+                String columnName = columnNames[i];
+                Object value = rs.getObject(i + 1);
+                if (value == null) {
+                    jsonRow.add(columnName, null);
+                } else if (value instanceof Boolean) {
+                    jsonRow.addProperty(columnName, (Boolean) value);
+                } else if (value instanceof Number) {
+                    jsonRow.addProperty(columnName, (Number) value);
+                } else {
+                    jsonRow.addProperty(columnName, value.toString());
+                }
+            }
+            jsonArray.add(jsonRow);
+        }
+        return jsonArray;
+    }
+
+    /**
+     * Writes the rows the way {@link ResultSetMapper#writeResultSetToJson} does, but reading
+     * every cell with getObject.
+     */
+    static int writeResultSetToJson(ResultSet rs, JsonWriter writer) throws SQLException, IOException {
+        ResultSetMetaData metadata = rs.getMetaData();
+        int columnCount = metadata.getColumnCount();
+        String[] columnNames = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnNames[i] = metadata.getColumnLabel(i + 1);
+        }
+
+        int rowCount = 0;
+        writer.beginArray();
+        while (rs.next()) {
+            writer.beginObject();
+            for (int i = 0; i < columnCount; i++) {
+                writer.name(columnNames[i]);
+                ColumnReader.writeValue(rs.getObject(i + 1), writer);
+            }
+            writer.endObject();
+            rowCount++;
+        }
+        writer.endArray();
+        return rowCount;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.JsonArray;
+import com.google.gson.stream.JsonWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Maps a numeric result set over an in-memory H2 database to JSON with the column readers of
+ * {@link ResultSetMapper} and with the getObject path of {@link GetObjectMapper}, both into a
+ * JSON tree and streamed to a discarding writer. The rows are queried once and rewound for every
+ * operation, so that the figures cover the mapping rather than the query.
+ * <p>
+ * Run with <code>mvn -Pbenchmark test-compile exec:exec -Dbenchmark="ResultSetMapperBenchmark -prof gc"</code>
+ * to report the bytes allocated per operation as <code>gc.alloc.rate.norm</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ResultSetMapperBenchmark {
+
+    @Param({"1000"})
+    public int rows;
+
+    @Param({"20"})
+    public int columns;
+
+    private Connection connection;
+    private ResultSet resultSet;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:mapperBenchmark;DB_CLOSE_DELAY=-1", "sa", "sa");
+        StringBuilder create = new StringBuilder("CREATE TABLE numbers (id INT PRIMARY KEY");
+        StringBuilder insert = new StringBuilder("INSERT INTO numbers SELECT x");
+        for (int column = 1; column < columns; column++) {
+            // values beyond the Integer cache, so that getObject boxes every cell
+            switch (column % 4) {
+                case 0:
+                    create.append(", c").append(column).append(" INT");
+                    insert.append(", x * 1000 + ").append(column);
+                    break;
+                case 1:
+                    create.append(", c").append(column).append(" BIGINT");
+                    insert.append(", x * 100000000000 + ").append(column);
+                    break;
+                case 2:
+                    create.append(", c").append(column).append(" DOUBLE PRECISION");
+                    insert.append(", x / 7.0 + ").append(column);
+                    break;
+                default:
+                    create.append(", c").append(column).append(" DECIMAL(20, 4)");
+                    insert.append(", CAST(x * 1.2345 + ").append(column).append(" AS DECIMAL(20, 4))");
+                    break;
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS numbers");
+            statement.execute(create.append(')').toString());
+            statement.execute(insert.append(" FROM SYSTEM_RANGE(1, ").append(rows).append(')').toString());
+        }
+        resultSet = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)
+                .executeQuery("SELECT * FROM numbers ORDER BY id");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public JsonArray getObjectTree() throws SQLException {
+        resultSet.beforeFirst();
+        return GetObjectMapper.mapResultSetToJsonArray(resultSet);
+    }
+
+    @Benchmark
+    public JsonArray readerTree() throws SQLException {
+        resultSet.beforeFirst();
+        return ResultSetMapper.mapResultSetToJsonArray(resultSet);
+    }
+
+    @Benchmark
+    public int getObjectStream() throws SQLException, IOException {
+        resultSet.beforeFirst();
+        return GetObjectMapper.writeResultSetToJson(resultSet, new JsonWriter(new DiscardingWriter()));
+    }
+
+    @Benchmark
+    public int readerStream() throws SQLException, IOException {
+        resultSet.beforeFirst();
+        return ResultSetMapper.writeResultSetToJson(resultSet, new JsonWriter(new DiscardingWriter()));
+    }
+
+    /**
+     * A writer dropping everything written to it.
+     */
+    static final class DiscardingWriter extends Writer {
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+        }
+
+        @Override
+        public void write(String value, int offset, int length) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ *  Copyright (c) 2025, WSO2 LLC. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.esb.connector.utils;
+
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.gson.stream.JsonWriter;
+
+import org.testng.Assert;
+import org.testng.Reporter;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that the column readers of {@link ResultSetMapper} produce the same JSON as reading
+ * every cell with getObject, both over H2 and over result sets reporting the JDBC types and
+ * getObject values of other drivers, and compares the payload sizes of the row-object and
+ * columnar layouts.
+ */
+public class ResultSetMapperTest {
+
+    private static final String QUERY = "SELECT * FROM typed ORDER BY id";
+    private static final String REPORT_QUERY = "SELECT * FROM report ORDER BY id";
+
+    @Test
+    public void testReadersMatchGetObjectOnH2() throws Exception {
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:mapper;DB_CLOSE_DELAY=-1", "sa", "sa")) {
+            conn.createStatement().execute("CREATE TABLE IF NOT EXISTS typed (id INT PRIMARY KEY, ti TINYINT, "
+                    + "si SMALLINT, bi BIGINT, re REAL, db DOUBLE PRECISION, fl FLOAT, de DECIMAL(30, 10), "
+                    + "nu NUMERIC(5), bo BOOLEAN, ch CHAR(3), vc VARCHAR(20), da DATE, tm TIME, "
+                    + "ts TIMESTAMP, uu UUID)");
+            conn.createStatement().execute("MERGE INTO typed VALUES (1, -128, 32767, 9223372036854775807, 1.1, "
+                    + "0.1, 1e300, 12345678901234567890.0123456789, 99999, TRUE, 'ab', 'x\"y', "
+                    + "DATE '2024-02-29', TIME '23:59:58', TIMESTAMP '2024-02-29 23:59:58.123456', "
+                    + "'123e4567-e89b-12d3-a456-426614174000')");
+            conn.createStatement().execute("MERGE INTO typed (id) VALUES (2)");
+
+            String expected;
+            try (ResultSet rs = conn.createStatement().executeQuery(QUERY)) {
+                expected = GetObjectMapper.mapResultSetToJsonArray(rs).toString();
+            }
+            Assert.assertTrue(expected.contains("12345678901234567890.0123456789"), expected);
+            try (ResultSet rs = conn.createStatement().executeQuery(QUERY)) {
+                Assert.assertEquals(ResultSetMapper.mapResultSetToJsonArray(rs).toString(), expected);
+            }
+            try (ResultSet rs = conn.createStatement().executeQuery(QUERY)) {
+                Assert.assertEquals(write(rs), expected);
+            }
+        }
+    }
+
+    @Test
+    public void testReadersMatchGetObjectOfOtherDrivers() throws Exception {
+        List<Column> columns = Arrays.asList(
+                // Oracle NUMBER and FLOAT(126) are read as BigDecimal
+                new Column("ORACLE_NUMBER", Types.NUMERIC, true, new BigDecimal("-1234567890.0987654321")),
+                new Column("ORACLE_FLOAT", Types.FLOAT, true, new BigDecimal("12345678901234567890.123")),
+                // MySQL unsigned integers are read as the next wider type
+                new Column("MYSQL_INT_UNSIGNED", Types.INTEGER, false, 4294967295L),
+                new Column("MYSQL_BIGINT_UNSIGNED", Types.BIGINT, false, new BigInteger("18446744073709551615")),
+                new Column("MYSQL_TINYINT_UNSIGNED", Types.TINYINT, false, 255),
+                // MySQL TINYINT(1) and PostgreSQL bool are reported as BIT
+                new Column("MYSQL_TINYINT1", Types.BIT, true, Boolean.TRUE),
+                // SQL Server smallint and real
+                new Column("MSSQL_SMALLINT", Types.SMALLINT, true, (short) -32768),
+                new Column("MSSQL_REAL", Types.REAL, true, 1.1f),
+                new Column("PG_FLOAT8", Types.DOUBLE, true, 0.1),
+                new Column("PG_INT8", Types.BIGINT, true, Long.MIN_VALUE),
+                new Column("PG_NUMERIC", Types.NUMERIC, true, new BigDecimal("1E+3")),
+                new Column("DB2_CHAR", Types.CHAR, true, "ab "),
+                new Column("NVARCHAR", Types.NVARCHAR, true, "\u00e9\u00e8"));
+
+        String expected = GetObjectMapper.mapResultSetToJsonArray(resultSet(columns)).toString();
+        Assert.assertEquals(ResultSetMapper.mapResultSetToJsonArray(resultSet(columns)).toString(), expected);
+        Assert.assertEquals(write(resultSet(columns)), expected);
+    }
+
+    @Test
+    public void testColumnarLayoutIsSmaller() throws Exception {
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:columnar;DB_CLOSE_DELAY=-1", "sa", "sa")) {
+            ColumnarLayoutBenchmark.createReport(conn.createStatement(), 1000);
+            int rowsBytes;
+            try (ResultSet rs = conn.createStatement().executeQuery(REPORT_QUERY)) {
+                rowsBytes = write(rs).getBytes(StandardCharsets.UTF_8).length;
+            }
+            int columnarBytes;
+            try (ResultSet rs = conn.createStatement().executeQuery(REPORT_QUERY)) {
+                StringWriter out = new StringWriter();
+                JsonWriter writer = new JsonWriter(out);
+                writer.beginObject();
+                ResultSetMapper.writeResultSetToColumnarJson(rs, writer);
+                writer.endObject();
+                writer.flush();
+                columnarBytes = out.toString().getBytes(StandardCharsets.UTF_8).length;
+            }
+            Reporter.log("30 columns, 1000 rows: " + rowsBytes + " bytes as row objects, "
+                    + columnarBytes + " bytes columnar", true);
+            Assert.assertTrue(columnarBytes * 2 < rowsBytes, columnarBytes + " >= " + rowsBytes + " / 2");
+        }
+    }
+
+    private static String write(ResultSet rs) throws Exception {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        ResultSetMapper.writeResultSetToJson(rs, writer);
+        writer.flush();
+        return out.toString();
+    }
+
+    /**
+     * A column of a fake result set, with the JDBC type and the getObject value of a driver.
+     */
+    private static final class Column {
+
+        final String label;
+        final int type;
+        final boolean signed;
+        final Object value;
+
+        Column(String label, int type, boolean signed, Object value) {
+            this.label = label;
+            this.type = type;
+            this.signed = signed;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Creates a result set of two rows, the values of the columns and a row of nulls. The typed
+     * getters convert the getObject value the way drivers do.
+     */
+    private static ResultSet resultSet(List<Column> columns) {
+        ResultSetMetaData metadata = (ResultSetMetaData) Proxy.newProxyInstance(
+                ResultSetMapperTest.class.getClassLoader(), new Class<?>[] {ResultSetMetaData.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnCount":
+                            return columns.size();
+                        case "getColumnLabel":
+                        case "getColumnName":
+                            return columns.get((Integer) args[0] - 1).label;
+                        case "getColumnType":
+                            return columns.get((Integer) args[0] - 1).type;
+                        case "isSigned":
+                            return columns.get((Integer) args[0] - 1).signed;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        int[] row = {0};
+        Object[] last = {null};
+        return (ResultSet) Proxy.newProxyInstance(ResultSetMapperTest.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getMetaData":
+                            return metadata;
+                        case "next":
+                            return ++row[0] <= 2;
+                        case "wasNull":
+                            return last[0] == null;
+                        default:
+                            break;
+                    }
+                    Object value = row[0] == 1 ? columns.get((Integer) args[0] - 1).value : null;
+                    last[0] = value;
+                    switch (method.getName()) {
+                        case "getObject":
+                            return value;
+                        case "getString":
+                            return value == null ? null : value.toString();
+                        case "getInt":
+                            return value == null ? 0 : ((Number) value).intValue();
+                        case "getLong":
+                            return value == null ? 0L : ((Number) value).longValue();
+                        case "getDouble":
+                            return value == null ? 0d : ((Number) value).doubleValue();
+                        case "getBoolean":
+                            return value != null && (Boolean) value;
+                        case "getBigDecimal":
+                            return value == null ? null : new BigDecimal(value.toString());
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}